@@ -16,6 +16,9 @@
 package client;
 
 import client.scenes.MainCtrl;
+import client.utils.ImageLoader;
+import client.utils.QuestionPrefetcher;
+import client.utils.ServerUtils;
 import com.google.inject.Binder;
 import com.google.inject.Module;
 import com.google.inject.Scopes;
@@ -29,6 +32,9 @@ public class MyModule implements Module {
     public void configure(Binder binder) {
 
         binder.bind(MainCtrl.class).in(Scopes.SINGLETON);
+        binder.bind(ServerUtils.class).in(Scopes.SINGLETON); // shares the server URL and the cached images
+        binder.bind(ImageLoader.class).in(Scopes.SINGLETON);
+        binder.bind(QuestionPrefetcher.class).in(Scopes.SINGLETON);
 
     }
 }
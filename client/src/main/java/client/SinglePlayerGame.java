@@ -3,10 +3,15 @@ package client;
 
 import commons.Player;
 import commons.questions.Question;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Single player game class
@@ -16,6 +21,10 @@ import java.util.List;
 public class SinglePlayerGame {
 
     private List<Question> questions;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient Set<String> questionKeys; // keys of the questions, for finding duplicates without equals
     private Player player;
     private int questionNumber = 1;
     private int maxQuestions;
@@ -72,14 +81,32 @@ public class SinglePlayerGame {
      * @return true if question was added, false otherwise
      */
     public boolean addQuestion(Question question){
-        // TODO: Make this comparison actually do something, right now it uses Object's equals method. Probably should use a set or something
-        for(int i = 0; i < questions.size(); i++) {
-            if (question.equals(questions.get(i))) return false;
-        }
+        if (question == null || !questionKeys().add(question.key())) return false;
         questions.add(question);
         return true;
     }
 
+    /**
+     * Sets the list of questions
+     * @param questions new list of questions
+     */
+    public void setQuestions(List<Question> questions) {
+        this.questions = questions;
+        this.questionKeys = null;
+    }
+
+    /**
+     * Gets the keys of the questions in the list
+     * Rebuilt if the list was changed without addQuestion
+     * @return set of question keys
+     */
+    private Set<String> questionKeys() {
+        if (questionKeys == null || questionKeys.size() != questions.size()) {
+            questionKeys = Question.keys(questions);
+        }
+        return questionKeys;
+    }
+
     /**
      * This method adds points to a score of a player
      * A particular formula for the points has been developed.
@@ -1,7 +1,10 @@
 package client.scenes;
 
+import client.utils.ImageLoader;
 import client.utils.ServerUtils;
 import com.google.inject.Inject;
+import commons.Activity;
+import commons.Answer;
 import commons.questions.ComparativeQuestion;
 import commons.questions.EqualityQuestion;
 import commons.questions.MCQuestion;
@@ -14,19 +17,17 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Tooltip;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.VBox;
 import javafx.util.Duration;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
 import java.util.List;
 import java.util.Random;
 
 public class ComparativeQuestionScreenCtrl {
 
     private final ServerUtils server;
+    private final ImageLoader imageLoader;
     private final MainCtrl mainCtrl;
     private boolean multiplayer;
 
@@ -47,6 +48,7 @@ public class ComparativeQuestionScreenCtrl {
     private double answerTime = 4.0;
 
     private int timeWhenAnswered = -1;
+    private Answer answer = new Answer(); // what the player chose, sent to the server in multiplayer
     private int currentTime = (int) questionTime;
     private int pointsGainedForQuestion = 0;
     private double additionalPoints = 1.0; // if joker "double points" is used, it is set to 2.0
@@ -108,11 +110,13 @@ public class ComparativeQuestionScreenCtrl {
      * Creates a new screen with injections
      * @param server ServerUtils class
      * @param mainCtrl Main Controller
+     * @param imageLoader loads the images of the activities in the background
      */
     @Inject
-    public ComparativeQuestionScreenCtrl(ServerUtils server, MainCtrl mainCtrl) {
+    public ComparativeQuestionScreenCtrl(ServerUtils server, MainCtrl mainCtrl, ImageLoader imageLoader) {
         this.mainCtrl = mainCtrl;
         this.server = server;
+        this.imageLoader = imageLoader;
     }
 
     /**
@@ -169,6 +173,7 @@ public class ComparativeQuestionScreenCtrl {
 
 
     private void checkAnswer(int answer){
+        this.answer = new Answer(null, 0, answer, (int) (progressBar.getProgress() * questionTime));
         int correctAnswer = -1;
         if(questionMode == 0){
             correctAnswer = question.getCorrect_answer();
@@ -238,7 +243,7 @@ public class ComparativeQuestionScreenCtrl {
     }
 
     /**
-     * Sets the images to the ones stored in the activities.
+     * Sets the images to the ones of the activities, fetched from the server.
      * Also sets the images to be the same width as the question
      */
     private void setImages(){
@@ -246,12 +251,7 @@ public class ComparativeQuestionScreenCtrl {
         List<ImageView> images = List.of(image1, image2, image3);
         // This loops through every activity, gets the image and sets the image in the UI
         for(int i = 0; i < question.getActivities().size(); i++){
-            if(question.getActivities().get(i).getImage() != null){
-                InputStream inputStream = new ByteArrayInputStream(question.getActivities().get(i).getImage());
-                if(inputStream != null){
-                    images.get(i).setImage(new Image(inputStream));
-                }
-            }
+            setImage(images.get(i), question.getActivities().get(i));
         }
         // It's dumb that we have to set the images to be the width of the vbox here
         // A true javafx moment
@@ -272,17 +272,11 @@ public class ComparativeQuestionScreenCtrl {
     }
 
     /**
-     * Sets the image to the one stored in the activity.
+     * Sets the image to the one of the activity, fetched from the server.
      * Also sets the image to be the same width as the question
      */
     private void setMCImages(){
-        // This loops through every activity, gets the image and sets the image in the UI
-        if(mcQuestion.getActivity().getImage() != null){
-            InputStream inputStream = new ByteArrayInputStream(mcQuestion.getActivity().getImage());
-            if(inputStream != null){
-                image2.setImage(new Image(inputStream));
-            }
-        }
+        setImage(image2, mcQuestion.getActivity());
         // set the images to be the width of the vbox
         image2.fitWidthProperty().bind(questionBox2.widthProperty());
     }
@@ -299,7 +293,7 @@ public class ComparativeQuestionScreenCtrl {
     }
 
     /**
-     * Sets the images to the ones stored in the activities.
+     * Sets the images to the ones of the activities, fetched from the server.
      * Also sets the images to be the same width as the question
      */
     private void setEqualityImages(){
@@ -307,12 +301,7 @@ public class ComparativeQuestionScreenCtrl {
         List<ImageView> images = List.of(image1, image2, image3);
         // This loops through every activity, gets the image and sets the image in the UI
         for(int i = 0; i < equalityQuestion.getActivities().size(); i++){
-            if(equalityQuestion.getActivities().get(i).getImage() != null){
-                InputStream inputStream = new ByteArrayInputStream(equalityQuestion.getActivities().get(i).getImage());
-                if(inputStream != null){
-                    images.get(i).setImage(new Image(inputStream));
-                }
-            }
+            setImage(images.get(i), equalityQuestion.getActivities().get(i));
         }
         // It's dumb that we have to set the images to be the width of the vbox here
         // A true javafx moment
@@ -321,6 +310,18 @@ public class ComparativeQuestionScreenCtrl {
         image3.fitWidthProperty().bind(questionBox3.widthProperty());
     }
 
+    /**
+     * Shows the image of the activity in the image view, loaded and decoded in the background
+     *
+     * @param view image view to show the image in
+     * @param activity activity whose image is shown
+     */
+    private void setImage(ImageView view, Activity activity) {
+        // the image is as wide as its box, it is decoded at that size
+        int size = (int) Math.ceil(Math.max(questionBox1.getWidth(), view.getFitHeight()));
+        imageLoader.show(view, activity.getId(), size);
+    }
+
     /**
      * Exits the screen. Goes back to the home screen
      */
@@ -391,7 +392,8 @@ public class ComparativeQuestionScreenCtrl {
         }
 
         if (multiplayer) {
-            mainCtrl.addScoreMultiplayer(timeWhenAnswered, additionalPoints);
+            answer.setDoublePoints(additionalPoints > 1.0);
+            mainCtrl.submitAnswerMultiplayer(answer);
         } else {
             pointsGainedForQuestion = mainCtrl.getSinglePlayerGame().addPoints(timeWhenAnswered, additionalPoints);
         }
@@ -445,6 +447,7 @@ public class ComparativeQuestionScreenCtrl {
      */
     public void resetComparativeQuestionScreen(){
         timeWhenAnswered = -1;
+        answer = new Answer();
         answer1.setStyle("");
         answer2.setStyle("");
         answer3.setStyle("");
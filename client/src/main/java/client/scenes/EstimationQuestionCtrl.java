@@ -1,27 +1,27 @@
 package client.scenes;
 
+import client.utils.ImageLoader;
 import client.utils.ServerUtils;
 import com.google.inject.Inject;
+import commons.Answer;
 import commons.questions.EstimationQuestion;
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.HBox;
 import javafx.util.Duration;
 import lombok.Data;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
 
 @Data
 public class EstimationQuestionCtrl {
 
     private final ServerUtils server;
+    private final ImageLoader imageLoader;
     private final MainCtrl mainCtrl;
 
     private EstimationQuestion question;
@@ -31,6 +31,7 @@ public class EstimationQuestionCtrl {
     private double answerTime = 4.0;
 
     private int timeWhenAnswered = -1;
+    private Answer estimate = new Answer(); // the guess of the player, sent to the server in multiplayer
     private double guessAccuracy = 1.0;
     private int currentTime = (int) questionTime;
     private int pointsGainedForQuestion = 0;
@@ -82,11 +83,13 @@ public class EstimationQuestionCtrl {
      *
      * @param server
      * @param mainCtrl
+     * @param imageLoader loads the images of the activities in the background
      */
     @Inject
-    public EstimationQuestionCtrl(ServerUtils server, MainCtrl mainCtrl) {
+    public EstimationQuestionCtrl(ServerUtils server, MainCtrl mainCtrl, ImageLoader imageLoader) {
         this.mainCtrl = mainCtrl;
         this.server = server;
+        this.imageLoader = imageLoader;
     }
 
     /**
@@ -173,6 +176,7 @@ public class EstimationQuestionCtrl {
      * @param answer
      */
     public void checkAnswer(Long answer) {
+        estimate = new Answer(null, 0, (long) answer, (int) (progressBar.getProgress() * questionTime));
         Long correctAnswer = question.getActivity().getConsumption_in_wh();
         double upperBound = correctAnswer * 1.8;
         double lowerBound = correctAnswer * 0.4;
@@ -214,7 +218,8 @@ public class EstimationQuestionCtrl {
         questionLabel.setText(questionLabel.getText() + " - " + question.getActivity().getConsumption_in_wh() + " Wh");
 
         if (multiplayer) {
-            mainCtrl.addScoreMultiplayer(timeWhenAnswered, additionalPoints * guessAccuracy);
+            estimate.setDoublePoints(additionalPoints > 1.0);
+            mainCtrl.submitAnswerMultiplayer(estimate);
         } else {
             pointsGainedForQuestion = mainCtrl.getSinglePlayerGame().addPoints(timeWhenAnswered, additionalPoints * guessAccuracy);
         }
@@ -230,6 +235,7 @@ public class EstimationQuestionCtrl {
      */
     public void resetEstimationQuestion() {
         timeWhenAnswered = -1;
+        estimate = new Answer();
 
         // re-enable jokers
         setJokers();
@@ -350,16 +356,13 @@ public class EstimationQuestionCtrl {
     }
 
     /**
-     * Sets the images to the ones stored in the activities.
-     * Also sets the images to be the same width as the question
+     * Sets the image to the one of the activity, fetched from the server.
+     * Also sets the image to be the same height as the question
      */
     private void setImage () {
-        if (question.getActivity().getImage() != null) {
-            InputStream inputStream = new ByteArrayInputStream(question.getActivity().getImage());
-            if (inputStream != null) {
-                image.setImage(new Image(inputStream));
-            }
-        }
+        // the image is as high as its box, it is decoded at that size in the background
+        int size = (int) Math.ceil(Math.max(questionBox.getHeight(), image.getFitWidth()));
+        imageLoader.show(image, question.getActivity().getId(), size);
         image.fitHeightProperty().bind(questionBox.heightProperty());
     }
 
@@ -5,7 +5,6 @@ import com.google.inject.Inject;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import lombok.Getter;
@@ -59,20 +58,6 @@ public class LoadingScreenCtrl {
      * Displays seconds on the screen
      */
     public void countdown() {
-        if(!multiplayer){
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    try{
-                        mainCtrl.getSinglePlayerGame().addQuestion(mainCtrl.getServer().getRandomQuestion());
-                    } catch (Exception e){
-                        mainCtrl.showPopup(Alert.AlertType.ERROR, "Connection failed");
-                        mainCtrl.showHomeScreen();
-                    }
-                }
-            }).start();
-        }
-
         TimerTask task = new TimerTask() {
             int second = 2;
 
@@ -1,11 +1,14 @@
 package client.scenes;
 
 import client.SinglePlayerGame;
+import client.utils.QuestionPrefetcher;
 import client.utils.ServerUtils;
 import com.google.inject.Inject;
+import commons.Answer;
 import commons.GameUpdatesPacket;
 import commons.MultiPlayerGame;
 import commons.Player;
+import commons.PlayerChange;
 import commons.questions.*;
 import javafx.application.Platform;
 import javafx.event.EventHandler;
@@ -26,6 +29,8 @@ public class MainCtrl {
 
     @Getter
     private final ServerUtils server;
+    @Getter
+    private final QuestionPrefetcher questionPrefetcher;
 
     @Getter
     private Stage primaryStage;
@@ -80,15 +85,20 @@ public class MainCtrl {
     private SinglePlayerGame singlePlayerGame;
     @Getter
     private int singlePlayerGameQuestions = 20;
+    @Getter
+    @Setter
+    private int questionPrefetchDepth = QuestionPrefetcher.DEFAULT_DEPTH; // questions fetched ahead of the current one
 
     /**
      * Creates a new MainCtrl with server
      *
      * @param server ServerUtils object
+     * @param questionPrefetcher fetches the next single player questions in the background
      */
     @Inject
-    public MainCtrl(ServerUtils server) {
+    public MainCtrl(ServerUtils server, QuestionPrefetcher questionPrefetcher) {
         this.server = server;
+        this.questionPrefetcher = questionPrefetcher;
     }
 
     /**
@@ -191,6 +201,7 @@ public class MainCtrl {
      */
     public void showHomeScreen() {
         stopListening();
+        questionPrefetcher.stop();
         primaryStage.getScene().setRoot(homeScreenParent);
         homeScreenCtrl.refresh();
         checkDarkMode();
@@ -339,7 +350,8 @@ public class MainCtrl {
         try {
             server.getRandomActivity();
             singlePlayerGame = new SinglePlayerGame(singlePlayerGameQuestions);
-            //singlePlayerGame.addQuestion(question);
+            // the deck has one extra question in case the joker skips a question
+            questionPrefetcher.start(questionPrefetchDepth, singlePlayerGameQuestions + 1);
 
             setUsernameOriginScreen(1);
             showUsernameScreen();
@@ -359,6 +371,7 @@ public class MainCtrl {
             server.getRandomActivity();
 
             singlePlayerGame = new SinglePlayerGame(singlePlayerGameQuestions, username);
+            questionPrefetcher.start(questionPrefetchDepth, singlePlayerGameQuestions + 1);
 
             //skipping over the part where we ask for username
             showLoadingScreen(false);
@@ -381,11 +394,10 @@ public class MainCtrl {
                 + additionalQuestion()) {
 
             try {
-                // get next question from the server
-                Question newQuestion = server.getRandomQuestion();
-                // loop until new question is not already in the list
-                while (!singlePlayerGame.addQuestion(newQuestion)) {
-                    newQuestion = server.getRandomQuestion();
+                // the questions were fetched in the background while the previous one was shown
+                // (the deck fetched when the game started, single questions once it is used up or missing)
+                while (singlePlayerGame.getQuestions().size() < singlePlayerGame.getQuestionNumber()) {
+                    singlePlayerGame.addQuestion(questionPrefetcher.next());
                 }
 
                 Question question = singlePlayerGame.getQuestions().get(singlePlayerGame.getQuestionNumber() - 1);
@@ -417,6 +429,7 @@ public class MainCtrl {
      * Shows the end screen and sends score to the server
      */
     public void endSinglePlayerGame() {
+        questionPrefetcher.stop();
         //show End screen with score
         endScreenCtrl.setScoreLabel(singlePlayerGame.getPlayer().getScore());
         showEndScreen();
@@ -605,6 +618,7 @@ public class MainCtrl {
 
     /**
      * start listening for updates
+     * applies the changes of the players, or fetches them again if an update was missed
      * if questionnumber is wrong it updates it
      * if current screen is wrong is forces the player to the correct screen
      */
@@ -612,9 +626,7 @@ public class MainCtrl {
         server.registerUpdates(id, c -> {
             Platform.runLater(() -> {
                 if (packet != null) {
-                    if (packet.getHashListPlayers() != c.getHashListPlayers()) {
-                        updatePlayerList();
-                    }
+                    syncPlayers(c);
                     // check if multiplayer has started and the screen or question number has changed
                     if (MultiplayerStarted && (c.getCurrentScreen() != packet.getCurrentScreen() || c.getQuestionNumber() != packet.getQuestionNumber())) {
                         multiPlayerGame.setQuestionNumber(c.getQuestionNumber());
@@ -637,6 +649,28 @@ public class MainCtrl {
         });
     }
 
+    /**
+     * Brings the players up to the version of an update
+     * The changes of the next version are applied locally, the players are only fetched again
+     * if a version was missed (e.g. while reconnecting) or the update is a full status
+     *
+     * @param c the update
+     */
+    private void syncPlayers(GameUpdatesPacket c){
+        if (c.getVersion() == packet.getVersion() && c.getChanges() == null) {
+            return; // status of the version we have
+        }
+        if (!c.follows(packet.getVersion())) {
+            updatePlayerList();
+        } else if (!c.getChanges().isEmpty()) {
+            if (!MultiplayerStarted) {
+                waitingRoomCtrl.applyChanges(c.getChanges());
+            } else if (multiPlayerGame != null) {
+                PlayerChange.apply(multiPlayerGame.getPlayers(), c.getChanges());
+            }
+        }
+    }
+
     private void updatePlayerList(){
         try {
             if(!MultiplayerStarted){
@@ -682,7 +716,7 @@ public class MainCtrl {
      */
     public void startMultiplayer() {
         try {
-            boolean started = server.startMultiplayer();
+            boolean started = server.startMultiplayer(gameID);
             if(!started){
                 showPopup(Alert.AlertType.ERROR, "Server is still generating questions, try again in a moment");
             }
@@ -708,6 +742,7 @@ public class MainCtrl {
         if (packet.getCurrentScreen().equals("QUESTION")) {
             showQuestionMultiplayer(packet);
         } else if (packet.getCurrentScreen().equals("LEADERBOARD")) {
+            takeScoreMultiplayer();
             scoreChangeMultiplayerCtrl.setTableLeaderboard(multiPlayerGame.getPlayers());
             scoreChangeMultiplayerCtrl.setScoreLabels(pointsGained, player.getScore(), player.getStreak());
             showLeaderBoard();
@@ -741,20 +776,37 @@ public class MainCtrl {
     }
 
     /**
-     * Adds score to the multiplayer player
-     * @param timeWhenAnswered
-     * @param guessQuestionRate
+     * Sends the answer of the player to the server, which adds the points once the question closes
+     * @param answer what the player answered, the name and question number are filled in
+     */
+    public void submitAnswerMultiplayer(Answer answer){
+        if(answer.getOption() < 0 && answer.getEstimate() == null){
+            return; // nothing answered, the server resets the streak anyway
+        }
+        answer.setName(player.getName());
+        answer.setQuestionNumber(multiPlayerGame.getQuestionNumber());
+        try {
+            server.postAnswer(answer, gameID);
+        } catch (Exception e) {
+            showPopup(Alert.AlertType.ERROR, "Connection failed");
+            showHomeScreen();
+        }
+    }
+
+    /**
+     * Takes the score of the player computed by the server, which came with the leaderboard
+     * The streak follows the server, it grows with every question which got points
      */
-    public void addScoreMultiplayer(int timeWhenAnswered, double guessQuestionRate){
-        pointsGained = multiPlayerGame.addPointsForPlayer(timeWhenAnswered, guessQuestionRate, player);
+    private void takeScoreMultiplayer(){
+        Player scored = multiPlayerGame.getPlayer(player.getName());
+        int score = scored == null || scored.getScore() == null ? player.getScore() : scored.getScore();
+        pointsGained = score - player.getScore();
         if(pointsGained > 0){
-            try {
-                server.postScore(player, gameID);
-            } catch (Exception e) {
-                showPopup(Alert.AlertType.ERROR, "Connection failed");
-                showHomeScreen();
-            }
+            player.incrementStreak();
+        } else {
+            player.resetStreak();
         }
+        player.setScore(score);
     }
 
     /**
@@ -3,6 +3,7 @@ package client.scenes;
 import client.utils.ServerUtils;
 import com.google.inject.Inject;
 import commons.Player;
+import commons.PlayerChange;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -102,7 +103,7 @@ public class WaitingRoomCtrl implements Initializable {
             // because of the getLeaderPlayers(10) method, the
             // leaderboard needs no sorting, as the list of players
             // is returned already sorted through the query
-            List<Player> playerList = mainCtrl.getServer().getPlayersInWaitingRoom();
+            List<Player> playerList = mainCtrl.getServer().getPlayersInWaitingRoom(mainCtrl.getGameID());
             players = FXCollections.observableList(playerList);
             playerTable.setItems(players);
         } catch (Exception e) {
@@ -111,6 +112,18 @@ public class WaitingRoomCtrl implements Initializable {
         }
     }
 
+    /**
+     * Applies the players who joined or left since the last update, without fetching the list again
+     * @param changes changes of the players
+     */
+    public void applyChanges(List<PlayerChange> changes) {
+        if (players == null) {
+            refresh();
+            return;
+        }
+        PlayerChange.apply(players, changes);
+    }
+
     /**
      * Starts the gam when you click start
      */
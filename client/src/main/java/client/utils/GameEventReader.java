@@ -0,0 +1,79 @@
+package client.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.GameUpdatesPacket;
+import lombok.Getter;
+
+import java.util.function.Consumer;
+
+/**
+ * Reads the server-sent event stream of a multiplayer game, line by line
+ *
+ * Every event has the event ID of the update and the GameUpdatesPacket as JSON in its data.
+ * The ID of the last event is kept, so the stream can be resumed from it after a reconnect.
+ * Comment lines (the heartbeats of the server) are skipped.
+ */
+class GameEventReader {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Consumer<GameUpdatesPacket> consumer;
+    private final StringBuilder data = new StringBuilder();
+    private String id;
+
+    @Getter
+    private String lastEventId; // null until an event with an ID was read
+
+    /**
+     * Creates a reader
+     * @param consumer gets every update of the stream
+     */
+    GameEventReader(Consumer<GameUpdatesPacket> consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Reads the next line of the stream, an empty line ends an event
+     * @param line line without its line break
+     */
+    void line(String line) {
+        if (line.isEmpty()) {
+            dispatch();
+            return;
+        }
+        if (line.startsWith(":")) {
+            return; // heartbeat
+        }
+        int colon = line.indexOf(':');
+        String field = colon < 0 ? line : line.substring(0, colon);
+        String value = colon < 0 ? "" : line.substring(colon + 1);
+        if (value.startsWith(" ")) {
+            value = value.substring(1);
+        }
+        if ("data".equals(field)) {
+            if (data.length() > 0) {
+                data.append('\n');
+            }
+            data.append(value);
+        } else if ("id".equals(field)) {
+            id = value;
+        }
+    }
+
+    private void dispatch() {
+        if (id != null) {
+            lastEventId = id;
+            id = null;
+        }
+        if (data.length() == 0) {
+            return;
+        }
+        String json = data.toString();
+        data.setLength(0);
+        try {
+            consumer.accept(mapper.readValue(json, GameUpdatesPacket.class));
+        } catch (JsonProcessingException e) {
+            System.err.println("Couldn't read game update " + json + ": " + e.getMessage());
+        }
+    }
+}
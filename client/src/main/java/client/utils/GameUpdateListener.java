@@ -0,0 +1,80 @@
+package client.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.GameUpdatesPacket;
+
+import java.net.http.WebSocket;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * Receives the updates of a multiplayer game pushed over its WebSocket
+ *
+ * Every text message is a GameUpdatesPacket as JSON, which can arrive in several parts.
+ * When the connection is lost without being closed by the client, onLost is called,
+ * so the updates can be polled instead.
+ */
+class GameUpdateListener implements WebSocket.Listener {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Consumer<GameUpdatesPacket> consumer;
+    private final Runnable onLost;
+    private final StringBuilder text = new StringBuilder();
+    private volatile boolean closing;
+
+    /**
+     * Creates a listener
+     * @param consumer gets every update
+     * @param onLost called once if the connection is lost
+     */
+    GameUpdateListener(Consumer<GameUpdatesPacket> consumer, Runnable onLost) {
+        this.consumer = consumer;
+        this.onLost = onLost;
+    }
+
+    /**
+     * Marks the connection as closed by the client, so closing it isn't seen as losing it
+     */
+    void closing() {
+        closing = true;
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        text.append(data);
+        if (last) {
+            String json = text.toString();
+            text.setLength(0);
+            try {
+                consumer.accept(mapper.readValue(json, GameUpdatesPacket.class));
+            } catch (JsonProcessingException e) {
+                System.err.println("Couldn't read game update " + json + ": " + e.getMessage());
+            }
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        lost();
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        lost();
+    }
+
+    /**
+     * Called when the connection is lost, or couldn't be opened
+     * onLost is only run once, and not after the client closed the connection
+     */
+    void lost() {
+        if (!closing) {
+            closing = true;
+            onLost.run();
+        }
+    }
+}
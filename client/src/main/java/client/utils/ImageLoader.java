@@ -0,0 +1,141 @@
+package client.utils;
+
+import com.google.inject.Inject;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+import java.io.ByteArrayInputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads the images of the activities and keeps the decoded images in memory
+ *
+ * Images are fetched and decoded on background threads, at the size they are shown at,
+ * so the FX thread never decodes an image. The decoded images are kept in an LRU cache with a memory budget,
+ * an activity which was shown before is shown again immediately.
+ * The sizes are rounded up to a multiple of SIZE_STEP, so boxes of about the same size share their images.
+ */
+public class ImageLoader {
+
+    private static final long MEMORY_BUDGET = 64L << 20; // bytes of decoded pixels kept in memory
+    private static final int SIZE_STEP = 64;
+    private static final int THREADS = 2;
+    private static final int DEFAULT_SIZE = 256; // size preloaded images are decoded at before any image is shown
+
+    private final ServerUtils server;
+    // decoded images by activity ID and size, weighed by 4 bytes per pixel
+    private final LruCache<String, Image> images = new LruCache<>(MEMORY_BUDGET,
+        img -> (long) img.getWidth() * (long) img.getHeight() * 4);
+    private final Map<String, CompletableFuture<Image>> loading = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS, r -> {
+        Thread t = new Thread(r, "image-loader");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile int lastSize = DEFAULT_SIZE; // size of the last image shown
+
+    /**
+     * Creates a new image loader
+     * @param server server the images are fetched from
+     */
+    @Inject
+    public ImageLoader(ServerUtils server) {
+        this.server = server;
+    }
+
+    /**
+     * Shows the image of the activity in the image view
+     * If the image is cached it is shown immediately, otherwise the view is cleared
+     * and the image is shown once it is loaded (unless the view shows another activity by then)
+     *
+     * @param view image view to show the image in, has to be called on the FX thread
+     * @param activityId ID of the activity
+     * @param size width and height the image is shown at
+     */
+    public void show(ImageView view, String activityId, int size) {
+        String key = key(activityId, size);
+        lastSize = size;
+        view.setUserData(key); // the image the view is waiting for
+        Image cached = images.get(key);
+        if (cached != null) {
+            view.setImage(cached);
+            return;
+        }
+        view.setImage(null);
+        load(activityId, size).thenAccept(img -> Platform.runLater(() -> {
+            if (key.equals(view.getUserData())) {
+                view.setImage(img);
+            }
+        }));
+    }
+
+    /**
+     * Loads the image of the activity in the background
+     * Can be used to load the images of the next question before it is shown
+     *
+     * @param activityId ID of the activity
+     * @param size width and height the image is shown at
+     * @return future of the decoded image, completes with null if the activity has no image
+     */
+    public CompletableFuture<Image> load(String activityId, int size) {
+        String key = key(activityId, size);
+        Image cached = images.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<Image> future = loading.computeIfAbsent(key,
+            k -> CompletableFuture.supplyAsync(() -> decode(activityId, k), executor));
+        future.whenComplete((img, e) -> loading.remove(key, future)); // failed images are tried again next time
+        return future;
+    }
+
+    /**
+     * Loads the image of the activity in the background, at the size the last image was shown at
+     * Used for the images of questions which aren't shown yet, their boxes usually have the same size
+     *
+     * @param activityId ID of the activity
+     * @return future of the decoded image, completes with null if the activity has no image
+     */
+    public CompletableFuture<Image> preload(String activityId) {
+        return load(activityId, lastSize);
+    }
+
+    /**
+     * Fetches the image and decodes it at the display size, runs on a loader thread
+     */
+    private Image decode(String activityId, String key) {
+        try {
+            int size = size(key);
+            byte[] bytes = server.getImage(activityId, size);
+            if (bytes == null) {
+                return null;
+            }
+            Image img = new Image(new ByteArrayInputStream(bytes), size, size, true, true);
+            if (img.isError()) {
+                return null;
+            }
+            images.put(key, img);
+            return img;
+        } catch (RuntimeException e) { // server not reachable
+            System.err.println("Couldn't load image of activity " + activityId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Key of the image with its size rounded up to a multiple of SIZE_STEP
+     */
+    static String key(String activityId, int size) {
+        int rounded = (Math.max(size, 1) + SIZE_STEP - 1) / SIZE_STEP * SIZE_STEP;
+        return activityId + "@" + rounded;
+    }
+
+    private static int size(String key) {
+        return Integer.parseInt(key.substring(key.lastIndexOf('@') + 1));
+    }
+}
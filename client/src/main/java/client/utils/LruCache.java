@@ -0,0 +1,81 @@
+package client.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache which keeps its values under a budget
+ * Every value has a weight (e.g. its size in bytes), once the total weight is over the budget
+ * the least recently used values are removed. Thread safe.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+public class LruCache<K, V> {
+
+    private final long budget;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, V> values = new LinkedHashMap<>(16, 0.75f, true); // access order
+    private long weight;
+
+    /**
+     * Creates an empty cache
+     * @param budget maximum total weight of the values
+     * @param weigher gives the weight of a value
+     */
+    public LruCache(long budget, ToLongFunction<V> weigher) {
+        this.budget = budget;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Gets a value and marks it as recently used
+     * @param key key of the value
+     * @return the value, null if it isn't in the cache
+     */
+    public synchronized V get(K key) {
+        return values.get(key);
+    }
+
+    /**
+     * Adds a value, removes the least recently used values if the cache is over its budget
+     * A value heavier than the whole budget isn't added
+     *
+     * @param key key of the value
+     * @param value value to add
+     */
+    public synchronized void put(K key, V value) {
+        long w = weigher.applyAsLong(value);
+        if (w > budget) {
+            return;
+        }
+        V old = values.put(key, value);
+        if (old != null) {
+            weight -= weigher.applyAsLong(old);
+        }
+        weight += w;
+        Iterator<Map.Entry<K, V>> it = values.entrySet().iterator();
+        while (weight > budget && it.hasNext()) {
+            weight -= weigher.applyAsLong(it.next().getValue());
+            it.remove();
+        }
+    }
+
+    /**
+     * Gets the number of values in the cache
+     * @return number of values
+     */
+    public synchronized int size() {
+        return values.size();
+    }
+
+    /**
+     * Gets the total weight of the values in the cache
+     * @return total weight
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,229 @@
+package client.utils;
+
+import com.google.inject.Inject;
+import commons.questions.Question;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Fetches the next questions of a single player game while the current one is shown
+ *
+ * The deck of the game is fetched first, in one request on a background thread. Single questions are only
+ * fetched once the deck is used up, or if the server couldn't build it, so at least depth questions stay ready.
+ * Questions repeating one of the game are dropped.
+ * The images of the next depth questions are loaded too, so showing the next question doesn't wait for the server
+ * and its images are already decoded. Taking a question is a local dequeue,
+ * the question is only fetched on the calling thread if none is ready.
+ */
+public class QuestionPrefetcher {
+
+    public static final int DEFAULT_DEPTH = 2;
+
+    private final Supplier<Question> fetcher;
+    private final IntFunction<List<Question>> deckFetcher;
+    private final Consumer<Question> preloader;
+    private final Executor executor;
+
+    private final Deque<Question> ready = new ArrayDeque<>();
+    private final Set<String> used = new HashSet<>(); // keys of the questions of this game
+    private int depth = DEFAULT_DEPTH;
+    private int fetching;           // background fetches which didn't finish yet
+    private int generation;         // changes when the prefetcher is stopped, so old fetches are dropped
+    private boolean running;
+    private boolean deckPending;    // the deck is being fetched, single questions wait for it
+
+    /**
+     * Creates a new prefetcher which fetches decks and random questions and preloads their images
+     * @param server server the questions are fetched from
+     * @param images loader of the images
+     */
+    @Inject
+    public QuestionPrefetcher(ServerUtils server, ImageLoader images) {
+        this(server::getRandomQuestion, server::getQuestionBatch, q -> q.activities().forEach(a -> images.preload(a.getId())),
+            Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "question-prefetcher");
+                t.setDaemon(true);
+                return t;
+            }));
+    }
+
+    /**
+     * Creates a new prefetcher
+     * @param fetcher gets a new question from the server
+     * @param deckFetcher gets a deck of distinct questions of the specified size from the server
+     * @param preloader loads the images of a question
+     * @param executor runs the background fetches
+     */
+    QuestionPrefetcher(Supplier<Question> fetcher, IntFunction<List<Question>> deckFetcher,
+                       Consumer<Question> preloader, Executor executor) {
+        this.fetcher = fetcher;
+        this.deckFetcher = deckFetcher;
+        this.preloader = preloader;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts prefetching for a new game, questions of the previous game are dropped
+     * @param depth number of questions kept ready
+     * @param deckSize number of questions of the deck fetched first, 0 to only fetch single questions
+     */
+    public void start(int depth, int deckSize) {
+        int gen;
+        synchronized (this) {
+            stop();
+            this.depth = Math.max(depth, 1);
+            running = true;
+            deckPending = deckSize > 0;
+            gen = generation;
+        }
+        if (deckSize > 0) {
+            executor.execute(() -> fetchDeck(gen, deckSize));
+        } else {
+            fill();
+        }
+    }
+
+    /**
+     * Stops prefetching and drops the questions which are ready
+     * Fetches which are still running are ignored when they finish
+     */
+    public synchronized void stop() {
+        running = false;
+        deckPending = false;
+        ready.clear();
+        used.clear();
+        fetching = 0;
+        generation++;
+    }
+
+    /**
+     * Takes the next question
+     * Fetches it on the calling thread if no question is ready, so this only waits for the server
+     * if the game goes faster than the prefetching
+     *
+     * @return the next question
+     */
+    public Question next() {
+        Question question;
+        synchronized (this) {
+            question = ready.poll();
+        }
+        if (question == null) {
+            question = fetcher.get();
+            synchronized (this) {
+                if (question != null) {
+                    used.add(question.key());
+                }
+            }
+        }
+        fill();
+        preloadAhead();
+        return question;
+    }
+
+    /**
+     * Gets the number of questions which are ready
+     * @return number of ready questions
+     */
+    public synchronized int getReady() {
+        return ready.size();
+    }
+
+    /**
+     * Starts background fetches until depth questions are ready or being fetched
+     * Nothing is fetched while the deck is still coming
+     */
+    private void fill() {
+        int missing;
+        int gen;
+        synchronized (this) {
+            missing = running && !deckPending ? depth - ready.size() - fetching : 0;
+            fetching += Math.max(missing, 0);
+            gen = generation;
+        }
+        for (int i = 0; i < missing; i++) {
+            executor.execute(() -> fetch(gen));
+        }
+    }
+
+    /**
+     * Fetches the deck, runs on the background thread
+     * Single questions are fetched from now on, once the deck is used up or if it couldn't be fetched
+     */
+    private void fetchDeck(int gen, int size) {
+        List<Question> deck = List.of();
+        try {
+            deck = deckFetcher.apply(size);
+        } catch (RuntimeException e) { // server couldn't build a deck, the questions are fetched one by one
+            System.err.println("Couldn't get a question deck: " + e.getMessage());
+        }
+        synchronized (this) {
+            if (gen != generation) {
+                return; // the game was stopped in the meantime
+            }
+            deckPending = false;
+            if (deck != null) {
+                deck.forEach(this::add);
+            }
+        }
+        preloadAhead();
+        fill();
+    }
+
+    /**
+     * Fetches one question, runs on the background thread
+     */
+    private void fetch(int gen) {
+        Question question = null;
+        try {
+            question = fetcher.get();
+        } catch (RuntimeException e) { // server not reachable, next() fetches the question itself
+            System.err.println("Couldn't prefetch a question: " + e.getMessage());
+        }
+        synchronized (this) {
+            if (gen != generation) {
+                return; // the game was stopped in the meantime
+            }
+            fetching--;
+            if (question != null) {
+                add(question);
+            }
+        }
+        preloadAhead();
+    }
+
+    /**
+     * Adds a question to the ready ones, unless it repeats a question of the game
+     */
+    private synchronized void add(Question question) {
+        if (question != null && used.add(question.key())) {
+            ready.add(question);
+        }
+    }
+
+    /**
+     * Loads the images of the next depth questions, images which are loaded already are cached
+     */
+    private void preloadAhead() {
+        List<Question> next = new ArrayList<>();
+        synchronized (this) {
+            for (Question q : ready) {
+                if (next.size() >= depth) {
+                    break;
+                }
+                next.add(q);
+            }
+        }
+        next.forEach(preloader);
+    }
+}
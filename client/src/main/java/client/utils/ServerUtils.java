@@ -16,20 +16,39 @@
 package client.utils;
 
 import commons.Activity;
+import commons.Answer;
 import commons.GameUpdatesPacket;
 import commons.MultiPlayerGame;
 import commons.Player;
 import commons.questions.Question;
 import jakarta.ws.rs.client.ClientBuilder;
 import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.Invocation;
+import jakarta.ws.rs.core.CacheControl;
 import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.Response;
 import lombok.Getter;
 import org.glassfish.jersey.client.ClientConfig;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 
 import static jakarta.ws.rs.core.MediaType.APPLICATION_JSON;
@@ -45,6 +64,16 @@ public class ServerUtils {
     @Getter
     private String serverURL = defaultURL;
 
+    private static final int MAX_CACHED_IMAGES = 200;
+    // images by activity ID and size with their ETag, the least recently used ones are removed first
+    private final Map<String, CachedImage> images = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedImage> eldest) {
+                return size() > MAX_CACHED_IMAGES;
+            }
+        });
+
     /**
      * Constructor for ServerUtils
      * No need to specifiy any fields
@@ -69,6 +98,93 @@ public class ServerUtils {
     }
 
 
+    /**
+     * Gets a deck of distinct questions from the server in one request
+     * No question or activity is repeated inside the deck
+     *
+     * @param n number of questions in the deck
+     * @return list of n questions
+     */
+    public List<Question> getQuestionBatch(int n) {
+        return ClientBuilder.newClient(new ClientConfig()) //
+                .target(serverURL).path("api/questions/batch") //
+                .queryParam("n", n) //
+                .request(APPLICATION_JSON) //
+                .accept(APPLICATION_JSON) //
+                .get(new GenericType<>() {
+                });
+    }
+
+    /**
+     * Gets the image of an activity
+     * Questions don't contain the images, so they are fetched separately and cached.
+     * A cached image is used without asking the server until its max age is over,
+     * after that the server is asked if it changed and only sends it again if it did.
+     *
+     * @param activityId ID of the activity
+     * @param size width and height the image is shown at, the server sends a copy scaled down to about this size
+     * @return bytes of the image, null if the activity has no image
+     */
+    public byte[] getImage(String activityId, int size) {
+        String key = activityId + "@" + size;
+        CachedImage cached = images.get(key);
+        if (cached != null && cached.expires > System.currentTimeMillis()) {
+            return cached.image;
+        }
+        Invocation.Builder request = ClientBuilder.newClient(new ClientConfig()) //
+                .target(serverURL).path("api/images/" + activityId)
+                .queryParam("size", size)
+                .request();
+        if (cached != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, cached.etag);
+        }
+        Response res = request.get();
+        try {
+            if (res.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode() && cached != null) {
+                images.put(key, new CachedImage(cached.image, cached.etag, expires(res)));
+                return cached.image;
+            }
+            if (res.getStatus() != Response.Status.OK.getStatusCode()) {
+                return null;
+            }
+            byte[] image = res.readEntity(byte[].class);
+            String etag = res.getHeaderString(HttpHeaders.ETAG);
+            if (etag != null) {
+                images.put(key, new CachedImage(image, etag, expires(res)));
+            }
+            return image;
+        } finally {
+            res.close();
+        }
+    }
+
+    /**
+     * @return time until which the response can be used without asking the server again
+     */
+    private static long expires(Response res) {
+        String header = res.getHeaderString(HttpHeaders.CACHE_CONTROL);
+        if (header == null) {
+            return 0;
+        }
+        int maxAge = CacheControl.valueOf(header).getMaxAge();
+        return maxAge <= 0 ? 0 : System.currentTimeMillis() + maxAge * 1000L;
+    }
+
+    /**
+     * Image with the ETag the server sent with it
+     */
+    private static class CachedImage {
+        private final byte[] image;
+        private final String etag;
+        private final long expires;
+
+        private CachedImage(byte[] image, String etag, long expires) {
+            this.image = image;
+            this.etag = etag;
+            this.expires = expires;
+        }
+    }
+
     /**
      * Posts a Player object to the server
      *
@@ -114,58 +230,180 @@ public class ServerUtils {
     }
 
 
+    private static final long SOCKET_TIMEOUT_SECONDS = 3;
+    private static final long STREAM_RETRY_MILLIS = 1000; // wait before reconnecting a failed event stream
     private ExecutorService EXEC;
+    private volatile WebSocket socket;
+    private GameUpdateListener socketListener;
+
     /**
-     * Dont know what this does but apparently
-     * its meant to get a change that happened on the server
-     * and then based on that change number we send another
-     * request but for the body fo the change
+     * Listens to the updates of a game
+     * The updates are pushed over the WebSocket of the game, if it can't be opened (or is lost)
+     * they are read from the event stream of the game instead, and long polled if the server has no event streams
+     * @param id ID of the game
+     * @param consumer gets every update of the game
      */
     public void registerUpdates(int id, Consumer<GameUpdatesPacket> consumer) {
-        EXEC = Executors.newSingleThreadExecutor();
-        EXEC.submit(() -> {
-            while (!Thread.interrupted()) {
-                var res = ClientBuilder.newClient(new ClientConfig())
-                        .target(serverURL).path("api/poll/update/" + id)
-                        .request(APPLICATION_JSON) //
-                        .accept(APPLICATION_JSON) //
-                        .get(Response.class);
-                if (res.getStatus() == 204){
-                    continue;
+        ExecutorService exec = Executors.newSingleThreadExecutor();
+        EXEC = exec;
+        GameUpdateListener listener = new GameUpdateListener(consumer, () -> streamUpdates(exec, id, consumer));
+        socketListener = listener;
+        try {
+            HttpClient.newHttpClient().newWebSocketBuilder()
+                    .connectTimeout(Duration.ofSeconds(SOCKET_TIMEOUT_SECONDS))
+                    .buildAsync(URI.create(socketURL(serverURL, id)), listener)
+                    .whenComplete((ws, e) -> {
+                        if (e != null) {
+                            listener.lost();
+                        } else if (exec.isShutdown()) {
+                            ws.sendClose(WebSocket.NORMAL_CLOSURE, ""); // stopped while connecting
+                        } else {
+                            socket = ws;
+                        }
+                    });
+        } catch (IllegalArgumentException e) { // not a URL a WebSocket can connect to
+            listener.lost();
+        }
+    }
+
+    /**
+     * Reads the event stream of a game until the executor is shut down
+     * A stream which ends (or fails) is reconnected, and resumes after the last event it got
+     */
+    private void streamUpdates(ExecutorService exec, int id, Consumer<GameUpdatesPacket> consumer) {
+        try {
+            exec.submit(() -> {
+                HttpClient client = HttpClient.newHttpClient();
+                GameEventReader reader = new GameEventReader(consumer);
+                while (!Thread.currentThread().isInterrupted()) {
+                    try {
+                        if (!readEvents(client, id, reader)) {
+                            pollUpdates(exec, id, consumer); // server without event streams
+                            return;
+                        }
+                    } catch (IOException e) {
+                        try {
+                            Thread.sleep(STREAM_RETRY_MILLIS);
+                        } catch (InterruptedException stopped) {
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
                 }
-                var c = res.readEntity(GameUpdatesPacket.class);
-                consumer.accept(c);
+            });
+        } catch (RejectedExecutionException e) {
+            // stopped already
+        }
+    }
+
+    /**
+     * Reads one connection of the event stream of a game, until it ends
+     * @return false if the server doesn't have the event stream
+     */
+    private boolean readEvents(HttpClient client, int id, GameEventReader reader)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(eventsURL(serverURL, id)))
+                .header(HttpHeaders.ACCEPT, "text/event-stream");
+        if (reader.getLastEventId() != null) {
+            request.header("Last-Event-ID", reader.getLastEventId());
+        }
+        HttpResponse<InputStream> res = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(res.body(), StandardCharsets.UTF_8))) {
+            if (res.statusCode() != 200) {
+                return false;
             }
-        });
+            String line;
+            while ((line = lines.readLine()) != null) {
+                reader.line(line);
+            }
+        }
+        return true;
     }
 
     /**
-     * Closes the Thread
+     * Long polls the updates of a game until the executor is shut down
+     * Used when the server has no event streams
+     */
+    private void pollUpdates(ExecutorService exec, int id, Consumer<GameUpdatesPacket> consumer) {
+        try {
+            exec.submit(() -> {
+                while (!Thread.interrupted()) {
+                    var res = ClientBuilder.newClient(new ClientConfig())
+                            .target(serverURL).path("api/poll/update/" + id)
+                            .request(APPLICATION_JSON) //
+                            .accept(APPLICATION_JSON) //
+                            .get(Response.class);
+                    if (res.getStatus() == 204){
+                        continue;
+                    }
+                    var c = res.readEntity(GameUpdatesPacket.class);
+                    consumer.accept(c);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // stopped already
+        }
+    }
+
+    /**
+     * Gets the URL of the WebSocket of a game
+     * @param serverURL URL of the server
+     * @param id ID of the game
+     * @return ws (or wss) URL of the updates of the game
+     */
+    static String socketURL(String serverURL, int id) {
+        String url = serverURL.endsWith("/") ? serverURL : serverURL + "/";
+        return url.replaceFirst("^http", "ws") + "api/updates/" + id;
+    }
+
+    /**
+     * Gets the URL of the event stream of a game
+     * @param serverURL URL of the server
+     * @param id ID of the game
+     * @return URL of the server-sent events of the game
+     */
+    static String eventsURL(String serverURL, int id) {
+        return (serverURL.endsWith("/") ? serverURL : serverURL + "/") + "api/poll/events/" + id;
+    }
+
+    /**
+     * Closes the Thread and the WebSocket
      */
     public void stop() {
+        GameUpdateListener listener = socketListener;
+        if (listener != null) {
+            listener.closing();
+        }
+        WebSocket ws = socket;
+        socket = null;
+        if (ws != null) {
+            ws.sendClose(WebSocket.NORMAL_CLOSURE, "");
+        }
         EXEC.shutdownNow();
     }
 
     /**
-     * Used to send your score to the Server Multplayer Game Object
+     * Sends the answer of the player to the current question of a multiplayer game
+     * The server adds the points once the question closes, the new scores come with the leaderboard
      *
-     * @param player player object containing name and score
-     * @return the Player that has been posted
-     * dont know why this returns anything
+     * @param answer what the player answered
+     * @param id ID of the game
+     * @return true if the answer was recorded, false if the question was closed already
      */
-    public Player postScore(Player player, int id) {
+    public Boolean postAnswer(Answer answer, int id) {
         return ClientBuilder.newClient(new ClientConfig()) //
-                .target(serverURL).path("api/poll/send-score/" + id) //
+                .target(serverURL).path("api/poll/send-answer/" + id) //
                 .request(APPLICATION_JSON) //
                 .accept(APPLICATION_JSON) //
-                .post(Entity.entity(player, APPLICATION_JSON), Player.class);
+                .post(Entity.entity(answer, APPLICATION_JSON), Boolean.class);
     }
 
     /**
-     * When the toilet is flushed we get the whole game object where
-     * we take the questions and players from
-     * this should only be done once at the start
+     * Gets the whole multiplayer game, with its questions and players
+     * Only needed once at the start, the updates of the game come with the update packets
      *
+     * @param id ID of the game
      * @return instance of multiplayer game
      */
     public MultiPlayerGame getMultiplayerGame(int id) {
@@ -178,15 +416,14 @@ public class ServerUtils {
     }
 
     /**
-     * When the toilet is flushed we get the whole game object where
-     * we take the questions and players from
-     * this should only be done once at the start
+     * Starts the game of the waiting room the player is in
      *
-     * @return instance of multiplayer game
+     * @param id ID of the waiting room the player is in
+     * @return true if the game was started, false if its questions aren't ready yet
      */
-    public boolean startMultiplayer() {
+    public boolean startMultiplayer(int id) {
         return ClientBuilder.newClient(new ClientConfig()) //
-                .target(serverURL).path("api/poll/start-multiplayer")
+                .target(serverURL).path("api/poll/start-multiplayer/" + id)
                 .request(APPLICATION_JSON) //
                 .accept(APPLICATION_JSON) //
                 .get(new GenericType<>() {
@@ -194,13 +431,14 @@ public class ServerUtils {
     }
 
     /**
-     * Gets all players in the waitingroom
+     * Gets the players who joined a waiting room
      *
-     * @return list of players
+     * @param id ID of the waiting room
+     * @return list of players waiting for the game to start, empty if it started already
      */
-    public List<Player> getPlayersInWaitingRoom(){
+    public List<Player> getPlayersInWaitingRoom(int id){
         return ClientBuilder.newClient(new ClientConfig()) //
-                .target(serverURL).path("api/waiting-room/all-players")
+                .target(serverURL).path("api/waiting-room/all-players/" + id)
                 .request(APPLICATION_JSON) //
                 .accept(APPLICATION_JSON) //
                 .get(new GenericType<>() {
@@ -0,0 +1,57 @@
+package client.utils;
+
+import commons.GameUpdatesPacket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameEventReaderTest {
+
+    private List<GameUpdatesPacket> updates;
+    private GameEventReader reader;
+
+    /**
+     * Creates a reader collecting the updates
+     */
+    @BeforeEach
+    void setup() {
+        updates = new ArrayList<>();
+        reader = new GameEventReader(updates::add);
+    }
+
+    private void read(String... lines) {
+        for (String line : lines) {
+            reader.line(line);
+        }
+    }
+
+    /**
+     * Events are read once they end, heartbeats are skipped
+     */
+    @Test
+    void eventTest() {
+        read("id:4", "event:update", "data:{\"hashListPlayers\":1,");
+        assertTrue(updates.isEmpty());
+        read("data: \"currentScreen\":\"QUESTION\",\"questionNumber\":2}", "", ":heartbeat", "");
+
+        assertEquals(List.of(new GameUpdatesPacket(1, "QUESTION", 2)), updates);
+        assertEquals("4", reader.getLastEventId());
+    }
+
+    /**
+     * Last event ID is kept for resuming, also over events which can't be read
+     */
+    @Test
+    void lastEventIdTest() {
+        assertNull(reader.getLastEventId());
+        read("id: 7", "data:not json", "");
+        read("data:{}", "");
+
+        assertEquals("7", reader.getLastEventId());
+        assertEquals(List.of(new GameUpdatesPacket()), updates);
+    }
+}
@@ -0,0 +1,61 @@
+package client.utils;
+
+import commons.GameUpdatesPacket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameUpdateListenerTest {
+
+    private List<GameUpdatesPacket> updates;
+    private AtomicInteger lost;
+    private GameUpdateListener listener;
+    private WebSocket socket;
+
+    /**
+     * Creates a listener on a WebSocket which does nothing
+     */
+    @BeforeEach
+    void setup() {
+        updates = new ArrayList<>();
+        lost = new AtomicInteger();
+        listener = new GameUpdateListener(updates::add, lost::incrementAndGet);
+        socket = (WebSocket) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {WebSocket.class},
+            (proxy, method, args) -> null);
+    }
+
+    /**
+     * Updates sent in several parts are read once they are complete
+     */
+    @Test
+    void onTextTest() {
+        listener.onText(socket, "{\"hashListPlayers\":1,\"currentScreen\":", false);
+        assertTrue(updates.isEmpty());
+        listener.onText(socket, "\"QUESTION\",\"questionNumber\":2}", true);
+        listener.onText(socket, "not json", true);
+
+        assertEquals(List.of(new GameUpdatesPacket(1, "QUESTION", 2)), updates);
+    }
+
+    /**
+     * Lost connection falls back once, closing it on purpose doesn't
+     */
+    @Test
+    void lostTest() {
+        listener.onError(socket, new RuntimeException());
+        listener.onClose(socket, WebSocket.NORMAL_CLOSURE, "");
+        assertEquals(1, lost.get());
+
+        GameUpdateListener closed = new GameUpdateListener(updates::add, lost::incrementAndGet);
+        closed.closing();
+        closed.onClose(socket, WebSocket.NORMAL_CLOSURE, "");
+        assertEquals(1, lost.get());
+    }
+}
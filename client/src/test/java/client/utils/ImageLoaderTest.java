@@ -0,0 +1,20 @@
+package client.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageLoaderTest {
+
+    /**
+     * Sizes are rounded up, so boxes of about the same size share their images
+     */
+    @Test
+    void keyTest() {
+        assertEquals("1@64", ImageLoader.key("1", 0));
+        assertEquals("1@64", ImageLoader.key("1", 64));
+        assertEquals("1@256", ImageLoader.key("1", 200));
+        assertEquals("1@256", ImageLoader.key("1", 250));
+        assertNotEquals(ImageLoader.key("1", 200), ImageLoader.key("2", 200));
+    }
+}
@@ -0,0 +1,51 @@
+package client.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+
+    /**
+     * Least recently used values are removed once the budget is exceeded
+     */
+    @Test
+    void evictionTest() {
+        LruCache<String, String> cache = new LruCache<>(10, String::length);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.get("a"); // b is now the least recently used
+        cache.put("c", "cccc");
+
+        assertNull(cache.get("b"));
+        assertEquals("aaaa", cache.get("a"));
+        assertEquals("cccc", cache.get("c"));
+        assertEquals(8, cache.getWeight());
+        assertEquals(2, cache.size());
+    }
+
+    /**
+     * Replacing a value updates the weight
+     */
+    @Test
+    void replaceTest() {
+        LruCache<String, String> cache = new LruCache<>(10, String::length);
+        cache.put("a", "aaaa");
+        cache.put("a", "aa");
+
+        assertEquals("aa", cache.get("a"));
+        assertEquals(2, cache.getWeight());
+    }
+
+    /**
+     * Values heavier than the budget aren't cached
+     */
+    @Test
+    void tooHeavyTest() {
+        LruCache<String, String> cache = new LruCache<>(3, String::length);
+        cache.put("a", "aaaa");
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getWeight());
+    }
+}
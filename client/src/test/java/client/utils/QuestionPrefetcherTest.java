@@ -0,0 +1,176 @@
+package client.utils;
+
+import commons.Activity;
+import commons.questions.EstimationQuestion;
+import commons.questions.Question;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionPrefetcherTest {
+
+    private int fetched;
+    private int decks;
+    private List<Question> preloaded;
+    private List<Runnable> tasks; // background fetches, run by the test
+    private QuestionPrefetcher prefetcher;
+
+    @BeforeEach
+    void setup() {
+        fetched = 0;
+        decks = 0;
+        preloaded = new ArrayList<>();
+        tasks = new ArrayList<>();
+        prefetcher = new QuestionPrefetcher(this::fetch, this::fetchDeck, preloaded::add, tasks::add);
+    }
+
+    private Question fetch() {
+        fetched++;
+        return question(String.valueOf(fetched));
+    }
+
+    private List<Question> fetchDeck(int n) {
+        decks++;
+        List<Question> deck = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            deck.add(question("d" + i));
+        }
+        return deck;
+    }
+
+    private static Question question(String id) {
+        return new EstimationQuestion(new Activity(id, null, "a", 1L, "a"));
+    }
+
+    private void runTasks() {
+        List<Runnable> run = new ArrayList<>(tasks);
+        tasks.clear();
+        run.forEach(Runnable::run);
+    }
+
+    /**
+     * Depth questions are fetched in the background and their images are loaded
+     */
+    @Test
+    void startTest() {
+        prefetcher.start(2, 0);
+        assertEquals(2, tasks.size());
+        assertEquals(0, fetched);
+
+        runTasks();
+        assertEquals(2, prefetcher.getReady());
+        assertTrue(preloaded.size() >= 2);
+    }
+
+    /**
+     * Taking a ready question doesn't fetch, it starts a fetch to replace it
+     */
+    @Test
+    void nextTest() {
+        prefetcher.start(2, 0);
+        runTasks();
+
+        Question q = prefetcher.next();
+        assertEquals("1", ((EstimationQuestion) q).getActivity().getId());
+        assertEquals(2, fetched);
+        assertEquals(1, tasks.size());
+        runTasks();
+        assertEquals(2, prefetcher.getReady());
+    }
+
+    /**
+     * Question is fetched on the calling thread if none is ready
+     */
+    @Test
+    void nextNotReadyTest() {
+        prefetcher.start(1, 0);
+
+        assertNotNull(prefetcher.next());
+        assertEquals(1, fetched);
+        assertEquals(1, tasks.size()); // the first background fetch is still running
+    }
+
+    /**
+     * The deck is fetched in one request, single questions only once it is used up
+     */
+    @Test
+    void deckTest() {
+        prefetcher.start(2, 3);
+        assertEquals(1, tasks.size());
+        runTasks();
+
+        assertEquals(1, decks);
+        assertEquals(0, fetched);
+        assertEquals(3, prefetcher.getReady());
+        assertEquals("d0", ((EstimationQuestion) prefetcher.next()).getActivity().getId());
+        assertTrue(tasks.isEmpty()); // 2 deck questions are still ready
+        prefetcher.next();
+        prefetcher.next();
+        runTasks();
+        assertEquals(2, fetched);
+        assertEquals(2, prefetcher.getReady());
+    }
+
+    /**
+     * Single questions are fetched if the server couldn't build the deck, nothing is fetched while it is coming
+     */
+    @Test
+    void deckFailureTest() {
+        prefetcher = new QuestionPrefetcher(this::fetch, n -> {
+            throw new RuntimeException("no deck");
+        }, preloaded::add, tasks::add);
+        prefetcher.start(2, 3);
+        assertEquals(1, tasks.size());
+        runTasks();
+
+        assertEquals(2, tasks.size());
+        runTasks();
+        assertEquals(2, prefetcher.getReady());
+    }
+
+    /**
+     * Questions repeating one of the game are dropped
+     */
+    @Test
+    void repeatTest() {
+        prefetcher = new QuestionPrefetcher(() -> question("d0"), this::fetchDeck, preloaded::add, tasks::add);
+        prefetcher.start(2, 1);
+        runTasks();
+        prefetcher.next();
+        runTasks();
+
+        assertEquals(0, prefetcher.getReady());
+    }
+
+    /**
+     * Fetches which finish after the game stopped are dropped
+     */
+    @Test
+    void stopTest() {
+        prefetcher.start(2, 0);
+        prefetcher.stop();
+        runTasks();
+
+        assertEquals(0, prefetcher.getReady());
+        assertTrue(preloaded.isEmpty());
+    }
+
+    /**
+     * Failed background fetches leave no question ready, next() then fetches on the calling thread
+     */
+    @Test
+    void failureTest() {
+        prefetcher = new QuestionPrefetcher(() -> {
+            throw new RuntimeException("offline");
+        }, this::fetchDeck, preloaded::add, tasks::add);
+        prefetcher.start(1, 0);
+        runTasks();
+
+        assertEquals(0, prefetcher.getReady());
+        assertThrows(RuntimeException.class, prefetcher::next);
+    }
+}
@@ -27,4 +27,21 @@ class ServerUtilsTest {
         s.setServerURL("");
         assertEquals(ServerUtils.getDefaultURL(), s.getServerURL());
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests the URL of the WebSocket of a game
+     */
+    @Test
+    void socketURL() {
+        assertEquals("ws://localhost:8080/api/updates/3", ServerUtils.socketURL("http://localhost:8080/", 3));
+        assertEquals("wss://quiz.example/api/updates/0", ServerUtils.socketURL("https://quiz.example", 0));
+    }
+
+    /**
+     * Tests the URL of the event stream of a game
+     */
+    @Test
+    void eventsURL() {
+        assertEquals("http://localhost:8080/api/poll/events/3", ServerUtils.eventsURL("http://localhost:8080", 3));
+    }
+}
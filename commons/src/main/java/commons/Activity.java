@@ -78,6 +78,17 @@ public class Activity {
      * @param imageFile image file to use.
      */
     public void initializeImage(File imageFile) {
+        this.image = encodeImage(imageFile);
+    }
+
+    /**
+     * Reads an image file and encodes it as png
+     * The server caches the result, so the same file isn't decoded again for every question
+     *
+     * @param imageFile image file to use
+     * @return png bytes of the image, null if the image couldn't be read
+     */
+    public static byte[] encodeImage(File imageFile) {
         try {
             // Reads the image from the file to a BufferedImage
             BufferedImage img = ImageIO.read(imageFile);
@@ -85,10 +96,10 @@ public class Activity {
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             // Writes the image to the output stream. Sending the image gives an error (because it's inefficient and shouldn't be done)
             ImageIO.write(img, "png", outputStream); // jpg would be faster but png supports transparency
-            this.image = outputStream.toByteArray();
+            return outputStream.toByteArray();
         } catch (IOException | IllegalArgumentException e) { // Catches an error if an image couldn't be found
             System.err.println("Couldn't find picture at " + imageFile.toString());
-            this.image = null;
+            return null;
         }
     }
 
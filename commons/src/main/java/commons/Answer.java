@@ -0,0 +1,105 @@
+package commons;
+
+import commons.questions.ComparativeQuestion;
+import commons.questions.EqualityQuestion;
+import commons.questions.EstimationQuestion;
+import commons.questions.MCQuestion;
+import commons.questions.Question;
+import lombok.Data;
+
+/**
+ * Answer of a player to one question of a multiplayer game
+ *
+ * The client only sends what the player did, the server checks it against the question
+ * and adds the points once the question closes. The server also checks the time and the joker,
+ * see GameActor.answer.
+ */
+@Data
+public class Answer {
+
+    private String name;        // name of the player
+    private int questionNumber; // number of the question in the game
+    private int option = -1;    // index of the chosen answer, -1 if none was chosen
+    private Long estimate;      // guessed consumption of an estimation question, null for the other questions
+    private int elapsed;        // seconds it took to answer, corrected by the server
+    private boolean doublePoints; // joker "double points" used for this question, once per game on the server
+
+    /**
+     * Empty constructor
+     * Used by Jackson to create object from JSON
+     */
+    public Answer() {
+    }
+
+    /**
+     * Answer choosing one of the options of a question
+     * @param name name of the player
+     * @param questionNumber number of the question
+     * @param option index of the chosen answer
+     * @param elapsed seconds it took to answer
+     */
+    public Answer(String name, int questionNumber, int option, int elapsed) {
+        this.name = name;
+        this.questionNumber = questionNumber;
+        this.option = option;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Answer to an estimation question
+     * @param name name of the player
+     * @param questionNumber number of the question
+     * @param estimate guessed consumption in Wh
+     * @param elapsed seconds it took to answer
+     */
+    public Answer(String name, int questionNumber, long estimate, int elapsed) {
+        this.name = name;
+        this.questionNumber = questionNumber;
+        this.estimate = estimate;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Gets the time to score this answer with, see MultiPlayerGame.addPointsForPlayer
+     * @param question the question answered
+     * @return seconds it took to answer, -1 if the answer is wrong
+     */
+    public int timeWhenAnswered(Question question) {
+        return rate(question) > 0 ? Math.max(elapsed, 0) : -1;
+    }
+
+    /**
+     * Gets the rate to score this answer with, see MultiPlayerGame.addPointsForPlayer
+     * An estimate within 40% to 180% of the consumption gets the share it is off by subtracted
+     * @param question the question answered
+     * @return 1.0 for a right answer, the accuracy of an estimate, 0 if the answer is wrong, doubled by the joker
+     */
+    public double rate(Question question) {
+        double rate = 0;
+        if (question instanceof EstimationQuestion) {
+            rate = accuracy(((EstimationQuestion) question).getActivity().getConsumption_in_wh());
+        } else if (option >= 0 && option == correctAnswer(question)) {
+            rate = 1.0;
+        }
+        return doublePoints ? 2 * rate : rate;
+    }
+
+    private double accuracy(long consumption) {
+        if (estimate == null || consumption <= 0 || estimate > consumption * 1.8 || estimate < consumption * 0.4) {
+            return 0;
+        }
+        double accuracy = (double) estimate / consumption;
+        return accuracy > 1 ? 2 - accuracy : accuracy;
+    }
+
+    private static int correctAnswer(Question question) {
+        if (question instanceof ComparativeQuestion) {
+            return ((ComparativeQuestion) question).getCorrect_answer();
+        } else if (question instanceof MCQuestion) {
+            return ((MCQuestion) question).getCorrect_answer();
+        } else if (question instanceof EqualityQuestion) {
+            return ((EqualityQuestion) question).getCorrect_answer();
+        }
+        return -1;
+    }
+}
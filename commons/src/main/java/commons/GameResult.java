@@ -0,0 +1,49 @@
+package commons;
+
+import lombok.Data;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+
+/**
+ * Final result of one player in a finished multiplayer game, archived in the database
+ */
+@Data
+@Entity
+public class GameResult {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    private int gameId;
+    private String playerName;
+    private int score;
+    private int place;    // 1 for the highest score of the game
+    private long endedAt; // time the game ended, in milliseconds since the epoch
+
+    /**
+     * Empty constructor
+     * Used by JPA and Jackson to create the object
+     */
+    public GameResult() {
+    }
+
+    /**
+     * Constructor with all parameters except the generated ID
+     * @param gameId ID of the game
+     * @param playerName name of the player
+     * @param score final score of the player
+     * @param place place of the player in the game
+     * @param endedAt time the game ended
+     */
+    public GameResult(int gameId, String playerName, int score, int place, long endedAt) {
+        this.gameId = gameId;
+        this.playerName = playerName;
+        this.score = score;
+        this.place = place;
+        this.endedAt = endedAt;
+    }
+}
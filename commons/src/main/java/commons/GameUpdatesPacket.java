@@ -1,13 +1,26 @@
 package commons;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
+import java.util.List;
+
+/**
+ * Update of a multiplayer game (or waiting room), pushed to its clients
+ *
+ * Every update of a game gets the next version, a client which got version v applies the changes
+ * of version v + 1 to its players. If it missed a version, or gets a full status (no changes),
+ * it fetches the players again instead.
+ */
 @Data
 public class GameUpdatesPacket {
 
-    int hashListPlayers;
+    int hashListPlayers; // kept for clients which don't follow the versions
     String currentScreen;
     int questionNumber;
+    long version; // increases by one with every update of the game, 0 before the first one
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    List<PlayerChange> changes; // changes of the players since the previous version, null in a full status
 
     /**
      * Empty constructor
@@ -27,4 +40,24 @@ public class GameUpdatesPacket {
         this.currentScreen = currentScreen;
         this.questionNumber = questionNumber;
     }
+
+    /**
+     * Copies this update without its changes
+     * Sent instead of updates a client would miss, a client getting it fetches the players again
+     * @return full status of the game at the version of this update
+     */
+    public GameUpdatesPacket fullStatus() {
+        GameUpdatesPacket status = new GameUpdatesPacket(hashListPlayers, currentScreen, questionNumber);
+        status.setVersion(version);
+        return status;
+    }
+
+    /**
+     * Checks whether the changes of this update can be applied on top of a version
+     * @param previous version the client has
+     * @return true if this is the next version and has its changes, false if the client has to resync
+     */
+    public boolean follows(long previous) {
+        return changes != null && version == previous + 1;
+    }
 }
@@ -2,10 +2,18 @@ package commons;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import commons.questions.Question;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Multiplayer game class
@@ -17,7 +25,15 @@ public class MultiPlayerGame {
 
     private int gameID;
     private List<Player> players;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient Map<String, Player> playersByName; // players by their name, for finding a player without a scan
     private List<Question> questions;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient Set<String> questionKeys; // keys of the questions, for finding duplicates without equals
     private int questionNumber = -1;
 
     // for synchronization of client with server
@@ -48,11 +64,66 @@ public class MultiPlayerGame {
      * @return true if question was added, false otherwise
      */
     public boolean addQuestion(Question question){
-        if(questions.contains(question) || question == null)
+        if(question == null || !questionKeys().add(question.key()))
             return false;
         return questions.add(question);
     }
 
+    /**
+     * Sets the list of questions
+     * @param questions new list of questions
+     */
+    public void setQuestions(List<Question> questions) {
+        this.questions = questions;
+        this.questionKeys = null;
+    }
+
+    /**
+     * Sets the list of players
+     * @param players new list of players
+     */
+    public void setPlayers(List<Player> players) {
+        this.players = players;
+        this.playersByName = null;
+    }
+
+    /**
+     * Gets the players by their name
+     * Rebuilt if the list was changed without removePlayer
+     * @return map from the name of a player to the player
+     */
+    private Map<String, Player> playersByName() {
+        if (playersByName == null || playersByName.size() != players.size()) {
+            Map<String, Player> index = new ConcurrentHashMap<>();
+            for (Player p : players) {
+                index.put(p.getName(), p);
+            }
+            playersByName = index;
+        }
+        return playersByName;
+    }
+
+    /**
+     * Finds a player of the game by name, which is unique in a game
+     * @param name name of the player
+     * @return the player, null if there is no player with that name
+     */
+    public Player getPlayer(String name) {
+        return name == null || players == null ? null : playersByName().get(name);
+    }
+
+    /**
+     * Gets the keys of the questions in the list
+     * Rebuilt if the list was changed without addQuestion
+     * @return set of question keys
+     */
+    private Set<String> questionKeys() {
+        if (questionKeys == null || questionKeys.size() != questions.size()) {
+            questionKeys = Question.keys(questions);
+        }
+        return questionKeys;
+    }
+
     /**
      * This method is used in case a player leaves the game
      * and the player list has to reflect this change
@@ -62,7 +133,13 @@ public class MultiPlayerGame {
      *          the player was not in the player list
      */
     public boolean removePlayer(Player player) {
-        return this.players.remove(player);
+        if (!this.players.remove(player)) {
+            return false;
+        }
+        if (playersByName != null) {
+            playersByName.remove(player.getName());
+        }
+        return true;
     }
 
     /**
@@ -79,6 +156,34 @@ public class MultiPlayerGame {
         }
     }
 
+    /**
+     * Adds the points of the answers to the current question in one pass over the players
+     * Players who didn't answer lose their streak, like players who answered wrongly
+     * @param answers answers to the current question by the name of the player, answers to other questions are ignored
+     * @return the players whose score changed
+     */
+    public List<Player> addPointsForAnswers(Map<String, Answer> answers) {
+        List<Player> scored = new ArrayList<>();
+        if (questionNumber < 0 || questionNumber >= questions.size()) {
+            return scored;
+        }
+        Question question = questions.get(questionNumber);
+        for (Player p : players) {
+            Answer answer = answers.get(p.getName());
+            if (answer == null || answer.getQuestionNumber() != questionNumber) {
+                p.resetStreak();
+                continue;
+            }
+            if (p.getScore() == null) { // null if the player came from JSON without a score
+                p.setScore(0);
+            }
+            if (addPointsForPlayer(answer.timeWhenAnswered(question), answer.rate(question), p) > 0) {
+                scored.add(p);
+            }
+        }
+        return scored;
+    }
+
     /**
      * This method adds points to a score of a player
      * A particular formula for the points has been developed.
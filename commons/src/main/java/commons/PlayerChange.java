@@ -0,0 +1,106 @@
+package commons;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One change of the players of a game or waiting room, sent with the GameUpdatesPacket it happened before
+ *
+ * Players are found by their name, which is unique in a game. A score change holds the new score
+ * instead of the points added, so applying a change twice (e.g. after a full resync) changes nothing.
+ */
+@Data
+public class PlayerChange {
+
+    /**
+     * Kind of change
+     */
+    public enum Type { JOIN, LEAVE, SCORE }
+
+    private Type type;
+    private String name;
+    private int score;
+
+    /**
+     * Empty constructor
+     * Used by Jackson to create object from JSON
+     */
+    public PlayerChange() {
+    }
+
+    /**
+     * Constructor with all parameters
+     * @param type kind of change
+     * @param name name of the player
+     * @param score score of the player after the change
+     */
+    public PlayerChange(Type type, String name, int score) {
+        this.type = type;
+        this.name = name;
+        this.score = score;
+    }
+
+    /**
+     * Change of a player joining
+     * @param player the player
+     * @return JOIN change
+     */
+    public static PlayerChange joined(Player player) {
+        return new PlayerChange(Type.JOIN, player.getName(), scoreOf(player));
+    }
+
+    /**
+     * Change of a player leaving
+     * @param player the player
+     * @return LEAVE change
+     */
+    public static PlayerChange left(Player player) {
+        return new PlayerChange(Type.LEAVE, player.getName(), scoreOf(player));
+    }
+
+    /**
+     * Change of the score of a player
+     * @param player the player, with its new score
+     * @return SCORE change
+     */
+    public static PlayerChange scored(Player player) {
+        return new PlayerChange(Type.SCORE, player.getName(), scoreOf(player));
+    }
+
+    private static int scoreOf(Player player) {
+        return player.getScore() == null ? 0 : player.getScore();
+    }
+
+    /**
+     * Applies changes to a list of players, in order
+     * @param players players of the game, changed in place
+     * @param changes changes to apply
+     */
+    public static void apply(List<Player> players, List<PlayerChange> changes) {
+        for (PlayerChange c : changes) {
+            c.apply(players);
+        }
+    }
+
+    /**
+     * Applies this change to a list of players
+     * @param players players of the game, changed in place
+     */
+    public void apply(List<Player> players) {
+        Player player = null;
+        for (Player p : players) {
+            if (p.getName().equals(name)) {
+                player = p;
+                break;
+            }
+        }
+        if (type == Type.LEAVE) {
+            players.remove(player);
+        } else if (player == null) { // a score of a player we don't know yet adds it as well
+            players.add(new Player(name, score));
+        } else if (type == Type.SCORE) {
+            player.setScore(score);
+        }
+    }
+}
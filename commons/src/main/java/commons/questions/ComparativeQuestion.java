@@ -36,6 +36,24 @@ public class ComparativeQuestion implements Question{
         this.correct_answer = generateCorrectAnswer();
     }
 
+    /**
+     * Key of the question, the order of the activities doesn't matter
+     * @return "comparative", most or least and the IDs of the activities
+     */
+    @Override
+    public String key() {
+        return "comparative:" + (isMost ? "most:" : "least:") + Question.sortedIds(activities);
+    }
+
+    /**
+     * Activities of the question
+     * @return the activities to compare
+     */
+    @Override
+    public List<Activity> activities() {
+        return Question.present(activities);
+    }
+
     private int generateCorrectAnswer() {
         if(activities == null || activities.size() <= 0){
             return -1;
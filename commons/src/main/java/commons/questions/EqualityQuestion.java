@@ -37,4 +37,22 @@ public class EqualityQuestion implements Question {
         this.activities.add(correct_answer, correct);
     }
 
+    /**
+     * Key of the question, the order of the answers doesn't matter
+     * @return "equality", the ID of chosen and the IDs of the answers
+     */
+    @Override
+    public String key() {
+        return "equality:" + (chosen == null ? null : chosen.getId()) + ":" + Question.sortedIds(activities);
+    }
+
+    /**
+     * Activities of the question
+     * @return the answers, then the chosen activity
+     */
+    @Override
+    public List<Activity> activities() {
+        return Question.present(activities, chosen);
+    }
+
 }
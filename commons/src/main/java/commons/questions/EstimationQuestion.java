@@ -3,6 +3,8 @@ package commons.questions;
 import commons.Activity;
 import lombok.*;
 
+import java.util.List;
+
 @Data
 /**
  * Class for estimation questions. A player is supposed to estimate which question uses similar
@@ -24,4 +26,22 @@ public class EstimationQuestion implements Question {
     public EstimationQuestion(Activity activity) {
         this.activity = activity;
     }
+
+    /**
+     * Key of the question
+     * @return "estimation" and the ID of the activity
+     */
+    @Override
+    public String key() {
+        return "estimation:" + (activity == null ? null : activity.getId());
+    }
+
+    /**
+     * Activities of the question
+     * @return the activity whose consumption is estimated
+     */
+    @Override
+    public List<Activity> activities() {
+        return Question.present(null, activity);
+    }
 }
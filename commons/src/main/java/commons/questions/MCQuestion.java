@@ -37,4 +37,22 @@ public class MCQuestion implements Question {
 
         this.correct_answer = this.options.indexOf(activity.getConsumption_in_wh());
     }
+
+    /**
+     * Key of the question
+     * @return "mc", the ID of the activity and the options
+     */
+    @Override
+    public String key() {
+        return "mc:" + (activity == null ? null : activity.getId()) + ":" + options;
+    }
+
+    /**
+     * Activities of the question
+     * @return the activity whose consumption is asked
+     */
+    @Override
+    public List<Activity> activities() {
+        return Question.present(null, activity);
+    }
 }
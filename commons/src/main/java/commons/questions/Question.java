@@ -2,6 +2,15 @@ package commons.questions;
 
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import commons.Activity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 @JsonTypeInfo(use = JsonTypeInfo.Id.CLASS)
 @JsonSubTypes({
@@ -9,4 +18,71 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
     @JsonSubTypes.Type(value = EstimationQuestion.class),
 })
 public interface Question {
+
+    /**
+     * Compact key of the question: its type, the sorted IDs of its activities and its variant
+     * Questions with the same key ask the same thing, so duplicates can be found with a hash set
+     * instead of comparing whole activities (including their images)
+     *
+     * @return key of the question
+     */
+    String key();
+
+    /**
+     * Gets the activities the question is about, e.g. to load their images
+     * or to keep them out of the other questions of a deck
+     *
+     * @return activities of the question, without missing ones
+     */
+    List<Activity> activities();
+
+    /**
+     * Collects the keys of a list of questions
+     * @param questions list of questions, can be null
+     * @return set with the key of every question in the list
+     */
+    static Set<String> keys(List<Question> questions) {
+        Set<String> keys = new HashSet<>();
+        if (questions != null) {
+            for (Question q : questions) {
+                if (q != null) {
+                    keys.add(q.key());
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Collects the activities of a question, leaving out the missing ones
+     * @param activities list of activities, can be null
+     * @param more single activities, can be null
+     * @return list of the activities which aren't null
+     */
+    static List<Activity> present(List<Activity> activities, Activity... more) {
+        List<Activity> present = new ArrayList<>();
+        if (activities != null) {
+            present.addAll(activities);
+        }
+        present.addAll(Arrays.asList(more));
+        present.removeIf(Objects::isNull);
+        return present;
+    }
+
+    /**
+     * Joins the IDs of the activities in sorted order
+     * @param activities activities of a question, can be null
+     * @return comma separated IDs
+     */
+    static String sortedIds(List<Activity> activities) {
+        if (activities == null) {
+            return "";
+        }
+        List<String> ids = new ArrayList<>(activities.size());
+        for (Activity a : activities) {
+            ids.add(a == null ? null : a.getId());
+        }
+        ids.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+        return String.join(",", ids);
+    }
 }
@@ -0,0 +1,54 @@
+package commons;
+
+import commons.questions.ComparativeQuestion;
+import commons.questions.EstimationQuestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnswerTest {
+
+    private final ComparativeQuestion comparative = new ComparativeQuestion(List.of(
+        new Activity("1", "image_a", "a", 1L, "a"),
+        new Activity("2", "image_b", "b", 3L, "b"),
+        new Activity("3", "image_c", "c", 2L, "c")), true);
+    private final EstimationQuestion estimation = new EstimationQuestion(new Activity("4", "image_d", "d", 100L, "d"));
+
+    /**
+     * The right option is scored with the time it took, a wrong or missing option as not answered
+     */
+    @Test
+    public void optionTest() {
+        assertEquals(1.0, new Answer("a", 0, 1, 4).rate(comparative));
+        assertEquals(4, new Answer("a", 0, 1, 4).timeWhenAnswered(comparative));
+        assertEquals(0, new Answer("a", 0, 2, 4).rate(comparative));
+        assertEquals(-1, new Answer("a", 0, 2, 4).timeWhenAnswered(comparative));
+        assertEquals(-1, new Answer().timeWhenAnswered(comparative));
+        assertEquals(0, new Answer("a", 0, 1, -3).timeWhenAnswered(comparative)); // can't answer before the question
+    }
+
+    /**
+     * An estimate gets its accuracy, and nothing if it is too far off
+     */
+    @Test
+    public void estimateTest() {
+        assertEquals(0.8, new Answer("a", 0, 80L, 2).rate(estimation), 1e-9);
+        assertEquals(0.5, new Answer("a", 0, 150L, 2).rate(estimation), 1e-9);
+        assertEquals(2, new Answer("a", 0, 150L, 2).timeWhenAnswered(estimation));
+        assertEquals(0, new Answer("a", 0, 30L, 2).rate(estimation));
+        assertEquals(-1, new Answer("a", 0, 200L, 2).timeWhenAnswered(estimation));
+        assertEquals(0, new Answer("a", 0, 1, 2).rate(estimation)); // an option doesn't answer an estimation
+    }
+
+    /**
+     * The double points joker doubles the rate
+     */
+    @Test
+    public void doublePointsTest() {
+        Answer answer = new Answer("a", 0, 80L, 2);
+        answer.setDoublePoints(true);
+        assertEquals(1.6, answer.rate(estimation), 1e-9);
+    }
+}
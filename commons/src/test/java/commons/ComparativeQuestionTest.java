@@ -5,6 +5,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,6 +27,20 @@ class ComparativeQuestionTest {
         );
     }
 
+    /**
+     * Key doesn't depend on the order of the activities, but on most or least
+     */
+    @Test
+    void keyTest() {
+        ComparativeQuestion q = new ComparativeQuestion(activities, true);
+        List<Activity> reversed = new ArrayList<>(activities);
+        Collections.reverse(reversed);
+
+        assertEquals("comparative:most:1,2,3", q.key());
+        assertEquals(q.key(), new ComparativeQuestion(reversed, true).key());
+        assertNotEquals(q.key(), new ComparativeQuestion(activities, false).key());
+    }
+
     @Test
     void noArgsConstructorTest(){
         ComparativeQuestion q = new ComparativeQuestion();
@@ -87,4 +102,13 @@ class ComparativeQuestionTest {
         ComparativeQuestion q = new ComparativeQuestion(List.of(activities.get(0)), true);
         assertEquals(0, q.getCorrect_answer());
     }
-}
\ No newline at end of file
+
+    /**
+     * The activities to compare are the activities of the question
+     */
+    @Test
+    void activitiesTest() {
+        assertEquals(activities, new ComparativeQuestion(activities, true).activities());
+        assertEquals(List.of(), new ComparativeQuestion().activities());
+    }
+}
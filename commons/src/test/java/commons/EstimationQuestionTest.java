@@ -3,6 +3,8 @@ package commons;
 import commons.questions.EstimationQuestion;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class EstimationQuestionTest {
@@ -18,4 +20,14 @@ class EstimationQuestionTest {
         EstimationQuestion q = new EstimationQuestion(new Activity());
         assertNotNull(q);
     }
-}
\ No newline at end of file
+
+    /**
+     * The activity is the only one of the question, a missing one is left out
+     */
+    @Test
+    void activitiesTest() {
+        Activity a = new Activity("1", null, "a", 1L, "a");
+        assertEquals(List.of(a), new EstimationQuestion(a).activities());
+        assertEquals(List.of(), new EstimationQuestion().activities());
+    }
+}
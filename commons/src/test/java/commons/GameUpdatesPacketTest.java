@@ -2,6 +2,8 @@ package commons;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class GameUpdatesPacketTest {
@@ -17,4 +19,18 @@ class GameUpdatesPacketTest {
         GameUpdatesPacket g = new GameUpdatesPacket(1, "LOADING SCREEN", 3);
         assertNotNull(g);
     }
-}
\ No newline at end of file
+
+    @Test
+    void fullStatusTest() {
+        GameUpdatesPacket g = new GameUpdatesPacket(1, "QUESTION", 3);
+        g.setVersion(7);
+        g.setChanges(List.of(PlayerChange.joined(new Player("a"))));
+        GameUpdatesPacket status = g.fullStatus();
+
+        assertNull(status.getChanges());
+        assertEquals(7, status.getVersion());
+        assertEquals("QUESTION", status.getCurrentScreen());
+        assertFalse(status.follows(6)); // makes the client fetch the players
+        assertEquals(1, g.getChanges().size());
+    }
+}
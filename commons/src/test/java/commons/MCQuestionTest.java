@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 public class MCQuestionTest {
@@ -36,4 +37,13 @@ public class MCQuestionTest {
         MCQuestion q = new MCQuestion(activities.get(0), List.of(activities.get(1).getConsumption_in_wh(), activities.get(2).getConsumption_in_wh()));
         assertNotNull(q);
     }
+
+    /**
+     * The activity whose consumption is asked is the activity of the question
+     */
+    @Test
+    void activitiesTest() {
+        MCQuestion q = new MCQuestion(activities.get(0), List.of(activities.get(1).getConsumption_in_wh()));
+        assertEquals(List.of(activities.get(0)), q.activities());
+    }
 }
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -91,6 +92,21 @@ public class MultiPlayerGameTest {
         assertEquals(2, multiPlayerGame.getQuestions().size());
     }
 
+    /**
+     * Question with the same activity is a duplicate even if the image was loaded in only one of them
+     */
+    @Test
+    public void addQuestionDuplicateKey() {
+        Activity withImage = new Activity("1L", "image_a", "a", 1L, "a");
+        withImage.setImage(new byte[] {1, 2, 3});
+
+        assertTrue(multiPlayerGame.addQuestion(new EstimationQuestion(a1)));
+        assertFalse(multiPlayerGame.addQuestion(new EstimationQuestion(withImage)));
+
+        multiPlayerGame.setQuestions(new ArrayList<>());
+        assertTrue(multiPlayerGame.addQuestion(new EstimationQuestion(withImage)));
+    }
+
     /**
      * Tests if many questions are added successfully
      * in a row
@@ -489,4 +505,45 @@ public class MultiPlayerGameTest {
         assertNotEquals(multiPlayerGame.getGameStatus(), updates);
     }
 
+    /**
+     * Players are found by name, also after the list was replaced or a player left
+     */
+    @Test
+    public void getPlayerTest() {
+        Player a = new Player("a");
+        Player b = new Player("b");
+        multiPlayerGame.setPlayers(new ArrayList<>(List.of(a, b)));
+
+        assertSame(b, multiPlayerGame.getPlayer("b"));
+        assertNull(multiPlayerGame.getPlayer("c"));
+        assertNull(multiPlayerGame.getPlayer(null));
+
+        multiPlayerGame.removePlayer(b);
+        assertNull(multiPlayerGame.getPlayer("b"));
+        multiPlayerGame.getPlayers().add(new Player("c")); // changed without the game
+        assertEquals("c", multiPlayerGame.getPlayer("c").getName());
+    }
+
+    /**
+     * Answers to the current question are scored in one pass, players without an answer lose their streak
+     */
+    @Test
+    public void addPointsForAnswersTest() {
+        Player a = new Player("a");
+        Player b = new Player("b");
+        Player c = new Player("c");
+        c.setStreak(2);
+        multiPlayerGame.setPlayers(List.of(a, b, c));
+        multiPlayerGame.addQuestion(new EstimationQuestion(a1));
+        multiPlayerGame.nextQuestion();
+
+        List<Player> scored = multiPlayerGame.addPointsForAnswers(Map.of(
+            "a", new Answer("a", 0, 1L, 5),
+            "b", new Answer("b", 1, 1L, 5))); // answer to another question
+
+        assertEquals(List.of(a), scored);
+        assertEquals(1035, a.getScore()); // streak 1, 1050 - 5 * 5 = 1025 * 1.01
+        assertEquals(0, b.getScore());
+        assertEquals(0, c.getStreak());
+    }
 }
@@ -0,0 +1,56 @@
+package commons;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlayerChangeTest {
+
+    /**
+     * Joins, score changes and leaves are applied by the name of the player
+     */
+    @Test
+    public void applyTest() {
+        List<Player> players = new ArrayList<>(List.of(new Player("a", 10)));
+        PlayerChange.apply(players, List.of(
+            PlayerChange.joined(new Player("b")),
+            PlayerChange.scored(new Player("a", 60)),
+            PlayerChange.left(new Player("a"))));
+
+        assertEquals(1, players.size());
+        assertEquals("b", players.get(0).getName());
+        assertEquals(0, players.get(0).getScore());
+    }
+
+    /**
+     * Applying a change twice (e.g. after a resync already got it) changes nothing
+     */
+    @Test
+    public void applyTwiceTest() {
+        List<Player> players = new ArrayList<>(List.of(new Player("a", 10)));
+        List<PlayerChange> changes = List.of(PlayerChange.joined(new Player("b")),
+            PlayerChange.scored(new Player("b", 25)), PlayerChange.left(new Player("c")));
+        PlayerChange.apply(players, changes);
+        PlayerChange.apply(players, changes);
+
+        assertEquals(List.of(new Player("a", 10), new Player("b", 25)), players);
+    }
+
+    /**
+     * Only the next version with changes can be applied, anything else needs a resync
+     */
+    @Test
+    public void followsTest() {
+        GameUpdatesPacket update = new GameUpdatesPacket(0, "QUESTION", 1);
+        update.setVersion(5);
+        assertFalse(update.follows(4)); // full status
+
+        update.setChanges(List.of());
+        assertTrue(update.follows(4));
+        assertFalse(update.follows(3));
+        assertFalse(update.follows(5));
+    }
+}
@@ -21,4 +21,16 @@ class EqualityQuestionTest {
         EqualityQuestion e = new EqualityQuestion(new Activity(), new Activity(), activityList, 0);
         assertNotNull(e);
     }
-}
\ No newline at end of file
+
+    /**
+     * The answers and the chosen activity are the activities of the question
+     */
+    @Test
+    void activitiesTest() {
+        Activity chosen = new Activity("1", null, "a", 1L, "a");
+        Activity correct = new Activity("2", null, "b", 1L, "b");
+        Activity wrong = new Activity("3", null, "c", 5L, "c");
+        EqualityQuestion e = new EqualityQuestion(chosen, correct, List.of(wrong), 1);
+        assertEquals(List.of(wrong, correct, chosen), e.activities());
+    }
+}
@@ -21,7 +21,20 @@ import commons.MultiPlayerGame;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import server.api.ActivityIndex;
+import server.api.DeckBuilder;
+import server.api.GameArchive;
+import server.api.GameScheduler;
+import server.api.GameUpdateSocket;
+import server.api.ImageCache;
+import server.api.ImagePack;
+import server.api.ImageRenditions;
+import server.api.QuestionGeneratorRegistry;
+import server.api.MultiplayerController;
+import server.api.QuestionPool;
+import server.database.GameResultRepository;
 import server.multiplayer.WaitingRoom;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Random;
 
@@ -35,6 +48,33 @@ public class Config {
 
     public static String defaultImagePath = "./server/src/main/resources/activity-bank-pictures/";
     public static int numberOfQuestions = 20;
+    public static int questionPoolCapacity = 10;      // questions kept ready for each question type
+    public static int questionPoolLowWatermark = 5;   // refill starts when a type has fewer questions than this
+    public static int questionPoolWorkers = 2;        // threads refilling the question pool
+    public static int deckBuilderThreads = 4;         // threads generating the questions of multiplayer decks
+    public static int deckBuilderQueueCapacity = 100; // questions waiting for a deck builder thread
+    public static long deckDeadlineMillis = 3000;     // how long starting a game waits for its deck
+    public static long imageCacheMaxBytes = 64 << 20; // total size of the encoded images kept in memory
+    public static String renditionPath = "./server/renditions/";
+    public static int[] renditionSizes = {128, 256, 512}; // maximum width and height of the smaller copies
+    public static float renditionQuality = 0.8f;      // jpg quality of the smaller copies
+    public static long loadingPhaseMillis = 3000;     // loading screen before the first question of a game
+    public static long questionPhaseMillis = 19000;   // time to answer a multiplayer question
+    public static long leaderboardPhaseMillis = 4000; // leaderboard shown after every multiplayer question
+    public static int gameSchedulerThreads = 1;       // threads running the phase transitions of all games
+    public static int lobbyCapacity = 8;              // maximum number of players in a waiting room
+    public static int lobbyAutoStartPlayers = 8;      // a waiting room starts on its own once it has this many players
+    public static long lobbyAutoStartMillis = 60000;  // or this long after its first player joined
+    public static long eventStreamHeartbeatMillis = 15000; // heartbeat comment sent to every event stream
+    public static long eventStreamTimeoutMillis = 300000;  // event streams end after this, their clients resume
+    public static int eventStreamThreads = 2;              // threads writing to the event streams
+    public static int gameActorThreads = Runtime.getRuntime().availableProcessors(); // threads running all game actors
+    public static long finishedGameTtlMillis = 600000;   // finished games are kept this long for their end screens
+    public static long finishedGameMaxBytes = 64 << 20;  // total estimated size of the finished games kept
+    public static long finishedGameSweepMillis = 30000;  // time between two sweeps for expired finished games
+    public static int archiveQueueCapacity = 1000;       // finished games waiting to be written to the database
+    public static int archiveBatchSize = 50;             // finished games written to the database at once
+    public static String imagePackPath = "./server/image-pack/images.pack";
 
     /**
      * packet that will be used
@@ -47,11 +87,99 @@ public class Config {
 
     /**
      * Returns a new random object
-     * @return a new java Random object
+     * Every thread gets its own generator, so request threads don't wait on each other
+     * @return a Random which can be shared between threads
      */
     @Bean
     public Random getRandom() {
-        return new Random();
+        return new PerThreadRandom();
+    }
+
+    /**
+     * Returns a new QuestionPool object
+     * Questions are generated in the background so requests don't have to wait for them
+     * @return new QuestionPool
+     */
+    @Bean
+    public QuestionPool getQuestionPool() {
+        return new QuestionPool(questionPoolCapacity, questionPoolLowWatermark, questionPoolWorkers);
+    }
+
+    /**
+     * Registry of the generators of every question type
+     * @param index activity index the generators pick their activities from
+     * @return registry with the default question generators
+     */
+    @Bean
+    public QuestionGeneratorRegistry getQuestionGeneratorRegistry(ActivityIndex index) {
+        return QuestionGeneratorRegistry.defaults(index);
+    }
+
+    /**
+     * Cache of the encoded activity images sent by the activity endpoint
+     * @return image cache bounded by imageCacheMaxBytes
+     */
+    @Bean
+    public ImageCache getImageCache() {
+        return new ImageCache(imageCacheMaxBytes);
+    }
+
+    /**
+     * Smaller copies of the activity images, transcoded in the background
+     * @return renditions stored in renditionPath
+     */
+    @Bean
+    public ImageRenditions getImageRenditions() {
+        return new ImageRenditions(new File(renditionPath), renditionSizes, renditionQuality);
+    }
+
+    /**
+     * All images packed into one memory-mapped file, built by POST /api/images/pack
+     * @return image pack stored in imagePackPath, empty until it is built
+     */
+    @Bean
+    public ImagePack getImagePack() {
+        return new ImagePack(new File(imagePackPath));
+    }
+
+    /**
+     * Builder of multiplayer decks, its threads are shared by all games
+     * @return deck builder with a bounded number of threads
+     */
+    @Bean
+    public DeckBuilder getDeckBuilder() {
+        return new DeckBuilder(deckBuilderThreads, deckBuilderQueueCapacity);
+    }
+
+    /**
+     * Scheduler of the phases of the multiplayer games, its threads are shared by all games
+     * @return game scheduler with gameSchedulerThreads threads
+     */
+    @Bean
+    public GameScheduler getGameScheduler() {
+        return new GameScheduler(gameSchedulerThreads);
+    }
+
+    /**
+     * Archive of the results of the finished multiplayer games, written to the database behind the games
+     * @param repo repository the results are written to
+     * @return archive with a queue of archiveQueueCapacity games
+     */
+    @Bean
+    public GameArchive getGameArchive(GameResultRepository repo) {
+        return new GameArchive(repo::saveAll, archiveQueueCapacity, archiveBatchSize);
+    }
+
+    /**
+     * WebSocket pushing the updates of the multiplayer games, registered once the server has started
+     * @param controller controller running the games
+     * @return WebSocket at GameUpdateSocket.PATH
+     */
+    @Bean
+    public GameUpdateSocket getGameUpdateSocket(MultiplayerController controller) {
+        GameUpdateSocket socket = new GameUpdateSocket(controller);
+        controller.setUpdateSocket(socket); // its statistics are sent by the controller
+        return socket;
     }
 
     /**
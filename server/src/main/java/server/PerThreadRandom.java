@@ -0,0 +1,51 @@
+package server;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Random which uses a separate generator for every thread
+ *
+ * A normal Random updates one shared seed with compare and set, so request threads generating
+ * questions at the same time keep retrying on it. This one hands every call to the ThreadLocalRandom
+ * of the calling thread, so it can be shared as a bean without any contention.
+ *
+ * It can't be seeded. Use a new Random(seed) when the results have to be reproducible (e.g. a seeded deck).
+ */
+public class PerThreadRandom extends Random {
+
+    @Override
+    protected int next(int bits) {
+        return ThreadLocalRandom.current().nextInt() >>> (32 - bits);
+    }
+
+    @Override
+    public int nextInt() {
+        return ThreadLocalRandom.current().nextInt();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    @Override
+    public double nextDouble() {
+        return ThreadLocalRandom.current().nextDouble();
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return ThreadLocalRandom.current().nextBoolean();
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        // every thread has its own seed, the constructor of Random calls this so it can't throw
+    }
+}
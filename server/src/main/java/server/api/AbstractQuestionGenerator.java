@@ -0,0 +1,85 @@
+package server.api;
+
+import commons.Activity;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Base of the question generators which pick their activities from the ActivityIndex
+ */
+public abstract class AbstractQuestionGenerator implements QuestionGenerator {
+
+    private static final int MAX_WIDENING_STEPS = 10; // times the consumption interval around a pivot is widened
+
+    protected final ActivityIndex index; // in-memory index used for picking random activities
+    private final int weight;
+
+    /**
+     * Creates a new generator
+     * @param index activity index to pick the activities from
+     * @param weight how often this type is picked compared to the other types
+     */
+    protected AbstractQuestionGenerator(ActivityIndex index, int weight) {
+        this.index = index;
+        this.weight = weight;
+    }
+
+    @Override
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Fetches a number of activities, such that they have distinct consumptions
+     * Generates a pivot to be used in the generation of such activities
+     *
+     * @param limit The number of activities with distinct consumption to be picked from the index
+     * @param random random used for the picks
+     * @return A list of activities
+     */
+    protected List<Activity> activitiesWithSuitableConsumptions(int limit, Random random) {
+
+        /* pivot may not be included in final selection
+        it is used just to have an estimate of the consumption the activities should have */
+        Activity pivot = index.randomActivity(random).get();
+        return activitiesWithSuitableConsumptions(limit, pivot, random);
+    }
+
+    /**
+     * Fetches a number of activities, such that they have distinct consumptions
+     * The interval around the pivot is widened at most MAX_WIDENING_STEPS times,
+     * after that all consumptions (except the pivot's) are allowed
+     *
+     * @param limit The number of activities with distinct consumption to be picked from the index
+     * @param pivot Pivot that the result list has close consumptions to
+     * @param random random used for the picks
+     * @return A list of activities, shorter than limit if there aren't enough distinct consumptions
+     */
+    protected List<Activity> activitiesWithSuitableConsumptions(int limit, Activity pivot, Random random) {
+        double lowerBound = 0.1;
+        double upperBound = 2.5;
+        long consumption = pivot.getConsumption_in_wh();
+
+        /* get a list of random activities with consumption in the interval
+         * (lowerBound * pivot.getConsumption_in_wh(), upperBound * pivot.getConsumption_in_wh())
+         *  if the list doesn't have the needed number of activities, increase the range
+         */
+        for (int step = 0; step < MAX_WIDENING_STEPS; step++) {
+            List<Activity> result = index.activitiesWithSpecifiedConsumption(
+                limit,
+                (long) Math.floor(lowerBound * consumption),
+                (long) Math.ceil(upperBound * consumption),
+                consumption,
+                random
+            );
+            if (result.size() == limit) {
+                return result;
+            }
+            lowerBound -= 0.1; //it is not a problem for lowerBound to go below 0
+            upperBound += 0.25;
+        }
+        // the interval is still too small (e.g. the pivot's consumption is 0), so every consumption is allowed
+        return index.activitiesWithSpecifiedConsumption(limit, Long.MIN_VALUE, Long.MAX_VALUE, consumption, random);
+    }
+}
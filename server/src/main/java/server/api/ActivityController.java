@@ -4,12 +4,12 @@ import commons.Activity;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import server.Config;
 import server.database.ActivityRepository;
 
-import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 
 /**
  * Activity endpoints go in this controller
@@ -20,15 +20,28 @@ import java.util.Optional;
 public class ActivityController {
 
     private final ActivityRepository repo;
+    private final ActivityIndex index;
+    private final Random random;
+    private final ImageCache images;
+    private final ImageRenditions renditions;
 
     /**
      * Creates new ActivityController object
      * Sets repository to repo
      * @param repo repository to use
+     * @param index activity index which is kept up to date with the repository
+     * @param random random used for picking random activities
+     * @param images cache of the encoded activity images
+     * @param renditions smaller copies of the images, created when activities are added
      */
     @Autowired
-    public ActivityController(ActivityRepository repo) {
+    public ActivityController(ActivityRepository repo, ActivityIndex index, Random random, ImageCache images,
+                              ImageRenditions renditions) {
         this.repo = repo;
+        this.index = index;
+        this.random = random;
+        this.images = images;
+        this.renditions = renditions;
     }
 
     /**
@@ -42,7 +55,7 @@ public class ActivityController {
 
     /**
      * API GET ACTIVITY BY ID ENDPOINT
-     * Initializes the image for the activity
+     * Initializes the image for the activity, taken from the image cache
      * @param id id of activity to be returned
      * @return activity with specified id. Bad request response entity if invalid id
      */
@@ -52,10 +65,19 @@ public class ActivityController {
             return ResponseEntity.badRequest().build();
         }
         Activity activity = repo.findById(id).get();
-        activity.initializeImage(new File(Config.defaultImagePath + activity.getImage_path()));
+        images.initializeImage(activity);
         return ResponseEntity.ok(activity);
     }
 
+    /**
+     * Gets the statistics of the image cache
+     * @return hit ratio, size and evictions of the image cache
+     */
+    @GetMapping(path = {"/image-cache", "/image-cache/"})
+    public ResponseEntity<ImageCache.Stats> getImageCacheStats() {
+        return ResponseEntity.ok(images.getStats());
+    }
+
     /**
      * Adds a list of activities to the database
      * @param activities
@@ -67,13 +89,15 @@ public class ActivityController {
             return ResponseEntity.badRequest().build();
         }
 
-        long count = 0L;
+        List<Activity> saved = new ArrayList<>();
         for(Activity a : activities){
-            if(!addActivity(a).equals(ResponseEntity.badRequest().build())){ // tries to add the activity and checks if it succeeded
-                count++; // adds to count only if object was successfully added
+            if(!invalidActivity(a)){ // only valid activities are added
+                saved.add(repo.save(a));
             }
         }
-        return ResponseEntity.ok(count);
+        index.putAll(saved); // one index update for the whole list
+        renditions.ingest(saved);
+        return ResponseEntity.ok((long) saved.size());
     }
 
     /**
@@ -90,6 +114,8 @@ public class ActivityController {
         }
 
         Activity act = repo.save(activity); // saves activity to the database
+        index.put(act);
+        renditions.ingest(List.of(act));
         return ResponseEntity.ok(act); // returns the same object if everything ok
     }
 
@@ -124,20 +150,23 @@ public class ActivityController {
         }
 
         Activity saved = repo.save(dbActivity); // update the player
+        index.put(saved);
+        renditions.ingest(List.of(saved));
         return ResponseEntity.ok(saved); // for some reason I can't return dbPlayer, it throws an internal server error
     }
 
     /**
      * API GET RANDOM ACTIVITY
+     * Picked from the activity index, so the database doesn't have to sort the whole table randomly
      * @return 1 random activity from the database
      */
     @GetMapping("/random")
     public ResponseEntity<Activity> getRandomActivity(){
-        if (repo.count()==0){ // checks if the repository is empty
+        Optional<Activity> activity = index.randomActivity(random);
+        if (activity.isEmpty()){ // checks if there are any activities
             return ResponseEntity.badRequest().build();
         }
-        List<Activity> act = repo.getRandomActivities(1).get();
-        return ResponseEntity.ok(act.get(0));
+        return ResponseEntity.ok(activity.get());
     }
 
     /**
@@ -159,6 +188,7 @@ public class ActivityController {
         Activity deleted = repo.findById(id).get();
 
         repo.deleteById(id);    // delete it
+        index.remove(id);
         return ResponseEntity.ok(deleted);
     }
 
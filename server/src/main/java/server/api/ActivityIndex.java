@@ -0,0 +1,523 @@
+package server.api;
+
+import commons.Activity;
+import org.springframework.stereotype.Component;
+import server.database.ActivityRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * In-memory index of all activities, sorted by consumption
+ *
+ * Used by the question generation so it doesn't have to query the database for random activities.
+ * The activities are stored column by column in arrays sorted by consumption_in_wh,
+ * so a range of consumptions can be found with a binary search.
+ * Activities with the same consumption form a run in these arrays. The rows of all runs with
+ * at least two activities are kept separately, so equality questions can pick a pair in O(1).
+ *
+ * The index is loaded from the repository the first time it is used.
+ * After that ActivityController keeps it up to date on every add, update and delete. A write doesn't sort again:
+ * the new rows are binary searched into place and the rows in between are copied in blocks, so a write
+ * of k activities costs O(n + k log k) instead of sorting the whole table.
+ */
+@Component
+public class ActivityIndex {
+
+    private static final Comparator<Activity> ORDER =
+        Comparator.comparing(Activity::getConsumption_in_wh).thenComparing(Activity::getId);
+
+    private final ActivityRepository repo;
+    private volatile Snapshot snapshot; // null until the index is loaded from the repository
+
+    /**
+     * Creates a new ActivityIndex
+     * @param repo repository the index is loaded from
+     */
+    public ActivityIndex(ActivityRepository repo) {
+        this.repo = repo;
+    }
+
+    /**
+     * Gets the number of activities in the index
+     * @return number of activities
+     */
+    public int size() {
+        return getStats().getCount();
+    }
+
+    /**
+     * Gets the number of distinct consumptions in the index
+     * @return number of distinct values for consumption
+     */
+    public int distinctConsumptions() {
+        return getStats().getDistinctConsumptions();
+    }
+
+    /**
+     * Gets the counts of the activities in the index
+     * They are kept up to date with the index, so this never queries the database (except for the first load)
+     * @return counts of the current activities
+     */
+    public ActivityStats getStats() {
+        return getSnapshot().stats;
+    }
+
+    /**
+     * Gets the version of the index, a hash of all its activities
+     * It changes when an activity is added, updated or removed, and is the same for the same activities
+     * after a restart or reload, so a seeded deck of questions can be rebuilt from its seed while the version
+     * is the same
+     * @return current version
+     */
+    public long getVersion() {
+        return getSnapshot().version;
+    }
+
+    /**
+     * Picks one random activity
+     * @param random random used for the pick
+     * @return a copy of a random activity, empty if the index is empty
+     */
+    public Optional<Activity> randomActivity(Random random) {
+        Snapshot s = getSnapshot();
+        if (s.size() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(s.activityAt(randomIndex(random, s.size())));
+    }
+
+    /**
+     * Finds an activity by its ID without querying the database
+     * @param id ID of the activity
+     * @return a copy of the activity, empty if there is no activity with this ID
+     */
+    public Optional<Activity> findById(String id) {
+        Snapshot s = getSnapshot();
+        Integer row = s.rowById.get(id);
+        return row == null ? Optional.empty() : Optional.of(s.activityAt(row));
+    }
+
+    /**
+     * Randomly selects a certain number of activities, such that
+     * they all have a different value for their consumption, which is in the interval (floor, ceil).
+     * None of the activities have the same consumption as excludedConsumption.
+     *
+     * @param size number of activities needed
+     * @param floor consumption the activities should be bigger than
+     * @param ceil consumption the activities should be smaller than
+     * @param excludedConsumption consumption none of the activities should have
+     * @param random random used for the picks
+     * @return copies of the picked activities, empty list if there aren't enough of them in the interval
+     */
+    public List<Activity> activitiesWithSpecifiedConsumption(int size, long floor, long ceil,
+                                                             long excludedConsumption, Random random) {
+        Snapshot s = getSnapshot();
+        // distinct consumptions in the interval are the ones in [from, to)
+        int from = upperBound(s.distinct, floor);
+        int to = lowerBound(s.distinct, ceil);
+        int excluded = Arrays.binarySearch(s.distinct, from, Math.max(from, to), excludedConsumption);
+
+        int available = to - from - (excluded >= 0 ? 1 : 0);
+        if (size <= 0 || available < size) {
+            return new ArrayList<>();
+        }
+
+        List<Activity> result = new ArrayList<>(size);
+        Set<Integer> picked = new HashSet<>();
+        while (result.size() < size) {
+            int d = from + randomIndex(random, available);
+            if (excluded >= 0 && d >= excluded) {
+                d++; // skip over the excluded consumption
+            }
+            if (picked.add(d)) {
+                // pick one of the activities which have this consumption
+                int start = s.runStart[d];
+                result.add(s.activityAt(start + randomIndex(random, s.runStart[d + 1] - start)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Picks a random pair of different activities which have the same consumption
+     * The first activity is picked from all activities which don't have a unique consumption,
+     * the second one from the other activities with the same consumption.
+     *
+     * @param random random used for the picks
+     * @return copies of the two activities, empty if every consumption is unique
+     */
+    public Optional<Activity[]> randomEqualPair(Random random) {
+        Snapshot s = getSnapshot();
+        if (s.duplicateRows.length == 0) {
+            return Optional.empty();
+        }
+        int chosen = s.duplicateRows[randomIndex(random, s.duplicateRows.length)];
+        int d = Arrays.binarySearch(s.distinct, s.consumptions[chosen]);
+        int start = s.runStart[d];
+        // any other row with the same consumption, skipping over chosen
+        int correct = start + randomIndex(random, s.runStart[d + 1] - start - 1);
+        if (correct >= chosen) {
+            correct++;
+        }
+        return Optional.of(new Activity[] {s.activityAt(chosen), s.activityAt(correct)});
+    }
+
+    /**
+     * Checks if there are at least two activities with the same consumption
+     * @return true if not every consumption is unique
+     */
+    public boolean hasEqualConsumptions() {
+        return getStats().getDuplicateBuckets() > 0;
+    }
+
+    /**
+     * Adds an activity to the index or replaces the activity with the same ID
+     * @param activity activity to put in the index
+     */
+    public synchronized void put(Activity activity) {
+        if (snapshot == null || activity == null || activity.getConsumption_in_wh() == null) {
+            return; // not loaded yet, the activity will be read from the repository
+        }
+        snapshot = snapshot.update(Set.of(activity.getId()), List.of(activity));
+    }
+
+    /**
+     * Adds many activities to the index at once
+     * @param activities activities to put in the index
+     */
+    public synchronized void putAll(Collection<Activity> activities) {
+        if (snapshot == null || activities.isEmpty()) {
+            return;
+        }
+        Map<String, Activity> byId = new LinkedHashMap<>(); // the last activity with an ID wins
+        for (Activity a : activities) {
+            byId.put(a.getId(), a);
+        }
+        List<Activity> added = new ArrayList<>();
+        for (Activity a : byId.values()) {
+            if (a.getConsumption_in_wh() != null) {
+                added.add(a);
+            }
+        }
+        added.sort(ORDER);
+        snapshot = snapshot.update(byId.keySet(), added);
+    }
+
+    /**
+     * Removes an activity from the index
+     * @param id ID of the activity to remove
+     */
+    public synchronized void remove(String id) {
+        if (snapshot == null || !snapshot.rowById.containsKey(id)) {
+            return;
+        }
+        snapshot = snapshot.update(Set.of(id), List.of());
+    }
+
+    /**
+     * Reloads the whole index from the repository
+     */
+    public synchronized void reload() {
+        replace(repo.findAll());
+    }
+
+    /**
+     * Replaces the snapshot with a new one of the specified activities
+     * Has to be called while holding the lock
+     */
+    private void replace(List<Activity> activities) {
+        snapshot = Snapshot.of(activities);
+    }
+
+    /**
+     * Gets the current snapshot, loads it from the repository if needed
+     * @return current snapshot
+     */
+    private Snapshot getSnapshot() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                s = snapshot;
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Random index in [0, bound)
+     * Uses nextLong so the result only depends on the values the Random returns
+     */
+    private static int randomIndex(Random random, int bound) {
+        return (int) Math.floorMod(random.nextLong(), (long) bound);
+    }
+
+    /**
+     * @return index of the first value bigger than key
+     */
+    private static int upperBound(long[] values, long key) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return index of the first value bigger than or equal to key
+     */
+    private static int lowerBound(long[] values, long key) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Immutable state of the index
+     * Row i of every array belongs to the same activity, rows are sorted by consumption and then ID
+     */
+    private static final class Snapshot {
+        private final long[] consumptions;
+        private final String[] ids;
+        private final String[] imagePaths;
+        private final String[] titles;
+        private final String[] sources;
+        private final Map<String, Integer> rowById;
+        private final long[] distinct;  // distinct consumptions, sorted
+        private final int[] runStart;   // rows with consumption distinct[d] are in [runStart[d], runStart[d + 1])
+        private final int[] duplicateRows; // rows whose consumption is shared with another row (buckets of size >= 2)
+        private final ActivityStats stats;
+        private final long version;     // hash of all columns, in row order
+
+        /**
+         * Creates a snapshot of activities in any order, sorts them once
+         */
+        private static Snapshot of(List<Activity> activities) {
+            List<Activity> sorted = new ArrayList<>();
+            for (Activity a : activities) {
+                if (a.getConsumption_in_wh() != null) {
+                    sorted.add(a);
+                }
+            }
+            sorted.sort(ORDER);
+
+            int n = sorted.size();
+            long[] consumptions = new long[n];
+            String[] ids = new String[n];
+            String[] imagePaths = new String[n];
+            String[] titles = new String[n];
+            String[] sources = new String[n];
+            for (int i = 0; i < n; i++) {
+                Activity a = sorted.get(i);
+                consumptions[i] = a.getConsumption_in_wh();
+                ids[i] = a.getId();
+                imagePaths[i] = a.getImage_path();
+                titles[i] = a.getTitle();
+                sources[i] = a.getSource();
+            }
+            return new Snapshot(consumptions, ids, imagePaths, titles, sources);
+        }
+
+        /**
+         * Creates a snapshot of sorted columns, finds the runs and hashes the rows in one pass
+         */
+        private Snapshot(long[] consumptions, String[] ids, String[] imagePaths, String[] titles, String[] sources) {
+            this.consumptions = consumptions;
+            this.ids = ids;
+            this.imagePaths = imagePaths;
+            this.titles = titles;
+            this.sources = sources;
+
+            int n = ids.length;
+            rowById = new HashMap<>(n * 2);
+            int distinctCount = 0;
+            long hash = n;
+            for (int i = 0; i < n; i++) {
+                hash = mix(hash, consumptions[i]);
+                hash = mix(hash, Objects.hashCode(ids[i]));
+                hash = mix(hash, Objects.hashCode(imagePaths[i]));
+                hash = mix(hash, Objects.hashCode(titles[i]));
+                hash = mix(hash, Objects.hashCode(sources[i]));
+                rowById.put(ids[i], i);
+                if (i == 0 || consumptions[i] != consumptions[i - 1]) {
+                    distinctCount++;
+                }
+            }
+
+            distinct = new long[distinctCount];
+            runStart = new int[distinctCount + 1];
+            int d = 0;
+            for (int i = 0; i < n; i++) {
+                if (i == 0 || consumptions[i] != consumptions[i - 1]) {
+                    distinct[d] = consumptions[i];
+                    runStart[d] = i;
+                    d++;
+                }
+            }
+            version = hash;
+            runStart[distinctCount] = n;
+            duplicateRows = findDuplicateRows(runStart);
+            stats = new ActivityStats(n, distinctCount, countDuplicateBuckets(runStart));
+        }
+
+        /**
+         * Creates the next snapshot without re-sorting: the rows of removed IDs are skipped, the added activities
+         * are binary searched into place and the rows between them are copied in blocks
+         *
+         * @param removed IDs whose rows are left out, may contain IDs which aren't in the index
+         * @param added activities to add, sorted by consumption and ID, their IDs must be in removed
+         */
+        private Snapshot update(Set<String> removed, List<Activity> added) {
+            int[] skip = new int[removed.size()];
+            int skips = 0;
+            for (String id : removed) {
+                Integer row = rowById.get(id);
+                if (row != null) {
+                    skip[skips++] = row;
+                }
+            }
+            Arrays.sort(skip, 0, skips);
+            int[] at = new int[added.size()];
+            for (int a = 0; a < at.length; a++) {
+                at[a] = position(added.get(a));
+            }
+            return splice(skip, skips, added, at);
+        }
+
+        /**
+         * Copies the rows between the skipped rows and the positions of the added activities in blocks
+         */
+        private Snapshot splice(int[] skip, int skips, List<Activity> added, int[] at) {
+            int n = size();
+            int m = n - skips + at.length;
+            long[] nextConsumptions = new long[m];
+            String[] nextIds = new String[m];
+            String[] nextImagePaths = new String[m];
+            String[] nextTitles = new String[m];
+            String[] nextSources = new String[m];
+            int src = 0; // next row of this snapshot
+            int out = 0; // next row of the new one
+            int skipped = 0;
+            int inserted = 0;
+            while (true) {
+                int stop = Math.min(skipped < skips ? skip[skipped] : n, inserted < at.length ? at[inserted] : n);
+                int len = stop - src;
+                System.arraycopy(consumptions, src, nextConsumptions, out, len);
+                System.arraycopy(ids, src, nextIds, out, len);
+                System.arraycopy(imagePaths, src, nextImagePaths, out, len);
+                System.arraycopy(titles, src, nextTitles, out, len);
+                System.arraycopy(sources, src, nextSources, out, len);
+                out += len;
+                src = stop;
+                if (inserted < at.length && at[inserted] == src) { // an added activity goes before the row at its position
+                    Activity act = added.get(inserted++);
+                    nextConsumptions[out] = act.getConsumption_in_wh();
+                    nextIds[out] = act.getId();
+                    nextImagePaths[out] = act.getImage_path();
+                    nextTitles[out] = act.getTitle();
+                    nextSources[out] = act.getSource();
+                    out++;
+                } else if (skipped < skips && skip[skipped] == src) {
+                    skipped++;
+                    src++;
+                } else {
+                    break; // all rows copied
+                }
+            }
+            return new Snapshot(nextConsumptions, nextIds, nextImagePaths, nextTitles, nextSources);
+        }
+
+        /**
+         * Finds the first row which doesn't come before an activity in the order of the index
+         */
+        private int position(Activity activity) {
+            long c = activity.getConsumption_in_wh();
+            int lo = 0;
+            int hi = size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (consumptions[mid] < c || consumptions[mid] == c && ids[mid].compareTo(activity.getId()) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * Mixes a value into the running hash of the columns, FNV-1a style on whole values
+         */
+        private static long mix(long hash, long value) {
+            return (hash ^ value) * 0x100000001B3L;
+        }
+
+        /**
+         * Counts the consumptions which at least two rows have
+         */
+        private static int countDuplicateBuckets(int[] runStart) {
+            int buckets = 0;
+            for (int d = 0; d + 1 < runStart.length; d++) {
+                if (runStart[d + 1] - runStart[d] >= 2) {
+                    buckets++;
+                }
+            }
+            return buckets;
+        }
+
+        /**
+         * Finds the rows in runs of at least 2, used for picking pairs with the same consumption
+         */
+        private static int[] findDuplicateRows(int[] runStart) {
+            int[] rows = new int[runStart[runStart.length - 1]];
+            int count = 0;
+            for (int d = 0; d + 1 < runStart.length; d++) {
+                if (runStart[d + 1] - runStart[d] >= 2) {
+                    for (int i = runStart[d]; i < runStart[d + 1]; i++) {
+                        rows[count++] = i;
+                    }
+                }
+            }
+            return Arrays.copyOf(rows, count);
+        }
+
+        private int size() {
+            return ids.length;
+        }
+
+        /**
+         * Creates a new activity from row i, so callers can change it (e.g. initialize the image)
+         */
+        private Activity activityAt(int i) {
+            return new Activity(ids[i], imagePaths[i], titles[i], consumptions[i], sources[i]);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package server.api;
+
+import lombok.Data;
+
+/**
+ * Counts of the activities in the ActivityIndex
+ *
+ * Computed when the index changes, so checking if there are enough activities
+ * for a question doesn't have to query the database.
+ */
+@Data
+public class ActivityStats {
+    private final int count;                // activities with a consumption
+    private final int distinctConsumptions; // different values for the consumption
+    private final int duplicateBuckets;     // consumptions shared by at least two activities
+}
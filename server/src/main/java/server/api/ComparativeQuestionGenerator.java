@@ -0,0 +1,48 @@
+package server.api;
+
+import commons.Activity;
+import commons.questions.ComparativeQuestion;
+import commons.questions.Question;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Generates comparative questions: which of 3 activities with similar consumptions uses the most/least energy
+ */
+public class ComparativeQuestionGenerator extends AbstractQuestionGenerator {
+
+    private static final int LIMIT = 3; // how many activities are included in the question
+
+    /**
+     * Creates a new generator
+     * @param index activity index to pick the activities from
+     * @param weight how often this type is picked compared to the other types
+     */
+    public ComparativeQuestionGenerator(ActivityIndex index, int weight) {
+        super(index, weight);
+    }
+
+    @Override
+    public String getType() {
+        return "comparative";
+    }
+
+    @Override
+    public boolean canGenerate(ActivityStats stats) {
+        return stats.getDistinctConsumptions() > LIMIT; // enough activities with distinct consumptions
+    }
+
+    @Override
+    public Optional<Question> generate(Random random) {
+        List<Activity> activities = activitiesWithSuitableConsumptions(LIMIT, random); // gets 3 random activities
+        if (activities.size() < LIMIT) {
+            return Optional.empty();
+        }
+
+        int n = (int) random.nextLong();
+        boolean isMost = n % 2 == 0; // gets a random true or false
+        return Optional.of(new ComparativeQuestion(activities, isMost));
+    }
+}
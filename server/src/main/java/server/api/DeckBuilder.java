@@ -0,0 +1,155 @@
+package server.api;
+
+import commons.questions.Question;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds decks of distinct questions in parallel
+ *
+ * Every slot of the deck is generated as a separate task on a bounded executor.
+ * The slots are filled in rounds: once all tasks of a round are done, the new questions are checked
+ * in slot order and the repeated ones are rejected. The rejected slots are generated again in the next round.
+ * Every slot and round has its own Random derived from the seed of the deck,
+ * so the same seed still gives the same deck no matter in which order the tasks finish.
+ */
+public class DeckBuilder {
+
+    private static final int MAX_ROUNDS = 10; // times a slot is generated again before the deck is given up on
+
+    private final Executor executor;
+
+    /**
+     * Creates a new deck builder
+     * @param threads number of threads generating questions
+     * @param queueCapacity maximum number of questions waiting for a thread,
+     *                      when it is full the questions are generated on the thread which submits them
+     */
+    public DeckBuilder(int threads, int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+            r -> {
+                Thread t = new Thread(r, "deck-builder");
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private DeckBuilder(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a deck builder which generates every question on the calling thread
+     * @return deck builder without threads
+     */
+    public static DeckBuilder direct() {
+        return new DeckBuilder(Runnable::run);
+    }
+
+    /**
+     * Starts building a deck of distinct questions of all types
+     *
+     * @param n number of questions in the deck
+     * @param seed seed of the deck
+     * @param generators generators of the question types, picked by their weights
+     * @return future of the deck, has fewer than n questions if there aren't enough distinct ones
+     */
+    public CompletableFuture<List<Question>> build(int n, long seed, QuestionGeneratorRegistry generators) {
+        Question[] slots = new Question[Math.max(n, 0)];
+        return fill(slots, 0, seed, generators, new HashSet<>(), new HashSet<>())
+            .thenApply(v -> {
+                List<Question> deck = new ArrayList<>(slots.length);
+                for (Question q : slots) {
+                    if (q != null) {
+                        deck.add(q);
+                    }
+                }
+                return deck;
+            });
+    }
+
+    /**
+     * Stops the threads
+     * Called by Spring when the application shuts down
+     */
+    public void shutdown() {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
+    /**
+     * Generates all empty slots in parallel, keeps the distinct questions and continues with the next round
+     */
+    private CompletableFuture<Void> fill(Question[] slots, int round, long seed, QuestionGeneratorRegistry generators,
+                                         Set<String> usedQuestions, Set<String> usedActivities) {
+        List<Integer> empty = new ArrayList<>();
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == null) {
+                empty.add(i);
+            }
+        }
+        if (empty.isEmpty() || round >= MAX_ROUNDS) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<CompletableFuture<Question>> candidates = new ArrayList<>(empty.size());
+        for (int slot : empty) {
+            Random rng = new Random(slotSeed(seed, slot, round));
+            candidates.add(CompletableFuture.supplyAsync(() -> randomQuestion(generators, rng), executor));
+        }
+
+        return CompletableFuture.allOf(candidates.toArray(new CompletableFuture[0])).thenCompose(v -> {
+            for (int j = 0; j < empty.size(); j++) {
+                Question q = candidates.get(j).join();
+                if (q != null && isDistinct(q, round, usedQuestions, usedActivities)) {
+                    slots[empty.get(j)] = q;
+                }
+            }
+            return fill(slots, round + 1, seed, generators, usedQuestions, usedActivities);
+        });
+    }
+
+    /**
+     * Generates a question of a random type, both picked with the random of the slot
+     * The question pool isn't used, so the deck only depends on its seed
+     */
+    private static Question randomQuestion(QuestionGeneratorRegistry generators, Random rng) {
+        Optional<String> type = generators.pickType(rng);
+        return type.isEmpty() ? null : generators.generate(type.get(), rng).orElse(null);
+    }
+
+    /**
+     * Checks if the question isn't in the deck yet, marks it and its activities as used if so
+     * During the first half of the rounds activities can't be shared between questions
+     */
+    private static boolean isDistinct(Question q, int round, Set<String> usedQuestions, Set<String> usedActivities) {
+        List<String> ids = QuestionController.activityIds(q);
+        boolean sharesActivity = round < MAX_ROUNDS / 2 && ids.stream().anyMatch(usedActivities::contains);
+        if (sharesActivity || !usedQuestions.add(q.key())) {
+            return false;
+        }
+        usedActivities.addAll(ids);
+        return true;
+    }
+
+    /**
+     * Mixes the seed of the deck with the slot and round, so every task gets a different stream
+     */
+    private static long slotSeed(long seed, int slot, int round) {
+        return seed + slot * 0x9E3779B97F4A7C15L + round * 0xBF58476D1CE4E5B9L;
+    }
+}
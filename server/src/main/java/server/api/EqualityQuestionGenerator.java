@@ -0,0 +1,57 @@
+package server.api;
+
+import commons.Activity;
+import commons.questions.EqualityQuestion;
+import commons.questions.Question;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Generates equality questions: which activity uses as much energy as the chosen one
+ */
+public class EqualityQuestionGenerator extends AbstractQuestionGenerator {
+
+    private static final int LIMIT = 4; // we need at least 4 activities to have this question without all having distinct consumptions
+
+    /**
+     * Creates a new generator
+     * @param index activity index to pick the activities from
+     * @param weight how often this type is picked compared to the other types
+     */
+    public EqualityQuestionGenerator(ActivityIndex index, int weight) {
+        super(index, weight);
+    }
+
+    @Override
+    public String getType() {
+        return "equality";
+    }
+
+    @Override
+    public boolean canGenerate(ActivityStats stats) {
+        return stats.getCount() > LIMIT && stats.getDuplicateBuckets() > 0;
+    }
+
+    @Override
+    public Optional<Question> generate(Random random) {
+        // Gets a random activity which doesn't have a unique consumption
+        // and a random activity different from chosen which has the same consumption as chosen
+        Optional<Activity[]> pair = index.randomEqualPair(random);
+        if (pair.isEmpty()) {
+            return Optional.empty();
+        }
+        Activity chosen = pair.get()[0];
+        Activity correct = pair.get()[1];
+
+        List<Activity> activities = activitiesWithSuitableConsumptions(2, correct, random); // gets 2 random activities
+        if (activities.size() < 2) { // not enough other consumptions for the wrong answers
+            return Optional.empty();
+        }
+
+        // Creates a new question with a chosen, correct and list of wrong activities. Specifies the position of correct in the list of options
+        // Randomizing needs to be done here for testing
+        return Optional.of(new EqualityQuestion(chosen, correct, activities, Math.abs(random.nextInt() % 3)));
+    }
+}
@@ -0,0 +1,44 @@
+package server.api;
+
+import commons.Activity;
+import commons.questions.EstimationQuestion;
+import commons.questions.Question;
+
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Generates estimation questions: guess the consumption of a random activity
+ */
+public class EstimationQuestionGenerator extends AbstractQuestionGenerator {
+
+    private static final int LIMIT = 1;
+
+    /**
+     * Creates a new generator
+     * @param index activity index to pick the activities from
+     * @param weight how often this type is picked compared to the other types
+     */
+    public EstimationQuestionGenerator(ActivityIndex index, int weight) {
+        super(index, weight);
+    }
+
+    @Override
+    public String getType() {
+        return "estimation";
+    }
+
+    @Override
+    public boolean canGenerate(ActivityStats stats) {
+        return stats.getCount() > LIMIT;
+    }
+
+    @Override
+    public Optional<Question> generate(Random random) {
+        Optional<Activity> activity = index.randomActivity(random);
+        if (activity.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new EstimationQuestion(activity.get()));
+    }
+}
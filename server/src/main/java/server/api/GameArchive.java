@@ -0,0 +1,158 @@
+package server.api;
+
+import commons.GameResult;
+import commons.Player;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Archives the final results of the multiplayer games in the database, behind the games
+ *
+ * Ending a game only puts its results in a bounded queue, one thread writes them to the database
+ * in batches of up to batchSize games, so a game never waits for the database and many games
+ * ending together cost one write. If the database is so slow that the queue is full, the results
+ * of the next games are dropped (and counted) instead of piling up in memory.
+ */
+public class GameArchive {
+
+    private final Consumer<List<GameResult>> writer;
+    private final BlockingQueue<List<GameResult>> queue;
+    private final int batchSize;
+    private Thread thread; // started with the first game, guarded by this
+
+    private final AtomicLong archived = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Creates an archive
+     * @param writer writes a batch of results to the database, null doesn't keep any results
+     * @param capacity maximum number of games waiting to be written
+     * @param batchSize maximum number of games written at once
+     */
+    public GameArchive(Consumer<List<GameResult>> writer, int capacity, int batchSize) {
+        this.writer = writer;
+        this.queue = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    /**
+     * Creates an archive that doesn't keep any results
+     * @return archive without a writer
+     */
+    public static GameArchive none() {
+        return new GameArchive(null, 1, 1);
+    }
+
+    /**
+     * Puts the final results of a game in the queue
+     * @param gameId ID of the game
+     * @param players players of the game with their final scores
+     * @return true if the results will be written, false if they were dropped
+     */
+    public boolean archive(int gameId, List<Player> players) {
+        if (writer == null) {
+            return false;
+        }
+        if (!queue.offer(results(gameId, players, System.currentTimeMillis()))) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        start();
+        return true;
+    }
+
+    /**
+     * Gets the statistics of the archive
+     * @return number of games waiting, and the results written
+     */
+    public Stats getStats() {
+        Stats s = new Stats();
+        s.setQueued(queue.size());
+        s.setArchived(archived.get());
+        s.setBatches(batches.get());
+        s.setDropped(dropped.get());
+        s.setFailures(failures.get());
+        return s;
+    }
+
+    /**
+     * Stops the writing thread, the results still waiting are lost
+     * Called by Spring when the application shuts down
+     */
+    public synchronized void shutdown() {
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Ranks the players of a game by their score
+     */
+    static List<GameResult> results(int gameId, List<Player> players, long endedAt) {
+        List<Player> ranked = new ArrayList<>(players);
+        ranked.sort(Comparator.comparing((Player p) -> p.getScore() == null ? 0 : p.getScore()).reversed());
+        List<GameResult> results = new ArrayList<>(ranked.size());
+        for (int i = 0; i < ranked.size(); i++) {
+            Player p = ranked.get(i);
+            results.add(new GameResult(gameId, p.getName(), p.getScore() == null ? 0 : p.getScore(), i + 1, endedAt));
+        }
+        return results;
+    }
+
+    /**
+     * Waits for the next game and writes it, with all games waiting behind it up to batchSize
+     */
+    void writeBatch() throws InterruptedException {
+        List<List<GameResult>> games = new ArrayList<>();
+        games.add(queue.take());
+        queue.drainTo(games, batchSize - 1);
+        List<GameResult> batch = new ArrayList<>();
+        games.forEach(batch::addAll);
+        try {
+            writer.accept(batch);
+            archived.addAndGet(batch.size());
+            batches.incrementAndGet();
+        } catch (RuntimeException e) { // the database is down, these results are lost but the next may work
+            failures.incrementAndGet();
+            System.err.println("Couldn't archive " + games.size() + " games: " + e);
+        }
+    }
+
+    private synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(() -> {
+            try {
+                while (true) {
+                    writeBatch();
+                }
+            } catch (InterruptedException e) {
+                // shutting down
+            }
+        }, "game-archive");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Statistics of the archive
+     */
+    @Data
+    public static class Stats {
+        private int queued;    // games waiting to be written
+        private long archived; // results written to the database
+        private long batches;  // writes to the database
+        private long dropped;  // games dropped because the queue was full
+        private long failures; // writes which failed
+    }
+}
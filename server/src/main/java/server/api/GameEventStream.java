@@ -0,0 +1,184 @@
+package server.api;
+
+import commons.GameUpdatesPacket;
+import lombok.Data;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import server.multiplayer.GameActor;
+import server.multiplayer.GameEvents;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Server-sent event streams of the multiplayer games, for clients which can't keep a WebSocket open
+ *
+ * Every stream is one long response which gets the updates of its game as "update" events,
+ * with the event ID of the update and the GameUpdatesPacket as JSON. A client which reconnects sends
+ * the ID of the last event it got (Last-Event-ID) and gets the updates it missed, or the current status
+ * of the game if it missed too many.
+ *
+ * A heartbeat comment is sent to every idle stream regularly, so proxies don't close a quiet stream
+ * and streams whose client is gone are noticed. A stream which is still writing events gets no heartbeat,
+ * so heartbeats never queue up in front of events. Streams end after timeoutMillis, the client then reconnects
+ * and resumes, so a stream left open by a lost client doesn't stay forever.
+ *
+ * Writing to a stream can block, so the events are written by the threads of the stream executor
+ * and never by the thread publishing them, one at a time per stream.
+ */
+public class GameEventStream {
+
+    static final int MAX_QUEUED = 16; // events waiting for a slow stream
+
+    private final long heartbeatMillis;
+    private final long timeoutMillis;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Set<Stream> streams = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean heartbeating = new AtomicBoolean();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong resumed = new AtomicLong();
+    private final AtomicLong heartbeats = new AtomicLong();
+
+    /**
+     * Creates the event streams
+     * @param heartbeatMillis time between two heartbeats of a stream
+     * @param timeoutMillis time after which a stream ends and its client reconnects
+     * @param threads number of threads writing the events
+     */
+    public GameEventStream(long heartbeatMillis, long timeoutMillis, int threads) {
+        this.heartbeatMillis = heartbeatMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(threads, 1), r -> {
+            Thread t = new Thread(r, "game-event-stream");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Opens a stream of the updates of a game
+     *
+     * @param game actor of the game
+     * @param lastEventId ID of the last event the client got, negative if it didn't get any,
+     *                    the stream starts with the current status of the game if it didn't get any or missed too many
+     * @return the stream, returned as the response
+     */
+    public SseEmitter open(GameActor game, long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Stream stream = new Stream(emitter, game);
+        emitter.onCompletion(stream::close);
+        emitter.onError(e -> stream.close());
+        streams.add(stream);
+        if (game.resume(stream.listener, lastEventId).join() && lastEventId >= 0) {
+            resumed.incrementAndGet();
+        }
+        if (heartbeatMillis > 0 && heartbeating.compareAndSet(false, true)) {
+            executor.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        }
+        return emitter;
+    }
+
+    /**
+     * Gets the statistics of the streams
+     * @return number of open streams, and events and heartbeats sent to them
+     */
+    public Stats getStats() {
+        Stats s = new Stats();
+        s.setStreams(streams.size());
+        s.setSent(sent.get());
+        s.setDropped(dropped.get());
+        s.setResumed(resumed.get());
+        s.setHeartbeats(heartbeats.get());
+        return s;
+    }
+
+    /**
+     * Stops the threads writing the events and the heartbeats, events still queued are dropped
+     * Called by MultiplayerController when Spring destroys it
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Sends a heartbeat to every open stream which isn't writing events
+     */
+    void heartbeat() {
+        for (Stream stream : streams) {
+            if (stream.outbox.sendIfIdle(Update.HEARTBEAT)) {
+                heartbeats.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Stream of one client
+     */
+    private class Stream {
+        private final SseEmitter emitter;
+        private final GameActor game;
+        private final GameEvents.Listener listener;
+        private final Outbox<Update> outbox;
+
+        private Stream(SseEmitter emitter, GameActor game) {
+            this.emitter = emitter;
+            this.game = game;
+            this.outbox = new Outbox<>((update, done) -> executor.execute(() -> write(update, done)),
+                MAX_QUEUED, update -> new Update(update.id, update.packet.fullStatus()), sent, dropped);
+            this.listener = (eventId, packet) -> outbox.send(new Update(eventId, packet));
+        }
+
+        private void write(Update update, Consumer<Boolean> done) {
+            try {
+                emitter.send(update == Update.HEARTBEAT ? SseEmitter.event().comment("heartbeat")
+                    : SseEmitter.event().id(Long.toString(update.id)).name("update")
+                        .data(update.packet, MediaType.APPLICATION_JSON));
+                done.accept(true);
+            } catch (IOException | IllegalStateException e) { // client is gone, or the stream ended
+                close();
+                done.accept(false);
+            }
+        }
+
+        private void close() {
+            if (streams.remove(this)) {
+                game.unsubscribe(listener);
+            }
+        }
+    }
+
+    /**
+     * Update of a game with its event ID, queued for a stream
+     */
+    private static class Update {
+        private static final Update HEARTBEAT = new Update(0, null); // written as a comment, never queued
+
+        private final long id;
+        private final GameUpdatesPacket packet;
+
+        private Update(long id, GameUpdatesPacket packet) {
+            this.id = id;
+            this.packet = packet;
+        }
+    }
+
+    /**
+     * Statistics of the event streams
+     */
+    @Data
+    public static class Stats {
+        private int streams;     // open streams
+        private long sent;       // events sent, without the heartbeats
+        private long dropped;    // events replaced by a full status because a stream was too slow
+        private long resumed;    // streams which got the events they missed after reconnecting
+        private long heartbeats; // heartbeats sent to idle streams
+    }
+}
@@ -0,0 +1,217 @@
+package server.api;
+
+import lombok.Data;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the phase transitions of all multiplayer games
+ *
+ * Every game has at most one pending transition (the next phase schedules the one after it),
+ * and all of them are run by one small scheduled executor instead of a Timer thread per phase.
+ * A game is started with its first transition, continued with next() and ended with finish() or cancel();
+ * transitions of a game which was ended don't run, and a transition which is running when its game is ended
+ * can't schedule another one.
+ *
+ * For every transition the difference between the time it was scheduled for and the time it ran (drift)
+ * is measured, a growing drift means the scheduler threads can't keep up with the games.
+ */
+public class GameScheduler {
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<Integer, Pending> games = new ConcurrentHashMap<>(); // pending transition by game ID
+
+    private final AtomicLong transitions = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalDrift = new AtomicLong(); // nanoseconds
+    private final AtomicLong maxDrift = new AtomicLong();
+    private final AtomicLong lastDrift = new AtomicLong();
+
+    /**
+     * Creates a new game scheduler
+     * @param threads number of threads running the transitions
+     */
+    public GameScheduler(int threads) {
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(threads, 1), r -> {
+            Thread t = new Thread(r, "game-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true); // cancelled games don't keep their transitions in the queue
+    }
+
+    /**
+     * Starts a game with its first transition, replaces the pending transition if the game is running already
+     * (e.g. the countdown of a lobby is replaced by the loading screen of its game)
+     *
+     * @param gameId ID of the game
+     * @param delayMillis time until the transition
+     * @param phase transition to run
+     */
+    public void start(int gameId, long delayMillis, Runnable phase) {
+        Pending pending = new Pending();
+        Pending old = games.put(gameId, pending);
+        if (old != null) {
+            old.cancel();
+        }
+        schedule(gameId, pending, delayMillis, phase);
+    }
+
+    /**
+     * Schedules the next transition of a game, ignored if the game was ended
+     *
+     * @param gameId ID of the game
+     * @param delayMillis time until the transition
+     * @param phase transition to run
+     * @return true if the transition was scheduled
+     */
+    public boolean next(int gameId, long delayMillis, Runnable phase) {
+        Pending pending = new Pending();
+        Pending[] old = new Pending[1];
+        if (games.computeIfPresent(gameId, (id, o) -> {
+            old[0] = o;
+            return pending;
+        }) == null) {
+            return false;
+        }
+        old[0].cancel(); // nothing to cancel if this is called by the transition which is running
+        schedule(gameId, pending, delayMillis, phase);
+        return true;
+    }
+
+    /**
+     * Ends a game after its last transition
+     * @param gameId ID of the game
+     */
+    public void finish(int gameId) {
+        Pending pending = games.remove(gameId);
+        if (pending != null) {
+            pending.cancel();
+        }
+    }
+
+    /**
+     * Cancels a game, its pending transition won't run
+     * @param gameId ID of the game
+     * @return true if the game was running
+     */
+    public boolean cancel(int gameId) {
+        Pending pending = games.remove(gameId);
+        if (pending == null) {
+            return false;
+        }
+        pending.cancel();
+        cancelled.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Checks if a game is running
+     * @param gameId ID of the game
+     * @return true if the game was started and not ended yet
+     */
+    public boolean isRunning(int gameId) {
+        return games.containsKey(gameId);
+    }
+
+    /**
+     * Gets the statistics of the scheduler
+     * @return number of games and transitions, and the drift of the transitions
+     */
+    public Stats getStats() {
+        Stats s = new Stats();
+        long count = transitions.get();
+        s.setGames(games.size());
+        s.setThreads(executor.getCorePoolSize());
+        s.setTransitions(count);
+        s.setCancelled(cancelled.get());
+        s.setFailures(failures.get());
+        s.setMeanDriftMillis(count == 0 ? 0 : totalDrift.get() / count / 1e6);
+        s.setMaxDriftMillis(maxDrift.get() / 1e6);
+        s.setLastDriftMillis(lastDrift.get() / 1e6);
+        return s;
+    }
+
+    /**
+     * Stops the threads, pending transitions are dropped
+     * Called by Spring when the application shuts down
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        games.clear();
+    }
+
+    /**
+     * Schedules a transition which measures its drift and only runs if it is still the game's pending transition
+     */
+    private void schedule(int gameId, Pending pending, long delayMillis, Runnable phase) {
+        long delay = Math.max(delayMillis, 0);
+        long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        Runnable transition = () -> {
+            if (games.get(gameId) != pending) {
+                return; // the game was ended or restarted after this transition was scheduled
+            }
+            measure(System.nanoTime() - due);
+            try {
+                phase.run();
+            } catch (RuntimeException e) { // a broken game shouldn't keep its slot forever
+                failures.incrementAndGet();
+                games.remove(gameId, pending);
+                System.err.println("Transition of game " + gameId + " failed: " + e);
+            }
+        };
+        try {
+            pending.future = executor.schedule(transition, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) { // scheduler was shut down
+            games.remove(gameId, pending);
+            return;
+        }
+        if (games.get(gameId) != pending) {
+            pending.cancel(); // ended while it was being scheduled
+        }
+    }
+
+    private void measure(long drift) {
+        long d = Math.max(drift, 0);
+        transitions.incrementAndGet();
+        totalDrift.addAndGet(d);
+        lastDrift.set(d);
+        maxDrift.accumulateAndGet(d, Math::max);
+    }
+
+    /**
+     * Transition which is waiting to run
+     */
+    private static class Pending {
+        private volatile ScheduledFuture<?> future;
+
+        private void cancel() {
+            ScheduledFuture<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Statistics of the scheduler, sent by the stats endpoint
+     */
+    @Data
+    public static class Stats {
+        private int games;               // games with a pending transition
+        private int threads;             // threads running the transitions
+        private long transitions;        // transitions which ran
+        private long cancelled;          // games which were cancelled
+        private long failures;           // transitions which threw an exception
+        private double meanDriftMillis;  // average time between when transitions were due and when they ran
+        private double maxDriftMillis;   // largest drift
+        private double lastDriftMillis;  // drift of the last transition
+    }
+}
@@ -0,0 +1,189 @@
+package server.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import commons.GameUpdatesPacket;
+import lombok.Data;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.web.context.ServletContextAware;
+import server.multiplayer.GameEvents;
+
+import javax.servlet.ServletContext;
+import javax.websocket.CloseReason;
+import javax.websocket.DeploymentException;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.Session;
+import javax.websocket.server.ServerContainer;
+import javax.websocket.server.ServerEndpointConfig;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * WebSocket which pushes the updates of a multiplayer game to its players
+ *
+ * With the long poll every update costs a new request, and an update which happens while a client
+ * is reconnecting is only seen on its next poll. A client connected to /api/updates/{id} gets every update
+ * of the game as a JSON GameUpdatesPacket as soon as it happens, and the current status of the game
+ * (or waiting room) right after connecting, over one connection for the whole game.
+ *
+ * The updates of a connection are sent one at a time without blocking the thread running the game,
+ * the ones which come in while a send is in progress are queued. When a slow client has too many queued,
+ * they are replaced by the full status of the game, so the client fetches the players again
+ * instead of missing changes.
+ *
+ * Uses the WebSocket API of the servlet container, registered once the server has started,
+ * the long poll keeps working if the container doesn't support it.
+ */
+public class GameUpdateSocket implements ServletContextAware, SmartInitializingSingleton {
+
+    public static final String PATH = "/api/updates/{id}";
+    static final int MAX_QUEUED = 16; // updates waiting for a slow connection
+
+    private final MultiplayerController controller;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ServletContext servletContext;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Creates the WebSocket of the multiplayer games
+     * @param controller controller running the games
+     */
+    public GameUpdateSocket(MultiplayerController controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Called by Spring with the context of the server
+     * @param servletContext context the WebSocket is registered in
+     */
+    @Override
+    public void setServletContext(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    /**
+     * Registers the WebSocket once all beans are created, like Spring's ServerEndpointExporter
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        ServerContainer container = servletContext == null ? null
+            : (ServerContainer) servletContext.getAttribute(ServerContainer.class.getName());
+        if (container == null) {
+            System.err.println("No WebSocket support, game updates are only sent to long polls");
+            return;
+        }
+        try {
+            container.addEndpoint(ServerEndpointConfig.Builder.create(Connection.class, PATH)
+                .configurator(new ServerEndpointConfig.Configurator() {
+                    @Override
+                    public <T> T getEndpointInstance(Class<T> endpointClass) {
+                        return endpointClass.cast(new Connection());
+                    }
+                }).build());
+        } catch (DeploymentException e) {
+            System.err.println("Couldn't register the game update WebSocket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the statistics of the WebSocket
+     * @return number of open connections, and updates sent and dropped
+     */
+    public Stats getStats() {
+        Stats s = new Stats();
+        s.setConnections(connections.get());
+        s.setSent(sent.get());
+        s.setDropped(dropped.get());
+        return s;
+    }
+
+    /**
+     * Turns an update into the text sent over the WebSocket
+     * @param packet update of a game
+     * @return packet as JSON, null if it can't be written
+     */
+    String toJson(GameUpdatesPacket packet) {
+        try {
+            return mapper.writeValueAsString(packet);
+        } catch (JsonProcessingException e) {
+            System.err.println("Couldn't write " + packet + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Connection of one client to the updates of one game
+     */
+    public class Connection extends Endpoint {
+        private int id;
+        private GameEvents.Listener listener;
+        private Outbox<GameUpdatesPacket> outbox;
+
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            try {
+                id = Integer.parseInt(session.getPathParameters().get("id"));
+            } catch (NumberFormatException e) {
+                close(session, new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "invalid game ID"));
+                return;
+            }
+            session.setMaxIdleTimeout(0); // a waiting room can be quiet for a long time
+            outbox = new Outbox<>((packet, done) -> write(session, packet, done),
+                MAX_QUEUED, GameUpdatesPacket::fullStatus, sent, dropped);
+            GameEvents.Listener l = (eventId, packet) -> outbox.send(packet);
+            if (controller.resume(id, -1, l) == null) { // starts with the current status of the game
+                close(session, new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "unknown game ID"));
+                return;
+            }
+            listener = l;
+            connections.incrementAndGet();
+        }
+
+        @Override
+        public void onClose(Session session, CloseReason closeReason) {
+            if (listener != null) {
+                controller.unsubscribe(id, listener);
+                listener = null;
+                connections.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void onError(Session session, Throwable error) {
+            // onClose follows, which unsubscribes the connection
+        }
+
+        private void write(Session session, GameUpdatesPacket packet, Consumer<Boolean> done) {
+            String text = toJson(packet);
+            if (text == null) {
+                done.accept(false);
+                return;
+            }
+            session.getAsyncRemote().sendText(text, r -> done.accept(r.isOK()));
+        }
+
+        private void close(Session session, CloseReason reason) {
+            try {
+                session.close(reason);
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+
+    /**
+     * Statistics of the WebSocket
+     */
+    @Data
+    public static class Stats {
+        private int connections; // open connections
+        private long sent;       // updates sent
+        private long dropped;    // updates replaced by a full status because a connection was too slow
+    }
+}
@@ -0,0 +1,140 @@
+package server.api;
+
+import commons.Activity;
+import lombok.Data;
+import server.Config;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the encoded images of the activities
+ *
+ * Decoding an image and encoding it as png again takes much longer than sending it,
+ * so the png bytes are kept in memory, keyed by the image path.
+ * Every entry remembers the modification time of its file; if the file changed the entry is encoded again.
+ * The cache is bounded by the total number of bytes, the least recently used images are evicted first.
+ *
+ * The same byte array is given to every activity using the image, it must not be modified.
+ */
+public class ImageCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // access order
+    private long bytes; // total size of the cached images, guarded by this
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a new image cache
+     * @param maxBytes maximum total size of the cached images, 0 disables caching
+     */
+    public ImageCache(long maxBytes) {
+        this.maxBytes = Math.max(maxBytes, 0);
+    }
+
+    /**
+     * Sets the image of the activity, encoded from the file at its image path
+     * @param activity activity whose image is loaded
+     */
+    public void initializeImage(Activity activity) {
+        activity.setImage(get(activity.getImage_path()));
+    }
+
+    /**
+     * Gets the encoded image, only encodes it if it isn't cached or the file was modified since
+     *
+     * @param imagePath path of the image relative to the image folder
+     * @return png bytes of the image, null if there is no such image
+     */
+    public byte[] get(String imagePath) {
+        File file = new File(Config.defaultImagePath + imagePath);
+        long modified = file.lastModified(); // 0 if the file doesn't exist
+        synchronized (this) {
+            Entry entry = entries.get(imagePath);
+            if (entry != null && entry.modified == modified) {
+                hits.incrementAndGet();
+                return entry.image;
+            }
+        }
+        misses.incrementAndGet();
+        byte[] image = Activity.encodeImage(file); // encoded outside the lock, so hits don't wait for it
+        if (image != null) {
+            put(imagePath, new Entry(image, modified));
+        }
+        return image;
+    }
+
+    /**
+     * Gets the statistics of the cache
+     * @return hit ratio, size and evictions of the cache
+     */
+    public Stats getStats() {
+        Stats s = new Stats();
+        long h = hits.get();
+        long m = misses.get();
+        s.setHits(h);
+        s.setMisses(m);
+        s.setHitRatio(h + m == 0 ? 0 : (double) h / (h + m));
+        s.setEvictions(evictions.get());
+        s.setMaxBytes(maxBytes);
+        synchronized (this) {
+            s.setEntries(entries.size());
+            s.setBytes(bytes);
+        }
+        return s;
+    }
+
+    /**
+     * Adds the entry and evicts the least recently used entries until the cache fits in maxBytes
+     * Images larger than the whole cache are not cached
+     */
+    private synchronized void put(String imagePath, Entry entry) {
+        if (entry.image.length > maxBytes) {
+            return;
+        }
+        Entry old = entries.put(imagePath, entry);
+        if (old != null) {
+            bytes -= old.image.length;
+        }
+        bytes += entry.image.length;
+        Iterator<Entry> it = entries.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            bytes -= eldest.image.length;
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Encoded image with the modification time of its file
+     */
+    private static class Entry {
+        private final byte[] image;
+        private final long modified;
+
+        private Entry(byte[] image, long modified) {
+            this.image = image;
+            this.modified = modified;
+        }
+    }
+
+    /**
+     * Statistics of the cache, sent by the stats endpoint
+     */
+    @Data
+    public static class Stats {
+        private long hits;        // images served from the cache
+        private long misses;      // images which had to be encoded
+        private double hitRatio;  // hits / (hits + misses)
+        private int entries;      // images in the cache
+        private long bytes;       // total size of the images in the cache
+        private long maxBytes;    // maximum total size of the images
+        private long evictions;   // images removed to make room for others
+    }
+}
@@ -0,0 +1,208 @@
+package server.api;
+
+import commons.Activity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import server.Config;
+import server.database.ActivityRepository;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the images of the activities
+ *
+ * Questions only contain the activities, the client gets their images from here by activity ID.
+ * If the client says at which size it shows the image, the smallest rendition at least that big is sent
+ * instead of the original (see ImageRenditions).
+ * Every response has an ETag and Last-Modified, so the client can ask if its copy is still valid
+ * and gets a 304 without a body if it is.
+ * Images which are in the image pack are sent from its memory-mapped file, without opening a file.
+ * Other images are sent with sendfile when Tomcat supports it, so they are copied to the socket by the kernel
+ * without passing through the JVM.
+ */
+@RestController
+@RequestMapping("/api/images")
+public class ImageController {
+
+    // request attributes of the Tomcat sendfile support
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // clients use their copy for a day before they ask if it changed
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic();
+
+    private final ActivityIndex index;
+    private final ActivityRepository repo;
+    private final ImageRenditions renditions;
+    private final ImagePack pack;
+
+    /**
+     * Creates new ImageController object
+     * @param index activity index used to find the image path of an activity
+     * @param repo repository the activities are read from for a rescan
+     * @param renditions smaller copies of the images
+     * @param pack images packed into a single memory-mapped file
+     */
+    @Autowired
+    public ImageController(ActivityIndex index, ActivityRepository repo, ImageRenditions renditions, ImagePack pack) {
+        this.index = index;
+        this.repo = repo;
+        this.renditions = renditions;
+        this.pack = pack;
+    }
+
+    /**
+     * Gets the statistics of the image renditions
+     * @return numbers of transcoded, reused and failed images
+     */
+    @GetMapping(path = {"/renditions", "/renditions/"})
+    public ResponseEntity<ImageRenditions.Stats> getRenditionStats() {
+        return ResponseEntity.ok(renditions.getStats());
+    }
+
+    /**
+     * Queues the images of all activities for ingestion, images whose renditions are up to date are skipped
+     * @return number of images queued
+     */
+    @PostMapping(path = {"/rescan", "/rescan/"})
+    public ResponseEntity<Integer> rescan() {
+        return ResponseEntity.ok(renditions.ingest(repo.findAll()));
+    }
+
+    /**
+     * Gets the statistics of the image pack
+     * @return number of packed images and how many requests were served from the pack
+     */
+    @GetMapping(path = {"/pack", "/pack/"})
+    public ResponseEntity<ImagePack.Stats> getPackStats() {
+        return ResponseEntity.ok(pack.getStats());
+    }
+
+    /**
+     * Packs the images of all activities, and their renditions which are ready, into a new image pack
+     * Should be called after importing activities, once their renditions are made (see /renditions)
+     *
+     * @return number of packed images, 500 if the pack couldn't be written
+     */
+    @PostMapping(path = {"/pack", "/pack/"})
+    public ResponseEntity<Integer> rebuildPack() {
+        Map<String, File> files = new LinkedHashMap<>();
+        for (Activity a : repo.findAll()) {
+            String path = a.getImage_path();
+            File original = new File(Config.defaultImagePath + path);
+            if (path == null || files.containsKey(path) || !original.isFile()) {
+                continue;
+            }
+            files.put(path, original);
+            for (File rendition : renditions.findAll(path)) {
+                files.put(rendition.getName(), rendition); // rendition names can't clash with image paths
+            }
+        }
+        try {
+            return ResponseEntity.ok(pack.rebuild(files));
+        } catch (IOException e) {
+            System.err.println("Couldn't build the image pack: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Gets the image of an activity
+     *
+     * @param activityId ID of the activity
+     * @param size optional width and height the image is shown at, the original is sent without it
+     * @param request used for the conditional headers and sendfile
+     * @return the image file, 304 if the client's copy is still valid, 404 if there is no such image
+     */
+    @GetMapping("/{activityId}")
+    public ResponseEntity<Resource> getImage(@PathVariable("activityId") String activityId,
+                                             @RequestParam(name = "size", required = false) Integer size,
+                                             ServletWebRequest request) {
+        Optional<Activity> activity = index.findById(activityId);
+        if (activity.isEmpty() || activity.get().getImage_path() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        File file = new File(Config.defaultImagePath + activity.get().getImage_path());
+        long modified = file.lastModified();
+        long length = file.length();
+        if (!file.isFile() || modified == 0) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = etag(modified, length);
+        String name = activity.get().getImage_path(); // name of the image in the pack
+        long version = modified;
+        Optional<File> rendition = size == null
+            ? Optional.empty()
+            : renditions.find(activity.get().getImage_path(), size);
+        if (rendition.isPresent()) { // otherwise the original is sent until the rendition is ready
+            file = rendition.get();
+            length = file.length();
+            version = file.lastModified();
+            name = file.getName();
+            etag = "\"" + name + "\""; // rendition names are unique for their content
+        }
+        if (request.checkNotModified(etag, modified)) {
+            return null; // 304 was already set
+        }
+
+        ResponseEntity.BodyBuilder res = ResponseEntity.ok()
+            .eTag(etag)
+            .lastModified(modified)
+            .cacheControl(CACHE_CONTROL)
+            .contentType(MediaTypeFactory.getMediaType(file.getName()).orElse(MediaType.APPLICATION_OCTET_STREAM))
+            .contentLength(length);
+        Optional<ImagePack.Entry> packed = pack.find(name, version, length);
+        if (packed.isPresent()) {
+            return res.body(packed.get().toResource());
+        }
+        if (sendfile(request.getRequest(), file, length)) {
+            return res.build(); // Tomcat writes the body once the headers are sent
+        }
+        return res.body(new FileSystemResource(file));
+    }
+
+    /**
+     * ETag from the modification time and size of the file, changes whenever the file is replaced
+     */
+    static String etag(long modified, long length) {
+        return "\"" + Long.toHexString(modified) + "-" + Long.toHexString(length) + "\"";
+    }
+
+    /**
+     * Asks Tomcat to send the file with sendfile, if the connector supports it
+     * @return true if Tomcat will send the file
+     */
+    private static boolean sendfile(HttpServletRequest request, File file, long length) {
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            return false;
+        }
+        try {
+            request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+        } catch (IOException e) {
+            return false;
+        }
+        request.setAttribute(SENDFILE_START, 0L);
+        request.setAttribute(SENDFILE_END, length);
+        return true;
+    }
+}
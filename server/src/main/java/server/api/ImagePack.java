@@ -0,0 +1,331 @@
+package server.api;
+
+import lombok.Data;
+import org.springframework.core.io.AbstractResource;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * All activity images (and their renditions) packed into a single file
+ *
+ * Serving the images one file at a time means opening thousands of small files, with a random read
+ * and a file descriptor for each of them. The pack puts them all in one file with an index,
+ * and the whole file is memory-mapped, so reading an image is a slice of the mapped buffer
+ * served from the page cache, without opening any file.
+ *
+ * Every entry remembers the modification time and size of the file it was packed from,
+ * so images which changed after the pack was built are served from their files until the pack is rebuilt.
+ *
+ * Layout of the file: magic, the images one after another, the index (count, then name, offset,
+ * length and modification time of every image), and the offset of the index followed by the magic again.
+ */
+public class ImagePack {
+
+    private static final byte[] MAGIC = "QZIMGPK1".getBytes(StandardCharsets.US_ASCII);
+    private static final int TRAILER = Long.BYTES + MAGIC.length;
+
+    private final File file;
+    private volatile Mapping mapping; // null if there is no pack
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Opens the pack file, if it exists
+     * A pack which can't be read is ignored, the images are then served from their files
+     *
+     * @param file pack file
+     */
+    public ImagePack(File file) {
+        this.file = file;
+        if (file.isFile()) {
+            try {
+                mapping = Mapping.open(file);
+            } catch (IOException e) {
+                System.err.println("Couldn't open image pack " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Finds an image in the pack
+     *
+     * @param name image path, or file name of a rendition
+     * @param modified modification time of the file the image is read from otherwise
+     * @param length size of that file
+     * @return entry of the image, empty if it isn't packed or the file changed since
+     */
+    public Optional<Entry> find(String name, long modified, long length) {
+        Mapping m = mapping;
+        Entry entry = m == null ? null : m.entries.get(name);
+        if (entry == null || entry.modified != modified || entry.length != length) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(entry);
+    }
+
+    /**
+     * Packs the files into a new pack file and starts serving from it
+     * The new pack is written next to the old one and moved over it, so requests keep using the old one
+     * until the new one is complete
+     *
+     * @param files files by the name they are found by
+     * @return number of packed images
+     * @throws IOException if the pack couldn't be written
+     */
+    public synchronized int rebuild(Map<String, File> files) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(dir.toPath());
+        File tmp = File.createTempFile("image-pack", ".tmp", dir);
+        try {
+            int count = write(files, tmp);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            mapping = Mapping.open(file); // the old mapping is released once no request uses it
+            return count;
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    /**
+     * Gets the statistics of the pack
+     * @return number and size of the packed images, and how many requests were served from the pack
+     */
+    public Stats getStats() {
+        Mapping m = mapping;
+        Stats s = new Stats();
+        s.setImages(m == null ? 0 : m.entries.size());
+        s.setBytes(m == null ? 0 : m.buffer.capacity());
+        s.setHits(hits.get());
+        s.setMisses(misses.get());
+        return s;
+    }
+
+    /**
+     * Writes the files into a pack file, files which can't be read are skipped
+     *
+     * @param files files by the name they are found by
+     * @param out pack file
+     * @return number of packed images
+     * @throws IOException if the pack couldn't be written, or is larger than a mapped buffer can be
+     */
+    static int write(Map<String, File> files, File out) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(out)))) {
+            data.write(MAGIC);
+            long offset = MAGIC.length;
+            for (Map.Entry<String, File> f : files.entrySet()) {
+                long modified = f.getValue().lastModified();
+                byte[] bytes;
+                try {
+                    bytes = Files.readAllBytes(f.getValue().toPath());
+                } catch (IOException e) {
+                    System.err.println("Couldn't pack " + f.getValue() + ": " + e.getMessage());
+                    continue;
+                }
+                data.write(bytes);
+                entries.add(new Entry(f.getKey(), offset, bytes.length, modified, null));
+                offset += bytes.length;
+            }
+            data.writeInt(entries.size());
+            for (Entry e : entries) {
+                data.writeUTF(e.name);
+                data.writeLong(e.offset);
+                data.writeInt(e.length);
+                data.writeLong(e.modified);
+            }
+            data.writeLong(offset);
+            data.write(MAGIC);
+        }
+        if (out.length() > Integer.MAX_VALUE) { // a mapped buffer is indexed by int
+            throw new IOException("image pack is larger than 2GB");
+        }
+        return entries.size();
+    }
+
+    /**
+     * Image in the pack
+     */
+    public static class Entry {
+        private final String name;
+        private final long offset;
+        private final int length;
+        private final long modified;
+        private final Mapping mapping;
+
+        private Entry(String name, long offset, int length, long modified, Mapping mapping) {
+            this.name = name;
+            this.offset = offset;
+            this.length = length;
+            this.modified = modified;
+            this.mapping = mapping;
+        }
+
+        /**
+         * Gets the size of the image
+         * @return number of bytes of the image
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Gets the bytes of the image, without copying them out of the mapped file
+         * @return read only buffer with the image
+         */
+        public ByteBuffer buffer() {
+            ByteBuffer b = mapping.buffer.duplicate();
+            b.position((int) offset).limit((int) offset + length);
+            return b.slice().asReadOnlyBuffer();
+        }
+
+        /**
+         * Gets the image as a resource which can be sent as a response body
+         * @return resource reading from the mapped file
+         */
+        public AbstractResource toResource() {
+            return new AbstractResource() {
+                @Override
+                public String getDescription() {
+                    return "image " + name + " in " + mapping.file;
+                }
+
+                @Override
+                public long contentLength() {
+                    return length;
+                }
+
+                @Override
+                public InputStream getInputStream() {
+                    return new BufferInputStream(buffer());
+                }
+            };
+        }
+    }
+
+    /**
+     * Mapped pack file with its index
+     */
+    private static class Mapping {
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final Map<String, Entry> entries = new HashMap<>();
+
+        private Mapping(File file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        private static Mapping open(File file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE || size < MAGIC.length + Integer.BYTES + TRAILER) {
+                    throw new IOException("not an image pack");
+                }
+                // the mapping stays valid after the channel is closed
+                Mapping m = new Mapping(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+                m.readIndex();
+                return m;
+            }
+        }
+
+        private void readIndex() throws IOException {
+            ByteBuffer b = buffer.duplicate();
+            int size = b.capacity();
+            if (!magicAt(b, 0) || !magicAt(b, size - MAGIC.length)) {
+                throw new IOException("not an image pack");
+            }
+            long indexOffset = b.getLong(size - TRAILER);
+            if (indexOffset < MAGIC.length || indexOffset > size - TRAILER) {
+                throw new IOException("corrupt image pack index");
+            }
+            byte[] index = new byte[(int) (size - TRAILER - indexOffset)];
+            b.position((int) indexOffset);
+            b.get(index);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(index));
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                long offset = in.readLong();
+                int length = in.readInt();
+                long modified = in.readLong();
+                if (offset < MAGIC.length || length < 0 || offset + length > indexOffset) {
+                    throw new IOException("corrupt image pack index");
+                }
+                entries.put(name, new Entry(name, offset, length, modified, this));
+            }
+        }
+
+        private static boolean magicAt(ByteBuffer b, int position) {
+            byte[] magic = new byte[MAGIC.length];
+            b.position(position);
+            b.get(magic);
+            return Arrays.equals(magic, MAGIC);
+        }
+    }
+
+    /**
+     * Reads a buffer as a stream
+     */
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Statistics of the pack, sent by the stats endpoint
+     */
+    @Data
+    public static class Stats {
+        private int images;     // images in the pack
+        private long bytes;     // size of the pack file
+        private long hits;      // requests served from the pack
+        private long misses;    // requests served from the image files
+    }
+}
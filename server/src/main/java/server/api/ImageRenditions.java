@@ -0,0 +1,353 @@
+package server.api;
+
+import commons.Activity;
+import lombok.Data;
+import server.Config;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Smaller copies (renditions) of the activity images
+ *
+ * The client shows the images in small image views, so sending the original pictures wastes bandwidth
+ * and decoding time. Every image is transcoded once into renditions whose largest side is capped
+ * at each of the configured sizes. Opaque images are stored as jpg, images with transparency as png.
+ *
+ * The renditions are stored by the sha-256 of the original file, so an image used by several activities
+ * is only transcoded once, and renditions which are already on disk are reused after a restart.
+ * Images are ingested in the background when activities are added, on a rescan,
+ * or the first time their rendition is requested.
+ */
+public class ImageRenditions {
+
+    private final File store;
+    private final int[] sizes; // sorted ascending
+    private final float quality;
+    private final Executor executor;
+
+    private final Map<String, Source> sources = new ConcurrentHashMap<>(); // by image path
+    private final Set<String> queued = ConcurrentHashMap.newKeySet(); // image paths waiting to be ingested
+
+    private final AtomicLong transcoded = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Creates a new rendition store which ingests the images on a background thread
+     * @param store folder the renditions are written to
+     * @param sizes maximum width and height of the renditions
+     * @param quality jpg quality between 0 and 1
+     */
+    public ImageRenditions(File store, int[] sizes, float quality) {
+        this(store, sizes, quality, Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "image-renditions");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    private ImageRenditions(File store, int[] sizes, float quality, Executor executor) {
+        this.store = store;
+        this.sizes = Arrays.stream(sizes).filter(s -> s > 0).sorted().distinct().toArray();
+        this.quality = quality;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a rendition store which ingests the images on the calling thread
+     * @param store folder the renditions are written to
+     * @param sizes maximum width and height of the renditions
+     * @param quality jpg quality between 0 and 1
+     * @return rendition store without threads
+     */
+    public static ImageRenditions direct(File store, int[] sizes, float quality) {
+        return new ImageRenditions(store, sizes, quality, Runnable::run);
+    }
+
+    /**
+     * Queues the images of the activities for ingestion
+     * Images which didn't change since they were ingested are skipped
+     *
+     * @param activities activities whose images are ingested
+     * @return number of images queued
+     */
+    public int ingest(Collection<Activity> activities) {
+        Set<String> paths = new HashSet<>();
+        for (Activity a : activities) {
+            if (a != null && a.getImage_path() != null && !a.getImage_path().isEmpty()) {
+                paths.add(a.getImage_path());
+            }
+        }
+        int count = 0;
+        for (String path : paths) {
+            if (queue(path)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the smallest rendition which is at least as big as the requested size,
+     * the largest rendition if none is that big
+     * If the image wasn't ingested yet, or changed since, it is queued and the original should be used for now
+     *
+     * @param imagePath path of the original image relative to the image folder
+     * @param size width and height the image is shown at
+     * @return rendition file, empty if there is no up to date rendition yet
+     */
+    public Optional<File> find(String imagePath, int size) {
+        Source source = sources.get(imagePath);
+        if (source == null || !source.isCurrent(original(imagePath))) {
+            queue(imagePath);
+            return Optional.empty();
+        }
+        if (source.sizes.length == 0) {
+            return Optional.empty(); // no sizes are configured
+        }
+        int i = 0;
+        while (i < source.sizes.length - 1 && source.sizes[i] < size) {
+            i++;
+        }
+        File file = rendition(source.hash, source.sizes[i], source.extension);
+        return file.isFile() ? Optional.of(file) : Optional.empty();
+    }
+
+    /**
+     * Finds all renditions of an image, used to put them in the image pack
+     * @param imagePath path of the original image relative to the image folder
+     * @return rendition files of every size, empty if there is no up to date rendition yet
+     */
+    public List<File> findAll(String imagePath) {
+        Source source = sources.get(imagePath);
+        List<File> files = new ArrayList<>();
+        if (source == null || !source.isCurrent(original(imagePath))) {
+            return files;
+        }
+        for (int size : source.sizes) {
+            File file = rendition(source.hash, size, source.extension);
+            if (file.isFile()) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Gets the statistics of the renditions
+     * @return numbers of transcoded, reused and failed images
+     */
+    public Stats getStats() {
+        Stats s = new Stats();
+        s.setImages(sources.size());
+        s.setQueued(queued.size());
+        s.setTranscoded(transcoded.get());
+        s.setReused(reused.get());
+        s.setFailures(failures.get());
+        return s;
+    }
+
+    /**
+     * Stops the ingestion thread
+     * Called by Spring when the application shuts down
+     */
+    public void shutdown() {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
+    /**
+     * Queues the image unless it is queued already or its renditions are up to date
+     */
+    private boolean queue(String imagePath) {
+        Source source = sources.get(imagePath);
+        if (source != null && source.isCurrent(original(imagePath)) || !queued.add(imagePath)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                queued.remove(imagePath);
+                ingest(imagePath);
+            });
+        } catch (RejectedExecutionException e) { // executor was shut down
+            queued.remove(imagePath);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Transcodes the image into all sizes, reuses the renditions which are already in the store
+     */
+    private void ingest(String imagePath) {
+        File file = original(imagePath);
+        try {
+            long modified = file.lastModified();
+            long length = file.length();
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            String hash = sha256(bytes);
+            BufferedImage img = ImageIO.read(new ByteArrayInputStream(bytes));
+            if (img == null) {
+                throw new IOException("unknown image format");
+            }
+            boolean alpha = img.getColorModel().hasAlpha();
+            String extension = alpha ? "png" : "jpg";
+            int[] needed = neededSizes(Math.max(img.getWidth(), img.getHeight()));
+            boolean reusedAll = true;
+            for (int size : needed) {
+                File out = rendition(hash, size, extension);
+                if (!out.isFile()) {
+                    write(scale(img, size, alpha), extension, out);
+                    reusedAll = false;
+                }
+            }
+            (reusedAll ? reused : transcoded).incrementAndGet();
+            sources.put(imagePath, new Source(hash, extension, needed, modified, length));
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            System.err.println("Couldn't create renditions of " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sizes up to the first one which fits the whole image, bigger renditions would be the same
+     */
+    private int[] neededSizes(int largestSide) {
+        int count = 0;
+        while (count < sizes.length && sizes[count] < largestSide) {
+            count++;
+        }
+        return Arrays.copyOf(sizes, Math.min(count + 1, sizes.length));
+    }
+
+    /**
+     * Scales the image down so its largest side is at most size, smaller images keep their size
+     */
+    private static BufferedImage scale(BufferedImage img, int size, boolean alpha) {
+        double factor = Math.min(1.0, (double) size / Math.max(img.getWidth(), img.getHeight()));
+        int w = Math.max(1, (int) Math.round(img.getWidth() * factor));
+        int h = Math.max(1, (int) Math.round(img.getHeight() * factor));
+        BufferedImage scaled = new BufferedImage(w, h, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(img, 0, 0, w, h, null);
+        g.dispose();
+        return scaled;
+    }
+
+    /**
+     * Writes the image to a temporary file first, so a rendition on disk is always complete
+     */
+    private void write(BufferedImage img, String extension, File out) throws IOException {
+        Files.createDirectories(store.toPath());
+        File tmp = File.createTempFile("rendition", "." + extension, store);
+        try {
+            if ("jpg".equals(extension)) {
+                writeJpg(img, tmp);
+            } else {
+                ImageIO.write(img, extension, tmp);
+            }
+            Files.move(tmp.toPath(), out.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    private void writeJpg(BufferedImage img, File out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(img, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private File rendition(String hash, int size, String extension) {
+        return new File(store, hash + "-" + size + "." + extension);
+    }
+
+    private static File original(String imagePath) {
+        return new File(Config.defaultImagePath + imagePath);
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM has SHA-256
+        }
+    }
+
+    /**
+     * Renditions of one version of an original image
+     */
+    private static class Source {
+        private final String hash;
+        private final String extension;
+        private final int[] sizes;
+        private final long modified;
+        private final long length;
+
+        private Source(String hash, String extension, int[] sizes, long modified, long length) {
+            this.hash = hash;
+            this.extension = extension;
+            this.sizes = sizes;
+            this.modified = modified;
+            this.length = length;
+        }
+
+        private boolean isCurrent(File original) {
+            return original.lastModified() == modified && original.length() == length;
+        }
+    }
+
+    /**
+     * Statistics of the renditions, sent by the stats endpoint
+     */
+    @Data
+    public static class Stats {
+        private int images;       // images with up to date renditions
+        private int queued;       // images waiting to be ingested
+        private long transcoded;  // images which were transcoded
+        private long reused;      // images whose renditions were already in the store
+        private long failures;    // images which couldn't be read or written
+    }
+}
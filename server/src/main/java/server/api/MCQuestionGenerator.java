@@ -0,0 +1,52 @@
+package server.api;
+
+import commons.Activity;
+import commons.questions.MCQuestion;
+import commons.questions.Question;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Generates multiple choice questions with 3 energy values
+ * Gets 3 random activities with similar consumptions, selects one of those and uses the other activities' consumptions
+ * We use other activities for consumptions to make the numbers feel more natural than randomly generated ones
+ */
+public class MCQuestionGenerator extends AbstractQuestionGenerator {
+
+    private static final int LIMIT = 3;
+
+    /**
+     * Creates a new generator
+     * @param index activity index to pick the activities from
+     * @param weight how often this type is picked compared to the other types
+     */
+    public MCQuestionGenerator(ActivityIndex index, int weight) {
+        super(index, weight);
+    }
+
+    @Override
+    public String getType() {
+        return "mc";
+    }
+
+    @Override
+    public boolean canGenerate(ActivityStats stats) {
+        return stats.getDistinctConsumptions() > LIMIT;
+    }
+
+    @Override
+    public Optional<Question> generate(Random random) {
+        List<Activity> activities = activitiesWithSuitableConsumptions(LIMIT, random); // gets 3 random activities
+        if (activities.size() < LIMIT) {
+            return Optional.empty();
+        }
+        // Chooses the first activity as the correct answer
+        Activity activity = activities.get(0);
+        // Make a list of the other activities' consumptions
+        List<Long> options = List.of(activities.get(1).getConsumption_in_wh(), activities.get(2).getConsumption_in_wh());
+
+        return Optional.of(new MCQuestion(activity, options));
+    }
+}
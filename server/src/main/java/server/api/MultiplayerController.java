@@ -1,17 +1,36 @@
 package server.api;
 
+import commons.Answer;
 import commons.GameUpdatesPacket;
 import commons.MultiPlayerGame;
 import commons.Player;
+import commons.PlayerChange;
+import commons.questions.Question;
+import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.async.DeferredResult;
-import server.database.ActivityRepository;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import server.Config;
+import server.multiplayer.FinishedGames;
+import server.multiplayer.GameActor;
+import server.multiplayer.GameEvents;
+import server.multiplayer.LobbyManager;
+import server.multiplayer.PhaseDurations;
 import server.multiplayer.WaitingRoom;
 
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 
@@ -21,115 +40,257 @@ import java.util.function.Consumer;
 public class MultiplayerController {
 
     /**
-     * List of everything thats different from last poll
-     * For each thing in list we send another request for the body of that change
+     * Every game and waiting room by game ID runs on its own actor, which keeps the game
+     * and its updates (sent to long polls, WebSockets and event streams)
+     * The actors of all games share the threads of actorExecutor
      */
-    private Map<Integer, MultiPlayerGame> multiplayerGames;
-    private final WaitingRoom waitingRoom;
-    private final QuestionController questionController;
-    private final ActivityRepository repo;
-
-    private Map<Integer, Map<Object, Consumer<GameUpdatesPacket>>> listeners = Collections.synchronizedMap(new HashMap<>());
+    private final Map<Integer, GameActor> games = new ConcurrentHashMap<>();
+    private final ExecutorService actorExecutor;
+    private final LobbyManager lobbies;
+    private final QuestionGeneratorRegistry generators;
+    private final ActivityIndex index;
+    private final Random random;
+    private final DeckBuilder deckBuilder;
+    private final GameScheduler scheduler;
+    private final int questionsPerGame; // size of the deck of every lobby
+    // decks of the open lobbies by lobby ID, only attached to their lobby when it is taken
+    private final Map<Integer, CompletableFuture<List<Question>>> decks = new ConcurrentHashMap<>();
+
+    private final GameEventStream eventStream;
+    private volatile GameUpdateSocket updateSocket; // set once the WebSocket is created, null without it
+    private final FinishedGames finished; // kept for their end screens, then dropped from games
+    private final GameArchive archive;
     //private Map<Object, Consumer<GameUpdatesPacket>> listeners = new HashMap<>();
 
     /**
      * Creates a Polling Controller
      * @param waitingRoom injected instance of WaitingRoom
      * @param random injected instance of Random
-     * @param repo injected instance of ActivityRepository
+     * @param index injected instance of ActivityIndex
+     * @param generators injected instance of QuestionGeneratorRegistry, generates the questions of the decks
+     * @param deckBuilder injected instance of DeckBuilder, builds the decks of the waiting rooms
+     * @param scheduler injected instance of GameScheduler, runs the phase transitions of all games
+     * @param archive injected instance of GameArchive, writes the results of the finished games to the database
      */
     @Autowired
-    public MultiplayerController(WaitingRoom waitingRoom, Random random, ActivityRepository repo){
-        this.multiplayerGames = Collections.synchronizedMap(new HashMap<>());
-        this.waitingRoom = waitingRoom;
-        this.questionController = new QuestionController(random, repo);
-        this.repo = repo;
-        generateQuestions();
+    public MultiplayerController(WaitingRoom waitingRoom, Random random, ActivityIndex index,
+                                 QuestionGeneratorRegistry generators, DeckBuilder deckBuilder,
+                                 GameScheduler scheduler, GameArchive archive){
+        this.scheduler = scheduler;
+        this.archive = archive;
+        this.finished = new FinishedGames(Config.finishedGameTtlMillis, Config.finishedGameMaxBytes,
+            Config.finishedGameSweepMillis, games::remove);
+        this.actorExecutor = Executors.newFixedThreadPool(Math.max(Config.gameActorThreads, 1), r -> {
+            Thread t = new Thread(r, "game-actor");
+            t.setDaemon(true);
+            return t;
+        });
+        this.generators = generators;
+        this.index = index;
+        this.random = random;
+        this.deckBuilder = deckBuilder;
+        this.questionsPerGame = waitingRoom.getMaxNumberOfQuestions();
+        this.eventStream = new GameEventStream(Config.eventStreamHeartbeatMillis, Config.eventStreamTimeoutMillis,
+            Config.eventStreamThreads);
+        // opens the first lobby, which starts generating its deck
+        this.lobbies = new LobbyManager(waitingRoom, Config.lobbyCapacity, Config.lobbyAutoStartPlayers,
+            Config.lobbyAutoStartMillis, scheduler, lobby -> {
+                openActor(lobby.getMultiplayerGameID());
+                generateQuestions(lobby.getMultiplayerGameID());
+            }, id -> startLobby(id, 0));
     }
 
     /**
-     * Returns the instance of the game to the client
-     * @return Multiplayer Game object
+     * Stops the threads of the game actors, the event streams and the sweep of the finished games
+     * Called by Spring when the application shuts down
+     */
+    @PreDestroy
+    public void shutdown() {
+        finished.shutdown();
+        eventStream.shutdown();
+        actorExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts the game of the lobby new players would join
+     * Kept for clients which don't send the ID of their lobby
+     * @return true if the game was started, false if the deck isn't ready yet
      */
     @GetMapping("/poll/start-multiplayer")
     public ResponseEntity<Boolean> startGame(){
-        if(waitingRoom.getQuestions().size() < waitingRoom.getMaxNumberOfQuestions()){
+        return startGame(lobbies.current().getMultiplayerGameID(), null, null, null);
+    }
+
+    /**
+     * Starts the game of a lobby
+     * The durations of its phases can be sent with the request, the lobby keeps the ones it has for the others
+     * (the configured ones, unless an earlier request changed them)
+     * @param id ID of the lobby
+     * @param loadingMillis loading screen before the first question, optional
+     * @param questionMillis time to answer a question, optional
+     * @param leaderboardMillis leaderboard shown after every question, optional
+     * @return true if the game was started, false if the deck isn't ready yet or the lobby was started already,
+     *         bad request if a duration is negative
+     */
+    @GetMapping("/poll/start-multiplayer/{id}")
+    public ResponseEntity<Boolean> startGame(
+            @PathVariable("id") int id,
+            @RequestParam(value = "loadingMillis", required = false) Long loadingMillis,
+            @RequestParam(value = "questionMillis", required = false) Long questionMillis,
+            @RequestParam(value = "leaderboardMillis", required = false) Long leaderboardMillis){
+        for(Long millis : new Long[]{loadingMillis, questionMillis, leaderboardMillis}){
+            if(millis != null && millis < 0){
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        if(lobbies.updatePhaseDurations(id, p -> p.with(loadingMillis, questionMillis, leaderboardMillis)) == null){
             return ResponseEntity.ok(false);
         }
-        int id = waitingRoom.getMultiplayerGameID();
-        multiplayerGames.put(id, waitingRoom.flushWaitingRoom());
-        multiplayerGames.get(id).setCurrentScreen("LOADING SCREEN");
-        sendToListeners(listeners.get(id), multiplayerGames.get(id).getGameStatus());
-        //listeners.get(id).forEach((k,l) -> l.accept(multiplayerGames.get(id).getGameStatus()));
-        sendQuestionToClients(3000, id);
-        generateQuestions();
-        return ResponseEntity.ok(true);
+        return ResponseEntity.ok(startLobby(id, Config.deckDeadlineMillis));
     }
 
-    private void sendToListeners(Map<Object, Consumer<GameUpdatesPacket>> listenerMap, GameUpdatesPacket gameStatus){
-        listenerMap.forEach((k, l) -> {
-            synchronized (l) {
-                l.accept(gameStatus);
-            }
+    /**
+     * Turns a lobby into a game once its deck is ready
+     * Doesn't block with waitMillis 0, so the lobby countdowns can start games on the scheduler thread
+     * @param id ID of the lobby
+     * @param waitMillis how long to wait for the deck
+     * @return true if the game was started
+     */
+    private boolean startLobby(int id, long waitMillis){
+        List<Question> deck = lobbies.get(id) == null ? null : deckReady(id, waitMillis);
+        if(deck == null){
+            return false;
+        }
+        WaitingRoom lobby = lobbies.take(id, deck);
+        if(lobby == null){
+            return false; // started by someone else in the meantime
+        }
+        decks.remove(id); // the deck was given to the game
+        MultiPlayerGame game = lobby.flushWaitingRoom();
+        game.setCurrentScreen("LOADING SCREEN");
+        GameActor actor = openActor(id);
+        actor.tell(a -> {
+            a.setGame(game);
+            a.publish(game.getGameStatus());
         });
+        PhaseDurations phases = lobby.getPhaseDurations();
+        // the scheduler only tells the actor, the phase itself runs on the actor after the game was set
+        scheduler.start(id, phases.getLoadingMillis(), () -> actor.tell(a -> sendQuestionToClients(phases, a)));
+        return true;
     }
 
+    /**
+     * Creates the actor of a lobby, the only place actors are created
+     * Requests for a game use games.get, so unknown or dropped IDs don't bring back an actor
+     * @param id ID of the lobby and of the game it becomes
+     * @return actor of the lobby
+     */
+    private GameActor openActor(int id){
+        return games.computeIfAbsent(id, k -> new GameActor(k, actorExecutor, () -> lobbyStatus(k)));
+    }
 
-    private void sendQuestionToClients(int delay, int id){
-        Timer timer = new Timer();
-
-        TimerTask task = new TimerTask() {
-            @Override
-            public void run() {
-                if(multiplayerGames.get(id).getQuestionNumber() < waitingRoom.getMaxNumberOfQuestions() - 1){
-                    multiplayerGames.get(id).setCurrentScreen("QUESTION");
-                    multiplayerGames.get(id).nextQuestion();
-                    GameUpdatesPacket packet = multiplayerGames.get(id).getGameStatus();
-                    System.out.println("Sent " + packet + " to game " + id);
-                    sendToListeners(listeners.get(id), packet);
-                    /*listeners.get(id).forEach((k, l) -> {
-                        synchronized (l) {
-                            l.accept(packet);
-                        }
-                    });*/
-                    sendLeaderboardToClients(19000, id);
-                } else {
-                    endMultiplayerGame(id);
-                }
-            }
-        };
+    private GameUpdatesPacket lobbyStatus(int id){
+        List<Player> players = lobbies.players(id);
+        return players == null ? null : new GameUpdatesPacket(players.hashCode(), "WAITINGROOM", -1);
+    }
 
-        timer.schedule(task, delay);
+    private void sendQuestionToClients(PhaseDurations phases, GameActor a){
+        if(!scheduler.isRunning(a.getId())){
+            return; // cancelled while this phase was waiting in the mailbox
+        }
+        MultiPlayerGame game = a.getGame();
+        if(game.getQuestionNumber() < game.getQuestions().size() - 1){ // every game ends with its own deck
+            game.setCurrentScreen("QUESTION");
+            game.nextQuestion();
+            a.openQuestion(phases.getQuestionMillis());
+            a.publish(game.getGameStatus());
+            scheduler.next(a.getId(), phases.getQuestionMillis(),
+                () -> a.tell(b -> sendLeaderboardToClients(phases, b)));
+        } else {
+            endMultiplayerGame(a);
+        }
     }
 
-    private void sendLeaderboardToClients(int delay, int id){
-        Timer timer = new Timer();
+    private void sendLeaderboardToClients(PhaseDurations phases, GameActor a){
+        if(!scheduler.isRunning(a.getId())){
+            return;
+        }
+        a.closeQuestion();
+        a.getGame().setCurrentScreen("LEADERBOARD");
+        a.publish(a.getGame().getGameStatus());
+        scheduler.next(a.getId(), phases.getLeaderboardMillis(),
+            () -> a.tell(b -> sendQuestionToClients(phases, b)));
+    }
 
-        TimerTask task = new TimerTask() {
-            @Override
-            public void run() {
-                multiplayerGames.get(id).setCurrentScreen("LEADERBOARD");
-                GameUpdatesPacket packet = multiplayerGames.get(id).getGameStatus();
-                System.out.println("Sent " + packet + " to game " + id);
-                sendToListeners(listeners.get(id), packet);
-                //listeners.get(id).forEach((k,l) -> l.accept(packet));
-                sendQuestionToClients(4000, id);
-            }
-        };
+    private void endMultiplayerGame(GameActor a){
+        int id = a.getId();
+        scheduler.finish(id);
+        a.closeQuestion(); // cancelled while a question was shown
+        a.getGame().setCurrentScreen("ENDSCREEN");
+        a.publish(a.getGame().getGameStatus());
+        archive.archive(id, a.getGame().getPlayers());
+        finished.add(id, FinishedGames.estimateBytes(a.getGame()));
+    }
 
-        timer.schedule(task, delay);
+    /**
+     * Cancels a running game, its players are sent to the end screen
+     * @param id ID of the game
+     * @return true if the game was running
+     */
+    @PostMapping(path = {"/poll/cancel/{id}"})
+    public ResponseEntity<Boolean> cancelGame(@PathVariable("id") int id){
+        GameActor actor = games.get(id);
+        if(actor == null || !scheduler.cancel(id)){
+            return ResponseEntity.ok(false);
+        }
+        actor.ask(a -> {
+            endMultiplayerGame(a);
+            return null;
+        }).join();
+        return ResponseEntity.ok(true);
     }
 
-    private void endMultiplayerGame(int id){
-        multiplayerGames.get(id).setCurrentScreen("ENDSCREEN");
-        GameUpdatesPacket packet = multiplayerGames.get(id).getGameStatus();
-        System.out.println("Sent " + packet + " to game " + id);
-        sendToListeners(listeners.get(id), packet);
-        //listeners.get(id).forEach((k,l) -> l.accept(packet));
-        if(id >= 5){
-            multiplayerGames.remove(id - 5);
+    /**
+     * Gets the statistics of the game scheduler
+     * @return number of running games and the drift of their phase transitions
+     */
+    @GetMapping(path = {"/poll/scheduler"})
+    public ResponseEntity<GameScheduler.Stats> getSchedulerStats(){
+        return ResponseEntity.ok(scheduler.getStats());
+    }
+
+    /**
+     * Gets the statistics of the finished games
+     * @return number of finished games kept for their players and their estimated size
+     */
+    @GetMapping(path = {"/poll/finished"})
+    public ResponseEntity<FinishedGames.Stats> getFinishedStats(){
+        return ResponseEntity.ok(finished.getStats());
+    }
+
+    /**
+     * Gets the statistics of the archive of the game results
+     * @return number of finished games waiting to be written and results written
+     */
+    @GetMapping(path = {"/poll/archive"})
+    public ResponseEntity<GameArchive.Stats> getArchiveStats(){
+        return ResponseEntity.ok(archive.getStats());
+    }
+
+    /**
+     * Gets the statistics of the game actors
+     * @return number of games and the messages they ran
+     */
+    @GetMapping(path = {"/poll/actors"})
+    public ResponseEntity<ActorStats> getActorStats(){
+        ActorStats s = new ActorStats();
+        for(GameActor a : games.values()){
+            s.setGames(s.getGames() + 1);
+            s.setQueued(s.getQueued() + a.getQueued());
+            s.setProcessed(s.getProcessed() + a.getProcessed());
+            s.setFailures(s.getFailures() + a.getFailures());
         }
-        listeners.remove(id);
+        return ResponseEntity.ok(s);
     }
 
     /**
@@ -138,7 +299,8 @@ public class MultiplayerController {
      */
     @GetMapping("/poll/multiplayer/{id}")
     public ResponseEntity<MultiPlayerGame> getGame(@PathVariable("id") int id){
-        return ResponseEntity.ok(multiplayerGames.get(id));
+        GameActor actor = games.get(id);
+        return ResponseEntity.ok(actor == null ? null : actor.ask(GameActor::snapshot).join());
     }
 
     /**
@@ -149,7 +311,8 @@ public class MultiplayerController {
      */
     @GetMapping("/poll/players/{id}")
     public ResponseEntity<List<Player>> getPlayers(@PathVariable("id") int id){
-        List<Player> playerList = multiplayerGames.get(id).getPlayers();
+        GameActor actor = games.get(id);
+        List<Player> playerList = actor == null ? new ArrayList<>() : actor.ask(GameActor::copyPlayers).join();
         Collections.sort(playerList);
         return ResponseEntity.ok(playerList);
     }
@@ -162,27 +325,13 @@ public class MultiplayerController {
      */
     @PostMapping(path={"/poll/add-player-waiting-room"})
     public ResponseEntity<Integer> postPlayerToWaitingRoom(@RequestBody Player player){
-
-        if(player == null) {
+        Integer id = lobbies.join(player);
+        if(id == null) {
             return ResponseEntity.ok(null);
         }
-        for(var p : waitingRoom.getPlayers()){
-            if(p.getName().equals(player.getName())) {
-                return ResponseEntity.ok(null);
-            }
-        }
-        waitingRoom.addPlayerToWaitingRoom(player);
-        System.out.println("Player added to the waitingroom");
 
-        listeners.computeIfAbsent(waitingRoom.getMultiplayerGameID(), k -> Collections.synchronizedMap(new HashMap<>()));
-        sendToListeners(listeners.get(waitingRoom.getMultiplayerGameID()),
-                new GameUpdatesPacket(waitingRoom.getPlayers().hashCode(), "WAITINGROOM", -1)
-        );
-        /*listeners.get(waitingRoom.getMultiplayerGameID()).forEach((k,l) ->
-            l.accept()
-        );*/
-        return ResponseEntity.ok(waitingRoom.getMultiplayerGameID());
-        //s.get(players.size()-1)
+        publishLobby(id, PlayerChange.joined(player));
+        return ResponseEntity.ok(id);
     }
     /**
      * Endpoint for removing a player from a waiting room
@@ -191,15 +340,32 @@ public class MultiplayerController {
      */
     @PostMapping(path = {"/poll/remove-player-waiting-room"})
     public ResponseEntity<Boolean> removePlayerFromWaitingRoom(@RequestBody Player player) {
-        boolean result = waitingRoom.removePlayerFromWaitingRoom(player);
-        sendToListeners(listeners.get(waitingRoom.getMultiplayerGameID()),
-                new GameUpdatesPacket(waitingRoom.getPlayers().hashCode(), "WAITINGROOM", -1)
-        );
-        /*listeners.get(waitingRoom.getMultiplayerGameID()).forEach((k,l) ->
-            l.accept(new GameUpdatesPacket(waitingRoom.getPlayers().hashCode(), "WAITINGROOM", -1))
-        );*/
-        System.out.println("Player has been removed from the waitingroom");
-        return ResponseEntity.ok(result);
+        WaitingRoom lobby = lobbies.leave(player);
+        if(lobby == null){
+            return ResponseEntity.ok(false);
+        }
+        publishLobby(lobby.getMultiplayerGameID(), PlayerChange.left(player));
+        return ResponseEntity.ok(true);
+    }
+
+    /**
+     * Sends a change of the players of a waiting room to its listeners, unless its game started in the meantime
+     * @param id ID of the waiting room
+     * @param change the player who joined or left
+     */
+    private void publishLobby(int id, PlayerChange change){
+        GameActor actor = games.get(id);
+        if(actor == null){
+            return;
+        }
+        actor.ask(a -> {
+            GameUpdatesPacket status = a.getGame() == null ? lobbyStatus(id) : null;
+            if(status != null){
+                a.change(change);
+                a.publish(status);
+            }
+            return null;
+        }).join();
     }
 
     /**
@@ -216,54 +382,163 @@ public class MultiplayerController {
     }*/
 
     /**
-     * //ToDo: change this depending on needs and multiplayegame class implementation
-     * Depending on implementation of MultiPlayerGame class this might be obsolete
-     * Server updates the score of the player
-     * @param player The player that had its score changed
-     * @return the same player with updated score
-     */
-    @PostMapping(path = {"/poll/send-score/{id}"})
-    public ResponseEntity<Player> updateScore(@PathVariable("id") int id, @RequestBody Player player){
-        Player playerInGame = null;
-        List<Player> playerList = multiplayerGames.get(id).getPlayers();
-        for(int i = 0; i < playerList.size(); i++){
-            Player p = playerList.get(i);
-            if(p.getName().equals(player.getName())){
-                playerInGame = p;
-                break;
-            }
+     * Records the answer of a player to the current question of a game
+     * The server adds the points of all answers once the question closes, and sends the new scores
+     * with the leaderboard
+     * @param id ID of the game
+     * @param answer what the player answered
+     * @return true if the answer was recorded, false if the player already answered or the question is closed,
+     *         400 if there is no such game or player
+     */
+    @PostMapping(path = {"/poll/send-answer/{id}"})
+    public ResponseEntity<Boolean> submitAnswer(@PathVariable("id") int id, @RequestBody Answer answer){
+        GameActor actor = games.get(id);
+        if (actor == null || answer == null){
+            return ResponseEntity.badRequest().build();
         }
+        Boolean recorded = actor.ask(a -> {
+            if(a.getGame() == null || a.getGame().getPlayer(answer.getName()) == null){
+                return null;
+            }
+            return a.answer(answer);
+        }).join();
 
-        if (playerInGame == null){
+        if (recorded == null){
             return ResponseEntity.badRequest().build();
         }
-        playerInGame.setScore(player.getScore());
-        return ResponseEntity.ok(player);
+        return ResponseEntity.ok(recorded);
     }
 
     /**
      * Gets a number that corresponds to what has changed
-     * @return Integer or 204 error
+     * Clients get the updates pushed over the WebSocket of the game (GameUpdateSocket) or its event stream,
+     * this long poll is kept for clients which can't open either
+     * @return Integer or 204 error, 404 if there is no such game or waiting room
      */
     @GetMapping("/poll/update/{id}")
     public DeferredResult<ResponseEntity<GameUpdatesPacket>> getUpdate(@PathVariable("id") int id){
-
-        if(!listeners.containsKey(id)){
-            listeners.put(id, Collections.synchronizedMap(new HashMap<>()));
-        }
-
         var noContent = ResponseEntity.status(HttpStatus.NO_CONTENT).build();
         var res = new DeferredResult<ResponseEntity<GameUpdatesPacket>>(5000L,noContent);
-        var key = new Object();
-        listeners.get(id).put(key,c ->{
+        var key = subscribe(id, c ->{
             res.setResult(ResponseEntity.ok(c));
         });
+        if(key == null){
+            res.setResult(ResponseEntity.notFound().build());
+            return res;
+        }
         res.onCompletion(()-> {
-            listeners.get(id).remove(key);
+            unsubscribe(id, key);
         });
         return res;
     }
 
+    /**
+     * Streams the updates of a game as server-sent events, over one long response instead of a poll per update
+     * @param id ID of the game
+     * @param lastEventId ID of the last event the client got before it reconnected, if it got any
+     * @return event stream of the game, starting with the events the client missed or the current status,
+     *         404 if there is no such game or waiting room
+     */
+    @GetMapping(path = "/poll/events/{id}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> getEvents(@PathVariable("id") int id,
+                                @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId){
+        long last = -1;
+        try {
+            last = lastEventId == null ? -1 : Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            // not one of our IDs, the stream starts with the current status
+        }
+        GameActor actor = games.get(id);
+        if(actor == null){
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(eventStream.open(actor, last));
+    }
+
+    /**
+     * Gets the statistics of the event streams
+     * @return number of open streams, and events and heartbeats sent to them
+     */
+    @GetMapping("/poll/streams")
+    public ResponseEntity<GameEventStream.Stats> getStreamStats(){
+        return ResponseEntity.ok(eventStream.getStats());
+    }
+
+    /**
+     * Sets the WebSocket of the game updates, whose statistics are sent by getSocketStats
+     * @param updateSocket WebSocket created for this controller
+     */
+    public void setUpdateSocket(GameUpdateSocket updateSocket){
+        this.updateSocket = updateSocket;
+    }
+
+    /**
+     * Gets the statistics of the WebSocket of the game updates
+     * @return number of open connections, and updates sent and dropped, 404 if there is no WebSocket
+     */
+    @GetMapping("/poll/sockets")
+    public ResponseEntity<GameUpdateSocket.Stats> getSocketStats(){
+        GameUpdateSocket socket = updateSocket;
+        return socket == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(socket.getStats());
+    }
+
+    /**
+     * Registers a listener which gets every update of a game (or waiting room) until it is unsubscribed
+     * @param id ID of the game
+     * @param listener called with every update, must not block
+     * @return key to unsubscribe the listener with, null if there is no such game or waiting room
+     */
+    public GameEvents.Listener subscribe(int id, Consumer<GameUpdatesPacket> listener){
+        GameActor actor = games.get(id);
+        if(actor == null){
+            return null;
+        }
+        GameEvents.Listener key = (eventId, packet) -> listener.accept(packet);
+        actor.ask(a -> {
+            a.getEvents().subscribe(key);
+            return null;
+        }).join();
+        return key;
+    }
+
+    /**
+     * Registers a listener which got the updates of a game up to an event ID, the updates it missed are sent first
+     * Used by the WebSockets and event streams, which resume after losing their connection
+     * @param id ID of the game
+     * @param lastEventId ID of the last update the listener got, negative if it gets the current status first
+     * @param listener called with every update and its event ID, must not block
+     * @return true if the missed updates were sent, false if the current status was sent instead,
+     *         null if there is no such game or waiting room
+     */
+    public Boolean resume(int id, long lastEventId, GameEvents.Listener listener){
+        GameActor actor = games.get(id);
+        return actor == null ? null : actor.resume(listener, lastEventId).join();
+    }
+
+    /**
+     * Removes a listener of a game
+     * @param id ID of the game
+     * @param listener listener returned by subscribe, or passed to resume
+     */
+    public void unsubscribe(int id, GameEvents.Listener listener){
+        GameActor actor = games.get(id);
+        if(actor != null){ // the actor of an old game is dropped once a newer game ended
+            actor.unsubscribe(listener);
+        }
+    }
+
+    /**
+     * Gets the current status of a game, or of the waiting room if the game hasn't started yet
+     * Sent to a WebSocket or event stream when it connects, so it doesn't wait for the next update
+     * to know where the game is
+     * @param id ID of the game
+     * @return status of the game, null if there is no such game or waiting room
+     */
+    public GameUpdatesPacket getStatus(int id){
+        GameActor actor = games.get(id);
+        return actor == null ? lobbyStatus(id) : actor.ask(GameActor::status).join();
+    }
+
     /**
      * ----------------------------------------- WAITING ROOM METHODS --------------------------------------------------
      */
@@ -274,7 +549,27 @@ public class MultiplayerController {
      */
     @GetMapping(path = {"/waiting-room/all-players"})
     public ResponseEntity<List<Player>> getWaitingRoomPlayers() {
-        return ResponseEntity.ok(waitingRoom.getPlayers());
+        return getWaitingRoomPlayers(lobbies.current().getMultiplayerGameID());
+    }
+
+    /**
+     * Endpoint for a list of players from a waiting room
+     * @param id ID of the waiting room
+     * @return The list of players currently in the waiting room, empty if its game started already
+     */
+    @GetMapping(path = {"/waiting-room/all-players/{id}"})
+    public ResponseEntity<List<Player>> getWaitingRoomPlayers(@PathVariable("id") int id) {
+        List<Player> players = lobbies.players(id);
+        return ResponseEntity.ok(players == null ? List.of() : players);
+    }
+
+    /**
+     * Gets the statistics of the waiting rooms
+     * @return number of open waiting rooms and players waiting in them
+     */
+    @GetMapping(path = {"/waiting-room/lobbies"})
+    public ResponseEntity<LobbyManager.Stats> getLobbyStats() {
+        return ResponseEntity.ok(lobbies.getStats());
     }
 
 
@@ -289,39 +584,80 @@ public class MultiplayerController {
         if ("".equals(username) || username == null) {
             return ResponseEntity.ok(false);
         }
-        for(var p : waitingRoom.getPlayers()){
-            if(p.getName().equals(username)) {
-                return ResponseEntity.ok(false);
+        return ResponseEntity.ok(lobbies.isNameFree(username));
+    }
+
+
+    /**
+     * Waits until the deck of the lobby is built
+     * If the deck couldn't be built, building it is started again (e.g. activities were added since)
+     *
+     * @param id ID of the lobby
+     * @param waitMillis how long to wait for the deck
+     * @return the deck, null if it isn't ready yet
+     */
+    private List<Question> deckReady(int id, long waitMillis) {
+        CompletableFuture<List<Question>> current = decks.get(id);
+        if (current == null) {
+            generateQuestions(id);
+            current = decks.get(id);
+        }
+        List<Question> deck = null;
+        if (current != null && !current.isDone() && waitMillis <= 0) {
+            return null; // still generating, not waited for
+        }
+        if (current != null) {
+            try {
+                deck = current.get(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                return null; // still generating
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                System.err.println("Couldn't generate questions: " + e.getCause());
             }
         }
-        return ResponseEntity.ok(true);
+        if (deck == null || deck.size() < questionsPerGame) {
+            generateQuestions(id);
+            return null;
+        }
+        return deck;
     }
 
-
     /**
-     * Generates a list of questions in a separate thread
-     */
-    private void generateQuestions() {
-        if (repo.findAll().size() >= 4) {
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    if (waitingRoom.getQuestions().size() != waitingRoom.getMaxNumberOfQuestions()) {
-                        System.out.println("Question size before: " + waitingRoom.getQuestions().size());
-                        System.out.println("NOT GENERATED");
-                        int count = waitingRoom.getMaxNumberOfQuestions();
-                        while (count > 0) {
-                            boolean isAdded = waitingRoom.addQuestion(questionController.getRandomQuestion().getBody());
-                            if (isAdded) count--;
-                        }
-                    } else {
-                        System.out.println("ALREADY GENERATED");
-                    }
-                    System.out.println("Question size after: " + waitingRoom.getQuestions().size());
-                }
-            }).start();
-        } else {
-            System.out.println("Not enough activities in the database to generate questions");
+     * Starts building the deck of a lobby on the threads of the deck builder
+     * Every deck gets its own seed, so the decks of different lobbies are built independently.
+     * The deck is only kept in its future, the lobby gets it when its game starts
+     *
+     * @param id ID of the lobby whose deck is built
+     */
+    private synchronized void generateQuestions(int id) {
+        CompletableFuture<List<Question>> deck = decks.get(id);
+        if (deck != null && !deck.isDone()) {
+            return; // already generating
         }
+        if (index.getStats().getCount() < 4) {
+            System.err.println("Not enough activities in the database to generate questions");
+            decks.remove(id);
+            return;
+        }
+        decks.put(id, deckBuilder.build(questionsPerGame, random.nextLong(), generators).thenApply(questions -> {
+            if (questions.size() < questionsPerGame) {
+                System.err.println("Couldn't generate enough distinct questions");
+            }
+            return questions;
+        }));
+    }
+
+    /**
+     * Statistics of the game actors
+     */
+    @Data
+    public static class ActorStats {
+        private int games;      // games and waiting rooms with an actor
+        private int queued;     // messages waiting in their mailboxes
+        private long processed; // messages run
+        private long failures;  // messages which threw an exception
     }
 }
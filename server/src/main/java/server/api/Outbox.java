@@ -0,0 +1,116 @@
+package server.api;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Sends the messages of one connection (a WebSocket or an event stream) one at a time
+ *
+ * Messages which come in while a send is in progress are queued, so the thread publishing an update
+ * never waits for a client. Messages carry the changes since the previous one, so none of them can just be
+ * dropped: when a slow client has too many queued, they are all replaced by one message with the whole status
+ * (made from the newest one), which makes the client fetch the game again instead of applying changes.
+ *
+ * @param <T> type of the messages
+ */
+class Outbox<T> {
+    private final BiConsumer<T, Consumer<Boolean>> writer;
+    private final int maxQueued;
+    private final UnaryOperator<T> resync;
+    private final AtomicLong sent;
+    private final AtomicLong dropped;
+
+    // guarded by this
+    private final Queue<T> queue = new ArrayDeque<>();
+    private boolean sending;
+
+    /**
+     * Creates an outbox
+     * @param writer starts sending a message, calls back with true once it was sent or false if it failed
+     * @param maxQueued maximum number of messages waiting to be sent
+     * @param resync turns the newest message into one which replaces all queued ones
+     * @param sent counter of the messages which were sent
+     * @param dropped counter of the messages which were replaced
+     */
+    Outbox(BiConsumer<T, Consumer<Boolean>> writer, int maxQueued, UnaryOperator<T> resync,
+           AtomicLong sent, AtomicLong dropped) {
+        this.writer = writer;
+        this.maxQueued = maxQueued;
+        this.resync = resync;
+        this.sent = sent;
+        this.dropped = dropped;
+    }
+
+    /**
+     * Sends a message right away, or after the messages before it
+     * @param message message to send
+     */
+    void send(T message) {
+        synchronized (this) {
+            if (sending) {
+                if (queue.size() >= maxQueued) {
+                    dropped.addAndGet(queue.size());
+                    queue.clear();
+                    queue.add(resync.apply(message));
+                } else {
+                    queue.add(message);
+                }
+                return;
+            }
+            sending = true;
+        }
+        write(message, true);
+    }
+
+    /**
+     * Sends a message only if nothing is being sent or waiting, e.g. a heartbeat, which would only take the place
+     * of a real message in the queue of a slow client. It isn't counted as sent.
+     * @param message message to send
+     * @return true if the message is being sent, false if the outbox was busy
+     */
+    boolean sendIfIdle(T message) {
+        synchronized (this) {
+            if (sending) {
+                return false;
+            }
+            sending = true;
+        }
+        write(message, false);
+        return true;
+    }
+
+    /**
+     * Gets the number of messages waiting to be sent
+     * @return size of the queue
+     */
+    synchronized int queued() {
+        return queue.size();
+    }
+
+    private void write(T message, boolean counted) {
+        try {
+            writer.accept(message, ok -> done(ok && counted));
+        } catch (RuntimeException e) { // the connection was closed
+            done(false);
+        }
+    }
+
+    private void done(boolean counted) {
+        if (counted) {
+            sent.incrementAndGet();
+        }
+        T next;
+        synchronized (this) {
+            next = queue.poll();
+            if (next == null) {
+                sending = false;
+                return;
+            }
+        }
+        write(next, true);
+    }
+}
@@ -1,46 +1,89 @@
 package server.api;
 
-import commons.*;
-import commons.questions.ComparativeQuestion;
-import commons.questions.EqualityQuestion;
-import commons.questions.EstimationQuestion;
-import commons.questions.MCQuestion;
+import commons.Activity;
 import commons.questions.Question;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import server.Config;
-import server.database.ActivityRepository;
 
-import java.io.File;
+import javax.annotation.PostConstruct;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/questions")
 public class QuestionController {
 
+    // names of the question types of the default generators
+    private static final String COMPARATIVE = "comparative";
+    private static final String ESTIMATION = "estimation";
+    private static final String MC = "mc";
+    private static final String EQUALITY = "equality";
+
+    static final String VERSION_HEADER = "Activity-Version"; // version of the index a deck was built from
+
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int BATCH_ATTEMPTS_PER_QUESTION = 10; // questions tried per question in a batch
+    private static final int RANDOM_QUESTION_ATTEMPTS = 3; // types tried before a random question fails
+
     private final Random random; // Random function from Config file
-    private final ActivityRepository repo;
+    private final ActivityIndex index; // in-memory index used for picking random activities
+    private final QuestionPool pool; // questions generated in the background
+    private final QuestionGeneratorRegistry generators; // generators of every question type
 
     /**
-     * Creates new QuestionController object
+     * Creates new QuestionController object which generates every question when it is requested
      *
      * @param random Random bean from config
-     * @param repo   repository to use
+     * @param index  activity index to pick the activities from
+     */
+    public QuestionController(Random random, ActivityIndex index) {
+        this(random, index, QuestionPool.unpooled(), QuestionGeneratorRegistry.defaults(index));
+    }
+
+    /**
+     * Creates new QuestionController object
+     *
+     * @param random     Random bean from config
+     * @param index      activity index to pick the activities from
+     * @param pool       pool the questions are taken from
+     * @param generators generators of every question type
      */
-    public QuestionController(Random random, ActivityRepository repo) {
+    @Autowired
+    public QuestionController(Random random, ActivityIndex index, QuestionPool pool,
+                              QuestionGeneratorRegistry generators) {
         this.random = random;
-        this.repo = repo;
+        this.index = index;
+        this.pool = pool;
+        this.generators = generators;
+    }
+
+    /**
+     * Registers the generators of every question type in the pool, so it starts filling up
+     * Called by Spring once the controller is created
+     */
+    @PostConstruct
+    public void registerGenerators() {
+        for (String type : generators.getTypes()) {
+            pool.register(type, () -> generate(type, random), index::getVersion);
+        }
     }
 
 
     /**
-     * Generates a random number, uses it to get a random question type
+     * Picks a random question type by weight, among the types which can be generated with the current activities
+     * If the question can't be generated anyway, another type is tried
      *
      * @return either:
      * - ResponseEntity precondition failed
@@ -51,47 +94,87 @@ public class QuestionController {
      */
     @GetMapping(path = {"/random", "/random/"})
     public ResponseEntity<Question> getRandomQuestion() {
-
-        int randomInt = random.nextInt();
-        int numberOfQuestions = 4;
-
-        // To add more question types increment numberOfQuestions and add another if statement
-        // e.g. else if(randomInt % numberOfQuestions == 1) return ...
-        if (randomInt % numberOfQuestions == 0) {
-            return getRandomComparative();
-        } else if(randomInt % numberOfQuestions == 1) {
-            return getRandomEstimation();
-        } else if(randomInt % numberOfQuestions == 2){
-            return getRandomMCQuestion();
-        } else {
-            return getRandomEquality();
+        for (int attempt = 0; attempt < RANDOM_QUESTION_ATTEMPTS; attempt++) {
+            Optional<String> type = generators.pickType(random);
+            if (type.isEmpty()) {
+                break; // no type can be generated
+            }
+            ResponseEntity<Question> res = take(type.get());
+            if (res.getStatusCode() == HttpStatus.OK) {
+                return res;
+            }
         }
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
     }
 
     /**
-     * Generates a random question with 3 random activities
-     * Initializes the image for the activities
+     * Generates a deck of distinct questions in one request
+     * No question or activity is repeated inside the deck.
+     * If the activity bank is too small for that, activities can be repeated, but questions still can't.
      *
-     * @return Comparative question with 3 activities
+     * @param n number of questions in the deck (1 to 100)
+     * @param types question types which can be in the deck (comparative, estimation, mc, equality),
+     *              all types if not specified
+     * @param seed optional seed, the same seed gives the same deck as long as the activity index
+     *             has the same version (see ActivityIndex.getVersion), also after a restart.
+     *             Seeded decks don't use the question pool.
+     * @return list of n questions with the version of the index in the Activity-Version header,
+     *         bad request if the parameters are invalid,
+     *         precondition failed if there aren't enough distinct questions
      */
-    @GetMapping(path = {"/comparative", "/comparative/"})
-    public ResponseEntity<Question> getRandomComparative() {
-
-        int limit = 3; // how many activities are included in the question
+    @GetMapping(path = {"/batch", "/batch/"})
+    public ResponseEntity<List<Question>> getQuestionBatch(
+            @RequestParam(value = "n", defaultValue = "20") int n,
+            @RequestParam(value = "types", required = false) List<String> types,
+            @RequestParam(value = "seed", required = false) Long seed) {
+
+        if (types == null || types.isEmpty()) {
+            types = generators.getTypes();
+        }
+        if (n < 1 || n > MAX_BATCH_SIZE || !generators.getTypes().containsAll(types)) {
+            return ResponseEntity.badRequest().build();
+        }
 
-        if (repo.numberDistinctConsumptions() <= limit) { // checks if the repository has enough activities with distinct consumptions
+        long version = index.getVersion();
+        List<Question> deck = buildDeck(n, types, seed == null ? null : new Random(seed));
+        if (deck.size() < n) {
             return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
         }
+        return ResponseEntity.ok().header(VERSION_HEADER, Long.toString(version)).body(deck);
+    }
 
-        List<Activity> activities = activitiesWithSuitableConsumptions(limit); // gets 3 random activities
+    /**
+     * Gets statistics of the question pool
+     * Depth, refill rate and number of fallbacks for every question type
+     *
+     * @return map from question type to its statistics
+     */
+    @GetMapping(path = {"/pool", "/pool/"})
+    public ResponseEntity<Map<String, QuestionPool.Stats>> getPoolStats() {
+        return ResponseEntity.ok(pool.getStats());
+    }
 
-        int n = (int) random.nextLong();
-        boolean isMost = n % 2 == 0; // gets a random true or false
-        ComparativeQuestion q = new ComparativeQuestion(activities, isMost);
-        for (Activity a : q.getActivities()) {
-            a.initializeImage(new File(Config.defaultImagePath + a.getImage_path()));
-        }
-        return ResponseEntity.ok(q);
+    /**
+     * Gets metrics of the question generators
+     * Availability, weight, number of generated questions, failures and average latency for every question type
+     *
+     * @return map from question type to its metrics
+     */
+    @GetMapping(path = {"/generators", "/generators/"})
+    public ResponseEntity<Map<String, QuestionGeneratorRegistry.Stats>> getGeneratorStats() {
+        return ResponseEntity.ok(generators.getStats());
+    }
+
+    /**
+     * Generates a random question with 3 random activities
+     * Images aren't included, the client gets them from the image endpoint
+     * Taken from the question pool, generated on the spot if the pool is empty
+     *
+     * @return Comparative question with 3 activities
+     */
+    @GetMapping(path = {"/comparative", "/comparative/"})
+    public ResponseEntity<Question> getRandomComparative() {
+        return take(COMPARATIVE);
     }
 
     /**
@@ -99,133 +182,123 @@ public class QuestionController {
      * Gets 3 random activities with similar consumptions
      * Selects one of those, uses the other activities' consumptions
      *      We use other activities for consumptions to make the numbers feel more natural than randomly generated ones
-     * Initializes the image for the activity
+     * Images aren't included, the client gets them from the image endpoint
+     * Taken from the question pool, generated on the spot if the pool is empty
      *
      * @return MC Question with 3 values
      */
     @GetMapping(path = {"/mc", "/mc/"})
     public ResponseEntity<Question> getRandomMCQuestion() {
-        int limit = 3;
-
-        if (repo.numberDistinctConsumptions() <= limit) {
-            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
-        }
-        List<Activity> activities = activitiesWithSuitableConsumptions(limit); // gets 3 random activities
-        // Chooses the first activity as the correct answer
-        Activity activity = activities.get(0);
-        // Make a list of the other activities' consumptions
-        List<Long> options = List.of(activities.get(1).getConsumption_in_wh(), activities.get(2).getConsumption_in_wh());
-
-        activity.initializeImage(new File(Config.defaultImagePath + activity.getImage_path()));
-
-        Question q = new MCQuestion(activity, options);
-        return ResponseEntity.ok(q);
+        return take(MC);
     }
 
     /**
      * endpoint for getting an activity for a Estimation question
+     * Taken from the question pool, generated on the spot if the pool is empty
      *
      * @return
      */
     @GetMapping(path = {"/estimation", "/estimation/"})
     public ResponseEntity<Question> getRandomEstimation() {
-        int limit = 1;
-
-        if (repo.count() <= limit) {
-            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
-        }
-
-        var activity = repo.getRandomActivities(limit).get().get(0);
-        activity.initializeImage(new File(Config.defaultImagePath + activity.getImage_path()));
-        EstimationQuestion q = new EstimationQuestion(activity);
-        return ResponseEntity.ok(q);
+        return take(ESTIMATION);
     }
 
 
     /**
      * Generates a random equality question
-     * Initializes the image for the activities
+     * Images aren't included, the client gets them from the image endpoint
+     * Taken from the question pool, generated on the spot if the pool is empty
      *
      * @return Equality Question considering 2 activities
      */
     @GetMapping(path = {"/equality", "/equality/"})
     public ResponseEntity<Question> getRandomEquality() {
+        return take(EQUALITY);
+    }
 
-        int limit = 4; // we need at least 4 activities to have this question without all having distinct consumptions
-        if (repo.count() <= limit || repo.numberDistinctConsumptions() == repo.count()) {
+    /**
+     * Takes a question of the type from the pool, generates it on the spot if the pool is empty
+     */
+    private ResponseEntity<Question> take(String type) {
+        return pool.take(type, () -> generate(type, random));
+    }
+
+    /**
+     * Generates a question of the type with the registered generator
+     *
+     * @param type name of the question type
+     * @param rng random used by the generator
+     * @return response with the question, precondition failed if it couldn't be generated
+     */
+    private ResponseEntity<Question> generate(String type, Random rng) {
+        Optional<Question> q = generators.generate(type, rng);
+        if (q.isEmpty()) {
             return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
         }
+        return ResponseEntity.ok(q.get());
+    }
 
-        // Gets a random activity which doesn't have a unique consumption
-        Activity chosen = repo.nonUniqueActivities(1).get().get(0);
-        // Gets a random activity different from chosen which has the same consumption as chosen
-        Activity correct = repo.sameConsumptionActivities(chosen.getConsumption_in_wh(), chosen.getId(), 1).get().get(0);
-
-        List<Activity> activities = activitiesWithSuitableConsumptionsGenerator(2, correct); // gets 2 random activities
-
-        // Creates a new question with a chosen, correct and list of wrong activities. Specifies the position of correct in the list of options
-        // Randomizing needs to be done here for testing
-        EqualityQuestion q = new EqualityQuestion(chosen, correct, activities, Math.abs(random.nextInt() % 3));
-        // Initialize images for the answer options
-        for (Activity a : q.getActivities()) {
-            a.initializeImage(new File(Config.defaultImagePath + a.getImage_path()));
+    /**
+     * Takes questions of random types until there are n distinct ones, or it tried too many times
+     *
+     * @param n number of questions needed
+     * @param types question types to choose from
+     * @param seeded random of a seeded deck, null if the questions can come from the pool
+     * @return list of at most n distinct questions
+     */
+    private List<Question> buildDeck(int n, List<String> types, Random seeded) {
+        Random rng = seeded == null ? random : seeded;
+        List<Question> deck = new ArrayList<>(n);
+        types = types.stream().filter(generators::isAvailable).collect(Collectors.toList());
+        if (types.isEmpty()) {
+            return deck; // none of the types can be generated
         }
-        return ResponseEntity.ok(q);
-
+        Set<String> usedActivities = new HashSet<>();
+        Set<String> usedQuestions = new HashSet<>();
+        int attempts = n * BATCH_ATTEMPTS_PER_QUESTION;
+
+        for (int i = 0; i < attempts && deck.size() < n; i++) {
+            Question q = takeQuestion(types.get((int) Math.floorMod(rng.nextLong(), (long) types.size())), seeded);
+            if (q == null) {
+                continue; // this type can't be generated right now
+            }
+            List<String> ids = activityIds(q);
+            // during the first half of the attempts activities can't be shared between questions
+            boolean sharesActivity = i < attempts / 2 && ids.stream().anyMatch(usedActivities::contains);
+            if (!sharesActivity && usedQuestions.add(q.key())) {
+                deck.add(q);
+                usedActivities.addAll(ids);
+            }
+        }
+        return deck;
     }
 
     /**
-     * Fetches a number of activities, such that they have distinct consumptions
-     * Generates a pivot to be used in the generation of such activities
+     * Takes a question of the specified type from the pool,
+     * or generates it with the seeded random if there is one
      *
-     * Split into 2 methods to input specific pivot to the generator
-     *
-     * @param limit The number of activities with distinct consumption to be fetched from the database
-     * @return A list of activities
+     * @param type name of the question type
+     * @param seeded random of a seeded deck, null if the question can come from the pool
+     * @return the question, null if it couldn't be generated
      */
-    private List<Activity> activitiesWithSuitableConsumptions(int limit) {
-
-        /* pivot may not be included in final selection
-        it is used just to have an estimate of the consumption the activities should have */
-        Activity pivot = repo.getRandomActivities(1).get().get(0);
-        return activitiesWithSuitableConsumptionsGenerator(limit, pivot);
+    private Question takeQuestion(String type, Random seeded) {
+        ResponseEntity<Question> res = seeded == null ? take(type) : generate(type, seeded);
+        return res.getStatusCode() == HttpStatus.OK ? res.getBody() : null;
     }
 
     /**
-     * Fetches a number of activities, such that they have distinct consumptions
+     * Gets the IDs of all activities used in a question
      *
-     * @param limit The number of activities with distinct consumption to be fetched from the database
-     * @param pivot Pivot that the result list has close consumptions to
-     * @return A list of activities
-     */
-    private List<Activity> activitiesWithSuitableConsumptionsGenerator(int limit, Activity pivot){
-        double lowerBound = 0.1;
-        double upperBound = 2.5;
-        List<Activity> result = new ArrayList<>();
-        // list of the IDs of the selection of activities returned by the SQL query
-        Optional<List<String>> ids;
-
-        /* get a list of random activities with consumption in the interval
-         * (lowerBound * pivot.getConsumption_in_wh(), upperBound * pivot.getConsumption_in_wh())
-         *  if the list doesn't have the needed number of activities, increase the range
-         */
-        do {
-            ids = repo.activitiesWithSpecifiedConsumption(
-                limit,
-                (int) Math.floor(lowerBound * pivot.getConsumption_in_wh()),
-                (int) Math.ceil(upperBound * pivot.getConsumption_in_wh()),
-                pivot.getConsumption_in_wh()
-            );
-            lowerBound -= 0.1; //it is not a problem for lowerBound to go below 0
-            upperBound += 0.25;
-        } while (ids.isEmpty() || ids.get().size() < limit);
-        //the while condition ensures exactly the needed number of IDs are returned and not less
-
-        for (int i = 0; i < ids.get().size(); i++) {
-            result.add(repo.findById(ids.get().get(i)).get());
+     * @param q question
+     * @return sorted list of activity IDs
+     */
+    static List<String> activityIds(Question q) {
+        List<String> ids = new ArrayList<>();
+        for (Activity a : q.activities()) {
+            ids.add(a.getId());
         }
-
-        return result;
+        Collections.sort(ids);
+        return ids;
     }
 
 }
@@ -0,0 +1,41 @@
+package server.api;
+
+import commons.questions.Question;
+
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Generates questions of one type
+ *
+ * Generators are registered in the QuestionGeneratorRegistry, which picks a type by weight
+ * among the generators which can currently generate a question.
+ */
+public interface QuestionGenerator {
+
+    /**
+     * Gets the name of the question type, used in the endpoints and the question pool
+     * @return name of the question type
+     */
+    String getType();
+
+    /**
+     * Gets how often this type is picked compared to the other types
+     * @return weight of the type, 0 if it is never picked randomly
+     */
+    int getWeight();
+
+    /**
+     * Checks if there are enough activities to generate this type of question
+     * @param stats counts of the activities in the index
+     * @return true if generate can succeed
+     */
+    boolean canGenerate(ActivityStats stats);
+
+    /**
+     * Generates a question, the images of its activities are served separately by the ImageController
+     * @param random random used for picking the activities
+     * @return the question, empty if it couldn't be generated
+     */
+    Optional<Question> generate(Random random);
+}
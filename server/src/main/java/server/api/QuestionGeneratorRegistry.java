@@ -0,0 +1,225 @@
+package server.api;
+
+import commons.questions.Question;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of the question generators
+ *
+ * Picks a random question type by weight, but only among the generators which can currently generate a question,
+ * so no request is wasted on a type that can't succeed (e.g. equality when every consumption is unique).
+ * Whether a generator can generate is checked against the ActivityStats once per version of the index.
+ * The registry also measures the latency and failures of every generator.
+ */
+public class QuestionGeneratorRegistry {
+
+    private final ActivityIndex index;
+    private final List<Entry> entries = new CopyOnWriteArrayList<>(); // in the order they were registered
+
+    /**
+     * Creates an empty registry
+     * @param index activity index the availability of the generators depends on
+     */
+    public QuestionGeneratorRegistry(ActivityIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Creates a registry with the generators of all question types, which all have the same weight
+     * @param index activity index the generators pick their activities from
+     * @return registry with comparative, estimation, mc and equality generators
+     */
+    public static QuestionGeneratorRegistry defaults(ActivityIndex index) {
+        QuestionGeneratorRegistry registry = new QuestionGeneratorRegistry(index);
+        registry.register(new ComparativeQuestionGenerator(index, 1));
+        registry.register(new EstimationQuestionGenerator(index, 1));
+        registry.register(new MCQuestionGenerator(index, 1));
+        registry.register(new EqualityQuestionGenerator(index, 1));
+        return registry;
+    }
+
+    /**
+     * Adds a generator, replaces the generator of the same type if there is one
+     * @param generator generator to add
+     */
+    public synchronized void register(QuestionGenerator generator) {
+        Entry entry = new Entry(generator);
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).generator.getType().equals(generator.getType())) {
+                entries.set(i, entry);
+                return;
+            }
+        }
+        entries.add(entry);
+    }
+
+    /**
+     * Gets the names of all registered question types
+     * @return question types in the order they were registered
+     */
+    public List<String> getTypes() {
+        List<String> types = new ArrayList<>();
+        for (Entry e : entries) {
+            types.add(e.generator.getType());
+        }
+        return types;
+    }
+
+    /**
+     * Checks if a question of the type can be generated with the current activities
+     * @param type name of the question type
+     * @return false if the type isn't registered or doesn't have enough activities
+     */
+    public boolean isAvailable(String type) {
+        Entry entry = find(type);
+        return entry != null && available(entry);
+    }
+
+    /**
+     * Picks a random type by weight among the available types
+     * Uses nextInt so the pick only depends on the values the Random returns
+     *
+     * @param random random used for the pick
+     * @return name of the question type, empty if no type is available
+     */
+    public Optional<String> pickType(Random random) {
+        List<Entry> candidates = new ArrayList<>();
+        int total = 0;
+        for (Entry e : entries) {
+            if (e.generator.getWeight() > 0 && available(e)) {
+                candidates.add(e);
+                total += e.generator.getWeight();
+            }
+        }
+        if (total == 0) {
+            return Optional.empty();
+        }
+        int pick = Math.floorMod(random.nextInt(), total);
+        for (Entry e : candidates) {
+            pick -= e.generator.getWeight();
+            if (pick < 0) {
+                return Optional.of(e.generator.getType());
+            }
+        }
+        return Optional.empty(); // not reached, the weights add up to total
+    }
+
+    /**
+     * Generates a question of the type if it is available, measures how long it took
+     *
+     * @param type name of the question type
+     * @param random random used by the generator
+     * @return the question, empty if the type isn't available or the generator failed
+     */
+    public Optional<Question> generate(String type, Random random) {
+        Entry entry = find(type);
+        if (entry == null || !available(entry)) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        Optional<Question> q;
+        try {
+            q = entry.generator.generate(random);
+        } catch (RuntimeException e) {
+            System.err.println("Couldn't generate " + type + " question: " + e.getMessage());
+            q = Optional.empty();
+        }
+        entry.nanos.addAndGet(System.nanoTime() - start);
+        if (q.isPresent()) {
+            entry.generated.incrementAndGet();
+        } else {
+            entry.failures.incrementAndGet();
+        }
+        return q;
+    }
+
+    /**
+     * Gets the metrics of every generator
+     * @return map from question type to its metrics, in the order the types were registered
+     */
+    public Map<String, Stats> getStats() {
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        for (Entry e : entries) {
+            Stats s = new Stats();
+            long calls = e.generated.get() + e.failures.get();
+            s.setAvailable(available(e));
+            s.setWeight(e.generator.getWeight());
+            s.setGenerated(e.generated.get());
+            s.setFailures(e.failures.get());
+            s.setAverageMillis(calls == 0 ? 0 : e.nanos.get() / 1e6 / calls);
+            stats.put(e.generator.getType(), s);
+        }
+        return stats;
+    }
+
+    private Entry find(String type) {
+        for (Entry e : entries) {
+            if (e.generator.getType().equals(type)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the generator can generate, the result is cached until the index changes
+     */
+    private boolean available(Entry entry) {
+        long version = index.getVersion();
+        Availability cached = entry.availability;
+        if (cached == null || cached.version != version) {
+            cached = new Availability(version, entry.generator.canGenerate(index.getStats()));
+            entry.availability = cached;
+        }
+        return cached.available;
+    }
+
+    /**
+     * Generator with its cached availability and metrics
+     */
+    private static class Entry {
+        private final QuestionGenerator generator;
+        private volatile Availability availability; // null until it is checked the first time
+        private final AtomicLong generated = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong(); // time spent in generate
+
+        private Entry(QuestionGenerator generator) {
+            this.generator = generator;
+        }
+    }
+
+    /**
+     * Result of canGenerate for one version of the index
+     */
+    private static class Availability {
+        private final long version;
+        private final boolean available;
+
+        private Availability(long version, boolean available) {
+            this.version = version;
+            this.available = available;
+        }
+    }
+
+    /**
+     * Metrics of one generator, sent by the generators endpoint
+     */
+    @Data
+    public static class Stats {
+        private boolean available;   // there are enough activities for this type right now
+        private int weight;          // how often this type is picked compared to the other types
+        private long generated;      // questions generated successfully
+        private long failures;       // generations which didn't give a question
+        private double averageMillis; // average time of one generation
+    }
+}
@@ -0,0 +1,241 @@
+package server.api;
+
+import commons.questions.Question;
+import lombok.Data;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Pool of questions which are generated before they are requested
+ *
+ * Every question type has its own bounded queue. Once a queue drops below the low watermark
+ * a worker refills it up to the capacity in the background.
+ * If a queue is empty when a question is requested, the question is generated on the request thread (fallback).
+ *
+ * A pool with capacity 0 never generates questions in the background, every request is a fallback.
+ *
+ * Every question is kept with the version of the activities it was generated from (ActivityIndex.getVersion).
+ * Once an activity is added, edited or deleted the version changes, and the questions generated before
+ * are dropped instead of served, so no question shows an activity which doesn't exist anymore.
+ */
+public class QuestionPool {
+
+    private final int capacity;
+    private final int lowWatermark;
+    private final int workers;
+    private final long createdAt = System.currentTimeMillis();
+
+    private final Map<String, TypePool> pools = new ConcurrentHashMap<>();
+    private volatile ExecutorService executor; // created when the first generator is registered
+
+    /**
+     * Creates a new question pool
+     * @param capacity maximum number of questions kept for each type
+     * @param lowWatermark refill starts when a type has fewer questions than this
+     * @param workers number of threads used to refill the pool
+     */
+    public QuestionPool(int capacity, int lowWatermark, int workers) {
+        this.capacity = Math.max(capacity, 0);
+        this.lowWatermark = Math.min(Math.max(lowWatermark, 0), this.capacity);
+        this.workers = Math.max(workers, 1);
+    }
+
+    /**
+     * Creates a pool that doesn't keep any questions
+     * @return pool with capacity 0
+     */
+    public static QuestionPool unpooled() {
+        return new QuestionPool(0, 0, 1);
+    }
+
+    /**
+     * Registers the generator for a question type and starts filling its queue
+     * The generator should return a response with status OK and a question when it succeeds
+     *
+     * @param type name of the question type
+     * @param generator generates one question of this type
+     */
+    public void register(String type, Supplier<ResponseEntity<Question>> generator) {
+        register(type, generator, () -> 0);
+    }
+
+    /**
+     * Registers the generator for a question type and starts filling its queue
+     * The generator should return a response with status OK and a question when it succeeds
+     *
+     * @param type name of the question type
+     * @param generator generates one question of this type
+     * @param version current version of what the questions are generated from, questions of an older version
+     *                are dropped
+     */
+    public synchronized void register(String type, Supplier<ResponseEntity<Question>> generator,
+                                      LongSupplier version) {
+        TypePool pool = getPool(type);
+        pool.version = version;
+        pool.generator = generator;
+        if (capacity > 0 && executor == null) {
+            executor = Executors.newFixedThreadPool(workers, r -> {
+                Thread t = new Thread(r, "question-pool");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        refillIfNeeded(pool);
+    }
+
+    /**
+     * Takes a question of the specified type from the pool
+     * If there's no question ready, fallback is used to generate one
+     *
+     * @param type name of the question type
+     * @param fallback generates a question on the calling thread
+     * @return response with a question, or the response of the fallback
+     */
+    public ResponseEntity<Question> take(String type, Supplier<ResponseEntity<Question>> fallback) {
+        TypePool pool = getPool(type);
+        Pooled pooled = pool.queue == null ? null : pool.queue.poll();
+        long version = pool.version.getAsLong();
+        while (pooled != null && pooled.version != version) {
+            pool.stale.incrementAndGet();
+            pooled = pool.queue.poll();
+        }
+        refillIfNeeded(pool);
+        if (pooled != null) {
+            return ResponseEntity.ok(pooled.question);
+        }
+        pool.fallbacks.incrementAndGet();
+        return fallback.get();
+    }
+
+    /**
+     * Gets the statistics of every question type
+     * @return map from question type to its statistics
+     */
+    public Map<String, Stats> getStats() {
+        double seconds = Math.max(System.currentTimeMillis() - createdAt, 1) / 1000.0;
+        Map<String, Stats> stats = new TreeMap<>();
+        pools.forEach((type, pool) -> {
+            Stats s = new Stats();
+            s.setDepth(pool.queue == null ? 0 : pool.queue.size());
+            s.setCapacity(capacity);
+            s.setGenerated(pool.generated.get());
+            s.setRefillRate(pool.generated.get() / seconds);
+            s.setFailures(pool.failures.get());
+            s.setFallbacks(pool.fallbacks.get());
+            s.setStale(pool.stale.get());
+            stats.put(type, s);
+        });
+        return stats;
+    }
+
+    /**
+     * Stops the refill workers
+     * Called by Spring when the application shuts down
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private TypePool getPool(String type) {
+        return pools.computeIfAbsent(type, t -> new TypePool(capacity));
+    }
+
+    /**
+     * Submits a refill of the pool if it is below the low watermark and isn't being refilled already
+     */
+    private void refillIfNeeded(TypePool pool) {
+        if (executor == null || pool.generator == null || pool.queue.size() >= Math.max(lowWatermark, 1)) {
+            return;
+        }
+        if (pool.refilling.compareAndSet(false, true)) {
+            try {
+                executor.submit(() -> refill(pool));
+            } catch (RuntimeException e) { // executor was shut down
+                pool.refilling.set(false);
+            }
+        }
+    }
+
+    /**
+     * Generates questions until the pool is full
+     * Stops early if the generator fails, the next take will try again
+     */
+    private void refill(TypePool pool) {
+        try {
+            while (pool.queue.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()) {
+                long version = pool.version.getAsLong(); // taken before, so a change while generating drops it
+                ResponseEntity<Question> res = pool.generator.get();
+                if (res.getStatusCode() != HttpStatus.OK || res.getBody() == null) {
+                    pool.failures.incrementAndGet();
+                    break;
+                }
+                pool.queue.offer(new Pooled(res.getBody(), version));
+                pool.generated.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            pool.failures.incrementAndGet();
+            System.err.println("Couldn't refill question pool: " + e.getMessage());
+        } finally {
+            pool.refilling.set(false);
+        }
+    }
+
+    /**
+     * Queue and counters of one question type
+     */
+    private static class TypePool {
+        private final BlockingQueue<Pooled> queue; // null if the capacity is 0
+        private final AtomicBoolean refilling = new AtomicBoolean(false);
+        private final AtomicLong generated = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong fallbacks = new AtomicLong();
+        private final AtomicLong stale = new AtomicLong();
+        private volatile Supplier<ResponseEntity<Question>> generator;
+        private volatile LongSupplier version = () -> 0;
+
+        private TypePool(int capacity) {
+            this.queue = capacity > 0 ? new ArrayBlockingQueue<>(capacity) : null;
+        }
+    }
+
+    /**
+     * Question in the pool with the version it was generated at
+     */
+    private static class Pooled {
+        private final Question question;
+        private final long version;
+
+        private Pooled(Question question, long version) {
+            this.question = question;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Statistics of one question type, sent by the stats endpoint
+     */
+    @Data
+    public static class Stats {
+        private int depth;          // questions ready in the pool
+        private int capacity;       // maximum number of questions in the pool
+        private long generated;     // questions generated in the background
+        private double refillRate;  // questions generated in the background per second
+        private long failures;      // background generations which failed
+        private long fallbacks;     // requests which had to generate a question themselves
+        private long stale;         // questions dropped because the activities changed after they were generated
+    }
+}
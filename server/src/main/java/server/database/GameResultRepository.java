@@ -0,0 +1,9 @@
+package server.database;
+
+import commons.GameResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface GameResultRepository extends JpaRepository<GameResult, Long> {
+}
@@ -0,0 +1,216 @@
+package server.multiplayer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Finished games kept for their players, who still fetch the game and its players on the end screen
+ *
+ * A finished game is kept until its time to live has passed, or until the finished games together take
+ * more than maxBytes, then the oldest are dropped first. The game which just ended is always kept,
+ * even if it is bigger than the budget on its own. The size of a game is estimated once when it ends,
+ * as the size of its JSON, which includes the images of its questions.
+ *
+ * Expired games are dropped by a sweep every sweepMillis, on a thread of its own.
+ */
+public class FinishedGames {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final long ttlMillis;
+    private final long maxBytes;
+    private final long sweepMillis;
+    private final IntConsumer drop;
+    private final LongSupplier clock;
+
+    // guarded by this
+    private final Map<Integer, Entry> games = new LinkedHashMap<>(); // by game ID, oldest first
+    private long bytes;
+    private long expired;
+    private long evicted;
+    private ScheduledExecutorService sweeper; // started with the first finished game
+
+    /**
+     * Creates the finished games
+     * @param ttlMillis time a finished game is kept
+     * @param maxBytes maximum total estimated size of the finished games
+     * @param sweepMillis time between two sweeps for expired games, 0 disables the sweep
+     * @param drop called with the ID of every game which isn't kept anymore
+     */
+    public FinishedGames(long ttlMillis, long maxBytes, long sweepMillis, IntConsumer drop) {
+        this(ttlMillis, maxBytes, sweepMillis, drop, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates the finished games with a clock, for testing
+     */
+    FinishedGames(long ttlMillis, long maxBytes, long sweepMillis, IntConsumer drop, LongSupplier clock) {
+        this.ttlMillis = Math.max(ttlMillis, 0);
+        this.maxBytes = Math.max(maxBytes, 0);
+        this.sweepMillis = sweepMillis;
+        this.drop = drop;
+        this.clock = clock;
+    }
+
+    /**
+     * Keeps a game which just ended, and drops the games which expired or don't fit anymore
+     * @param id ID of the game
+     * @param size estimated size of the game in bytes
+     */
+    public void add(int id, long size) {
+        List<Integer> dropped = new ArrayList<>();
+        synchronized (this) {
+            Entry old = games.remove(id);
+            if (old != null) {
+                bytes -= old.bytes;
+            }
+            games.put(id, new Entry(clock.getAsLong(), size));
+            bytes += size;
+            expire(dropped);
+            Iterator<Map.Entry<Integer, Entry>> it = games.entrySet().iterator();
+            while (bytes > maxBytes && games.size() > 1) {
+                Map.Entry<Integer, Entry> oldest = it.next();
+                it.remove();
+                bytes -= oldest.getValue().bytes;
+                evicted++;
+                dropped.add(oldest.getKey());
+            }
+            startSweeper();
+        }
+        dropped.forEach(drop::accept); // outside the lock, drop may take other locks
+    }
+
+    /**
+     * Drops the games whose time to live has passed
+     */
+    public void sweep() {
+        List<Integer> dropped = new ArrayList<>();
+        synchronized (this) {
+            expire(dropped);
+        }
+        dropped.forEach(drop::accept);
+    }
+
+    /**
+     * Gets the statistics of the finished games
+     * @return number of kept games, their size and the games dropped
+     */
+    public synchronized Stats getStats() {
+        Stats s = new Stats();
+        s.setGames(games.size());
+        s.setBytes(bytes);
+        s.setMaxBytes(maxBytes);
+        s.setTtlMillis(ttlMillis);
+        s.setExpired(expired);
+        s.setEvicted(evicted);
+        return s;
+    }
+
+    /**
+     * Stops the sweep
+     * Called by MultiplayerController when Spring destroys it
+     */
+    public synchronized void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Estimates the size of a game (or anything else sent as JSON) without keeping the JSON
+     * @param value the game
+     * @return size of its JSON in bytes, 0 if it can't be written
+     */
+    public static long estimateBytes(Object value) {
+        CountingStream counter = new CountingStream();
+        try {
+            MAPPER.writeValue(counter, value);
+        } catch (IOException e) {
+            return 0;
+        }
+        return counter.count;
+    }
+
+    private void expire(List<Integer> dropped) {
+        long oldest = clock.getAsLong() - ttlMillis;
+        Iterator<Map.Entry<Integer, Entry>> it = games.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Entry> e = it.next();
+            if (e.getValue().endedAt > oldest) {
+                break; // the others ended later
+            }
+            it.remove();
+            bytes -= e.getValue().bytes;
+            expired++;
+            dropped.add(e.getKey());
+        }
+    }
+
+    private void startSweeper() {
+        if (sweeper != null || sweepMillis <= 0) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "finished-games");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Finished game
+     */
+    private static class Entry {
+        private final long endedAt;
+        private final long bytes;
+
+        private Entry(long endedAt, long bytes) {
+            this.endedAt = endedAt;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Stream which only counts the bytes written to it
+     */
+    private static class CountingStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    /**
+     * Statistics of the finished games
+     */
+    @Data
+    public static class Stats {
+        private int games;      // finished games kept
+        private long bytes;     // their total estimated size
+        private long maxBytes;  // maximum total size
+        private long ttlMillis; // time a finished game is kept
+        private long expired;   // games dropped after their time to live
+        private long evicted;   // games dropped to stay within maxBytes
+    }
+}
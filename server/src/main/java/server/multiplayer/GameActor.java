@@ -0,0 +1,348 @@
+package server.multiplayer;
+
+import commons.Answer;
+import commons.GameUpdatesPacket;
+import commons.MultiPlayerGame;
+import commons.Player;
+import commons.PlayerChange;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Runs one multiplayer game (and its waiting room before it starts) on a mailbox
+ *
+ * All changes to the game and its listeners are messages, which run one at a time in the order they were sent,
+ * so the game, its players and its updates need no locks. The messages of all games are run by one shared
+ * pool of threads, an actor only takes a thread while it has messages, and gives it up after a batch
+ * so a busy game doesn't hold back the others. Different games run in parallel.
+ *
+ * The state of the actor must only be used from its messages. A message must not block,
+ * and must never wait for another message of the same actor.
+ */
+public class GameActor {
+
+    static final int BATCH = 32; // messages run before the thread goes to another actor
+
+    private final int id;
+    private final Executor executor;
+    private final Supplier<GameUpdatesPacket> lobbyStatus;
+    private final LongSupplier clock; // current time in milliseconds
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    // only used by the messages
+    private final GameEvents events = new GameEvents();
+    private MultiPlayerGame game; // null while the players are in the waiting room
+    private List<PlayerChange> changes = new ArrayList<>(); // sent with the next update
+    private Map<String, Answer> answers = new HashMap<>(); // answers to the current question by player name
+    private final Set<String> doublePointsUsed = new HashSet<>(); // players who used the joker in this game
+    private long questionOpened = -1; // time the current question was opened, -1 if unknown
+    private long questionMillis;      // time to answer the current question
+
+    /**
+     * Creates the actor of a game
+     * @param id ID of the game
+     * @param executor threads running the messages of all games
+     * @param lobbyStatus status of the waiting room, null if there is none (anymore)
+     */
+    public GameActor(int id, Executor executor, Supplier<GameUpdatesPacket> lobbyStatus) {
+        this(id, executor, lobbyStatus, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates the actor of a game with a clock, for testing
+     */
+    GameActor(int id, Executor executor, Supplier<GameUpdatesPacket> lobbyStatus, LongSupplier clock) {
+        this.id = id;
+        this.executor = executor;
+        this.lobbyStatus = lobbyStatus;
+        this.clock = clock;
+    }
+
+    /**
+     * Sends a message, which runs after the messages sent before it
+     * @param message message to run with this actor
+     */
+    public void tell(Consumer<GameActor> message) {
+        mailbox.add(() -> message.accept(this));
+        schedule();
+    }
+
+    /**
+     * Sends a message with a result, which runs after the messages sent before it
+     * @param message message to run with this actor
+     * @param <T> type of the result
+     * @return result of the message once it ran
+     */
+    public <T> CompletableFuture<T> ask(Function<GameActor, T> message) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        mailbox.add(() -> {
+            try {
+                result.complete(message.apply(this));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                throw e;
+            }
+        });
+        schedule();
+        return result;
+    }
+
+    /**
+     * Gets the ID of the game
+     * @return ID of the game and of its waiting room
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the game, only from a message
+     * @return the game, null if it didn't start yet
+     */
+    public MultiPlayerGame getGame() {
+        return game;
+    }
+
+    /**
+     * Starts the game, only from a message
+     * @param game game made from the waiting room
+     */
+    public void setGame(MultiPlayerGame game) {
+        this.game = game;
+    }
+
+    /**
+     * Gets the updates of the game, only from a message
+     * @return updates and listeners of the game
+     */
+    public GameEvents getEvents() {
+        return events;
+    }
+
+    /**
+     * Records a change of the players, only from a message
+     * The change is sent with the next update, so e.g. all scores of a question go out with the leaderboard
+     * @param change the change
+     */
+    public void change(PlayerChange change) {
+        changes.add(change);
+    }
+
+    /**
+     * Starts the time of the current question, only from a message
+     * Answers are timed from here, see answer
+     * @param durationMillis time to answer the question
+     */
+    public void openQuestion(long durationMillis) {
+        questionOpened = clock.getAsLong();
+        questionMillis = durationMillis;
+    }
+
+    /**
+     * Records the answer of a player to the current question, only from a message
+     * Only the first answer of a player counts, and only while the question is shown.
+     * The server doesn't trust the client with the time and the joker: the time is at least the time since the
+     * question was opened and at most the time to answer it, and double points only count once per player and game
+     * @param answer the answer, its time and joker are corrected
+     * @return true if the answer was recorded, false if the player is not in the game,
+     *         the question is closed or the player answered already
+     */
+    public boolean answer(Answer answer) {
+        if (game == null || !"QUESTION".equals(game.getCurrentScreen())
+            || answer.getQuestionNumber() != game.getQuestionNumber() || game.getPlayer(answer.getName()) == null) {
+            return false;
+        }
+        if (answers.putIfAbsent(answer.getName(), answer) != null) {
+            return false;
+        }
+        answer.setElapsed(checkedElapsed(answer.getElapsed()));
+        if (answer.isDoublePoints() && !doublePointsUsed.add(answer.getName())) {
+            answer.setDoublePoints(false); // joker used for an earlier question
+        }
+        return true;
+    }
+
+    /**
+     * Corrects the seconds it took to answer the current question with the time of the server
+     */
+    private int checkedElapsed(int elapsed) {
+        elapsed = Math.max(elapsed, 0);
+        if (questionOpened < 0) {
+            return elapsed; // opened without timing, e.g. by a test
+        }
+        int measured = (int) ((clock.getAsLong() - questionOpened) / 1000);
+        int limit = (int) ((questionMillis + 999) / 1000);
+        return Math.min(Math.max(elapsed, measured), limit);
+    }
+
+    /**
+     * Closes the current question, only from a message
+     * Adds the points of all answers in one pass, the new scores are sent with the next update
+     */
+    public void closeQuestion() {
+        if (game == null || !"QUESTION".equals(game.getCurrentScreen())) {
+            return;
+        }
+        for (Player p : game.addPointsForAnswers(answers)) {
+            change(PlayerChange.scored(p));
+        }
+        answers = new HashMap<>();
+    }
+
+    /**
+     * Sends an update to the listeners, only from a message
+     * The update gets the next version of the game and the changes recorded since the last update
+     * @param packet the update
+     */
+    public void publish(GameUpdatesPacket packet) {
+        packet.setVersion(events.getLastId() + 1); // the version is the event ID of the update
+        packet.setChanges(changes);
+        changes = new ArrayList<>();
+        events.publish(packet);
+    }
+
+    /**
+     * Gets the current status, only from a message
+     * @return full status of the game, or of the waiting room if it didn't start yet, null if there is neither
+     */
+    public GameUpdatesPacket status() {
+        GameUpdatesPacket status = game != null ? game.getGameStatus() : lobbyStatus.get();
+        if (status != null) {
+            status.setVersion(events.getLastId());
+        }
+        return status;
+    }
+
+    /**
+     * Copies the game, only from a message
+     * The copy can be sent to a client while the game goes on
+     * @return copy of the game, null if it didn't start yet
+     */
+    public MultiPlayerGame snapshot() {
+        if (game == null) {
+            return null;
+        }
+        MultiPlayerGame copy = new MultiPlayerGame(game.getGameID(), copyPlayers(), game.getQuestions());
+        copy.setQuestionNumber(game.getQuestionNumber());
+        copy.setCurrentScreen(game.getCurrentScreen());
+        return copy;
+    }
+
+    /**
+     * Copies the players of the game, only from a message
+     * @return copies of the players, empty if the game didn't start yet
+     */
+    public List<Player> copyPlayers() {
+        List<Player> copies = new ArrayList<>();
+        if (game != null) {
+            for (Player p : game.getPlayers()) {
+                Player copy = new Player();
+                copy.setId(p.getId());
+                copy.setName(p.getName());
+                if (p.getScore() != null) { // null until the player sent a score
+                    copy.setScore(p.getScore());
+                }
+                copy.setStreak(p.getStreak());
+                copies.add(copy);
+            }
+        }
+        return copies;
+    }
+
+    /**
+     * Adds a listener which got the updates up to an event ID, see GameEvents.resume
+     * @param listener the listener
+     * @param lastEventId ID of the last update it got, negative if it didn't get any
+     * @return true once the missed updates were sent, false if the current status was sent instead
+     */
+    public CompletableFuture<Boolean> resume(GameEvents.Listener listener, long lastEventId) {
+        return ask(a -> events.resume(listener, lastEventId, this::status));
+    }
+
+    /**
+     * Removes a listener
+     * @param listener the listener
+     */
+    public void unsubscribe(GameEvents.Listener listener) {
+        tell(a -> events.unsubscribe(listener));
+    }
+
+    /**
+     * Gets the number of messages waiting to run
+     * @return size of the mailbox
+     */
+    public int getQueued() {
+        return mailbox.size();
+    }
+
+    /**
+     * Gets the number of messages which ran
+     * @return number of messages
+     */
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * Gets the number of messages which threw an exception
+     * @return number of failed messages
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) { // shutting down
+                scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Runs a batch of messages, and schedules the actor again if more are waiting
+     */
+    private void drain() {
+        try {
+            for (int i = 0; i < BATCH; i++) {
+                Runnable message = mailbox.poll();
+                if (message == null) {
+                    break;
+                }
+                try {
+                    message.run();
+                } catch (RuntimeException e) { // one broken message shouldn't stop the game
+                    failures.incrementAndGet();
+                    System.err.println("Message of game " + id + " failed: " + e);
+                }
+                processed.incrementAndGet();
+            }
+        } finally {
+            scheduled.set(false);
+            if (!mailbox.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
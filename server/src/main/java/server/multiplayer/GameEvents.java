@@ -0,0 +1,130 @@
+package server.multiplayer;
+
+import commons.GameUpdatesPacket;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Updates of one multiplayer game (or of its waiting room, which has the same ID)
+ *
+ * Every update gets the next event ID of the game and is sent to all listeners in that order.
+ * The last updates are kept, so a listener which lost its connection can resume from the last event it got
+ * (the Last-Event-ID of an event stream) without missing any; if it missed more than are kept,
+ * it gets the current status of the game instead.
+ *
+ * The updates belong to the GameActor of the game and are only used from its messages,
+ * listeners are called by the actor, so they must not block.
+ */
+public class GameEvents {
+
+    public static final int HISTORY = 32; // updates kept for listeners resuming
+
+    /**
+     * Gets the updates of a game
+     */
+    public interface Listener {
+        /**
+         * Called with every update of the game
+         * @param eventId ID of the update, increasing by one with every update of the game
+         * @param packet the update
+         */
+        void accept(long eventId, GameUpdatesPacket packet);
+    }
+
+    private final Set<Listener> listeners = new LinkedHashSet<>();
+    private final Deque<Event> history = new ArrayDeque<>();
+    private long lastId;
+
+    /**
+     * Sends an update to all listeners
+     * @param packet the update
+     * @return event ID of the update
+     */
+    public long publish(GameUpdatesPacket packet) {
+        long id = ++lastId;
+        history.addLast(new Event(id, packet));
+        if (history.size() > HISTORY) {
+            history.removeFirst();
+        }
+        for (Listener l : listeners) {
+            l.accept(id, packet);
+        }
+        return id;
+    }
+
+    /**
+     * Adds a listener, which gets the updates from now on
+     * @param listener the listener
+     */
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Adds a listener which already got the updates up to an event ID (or none),
+     * the updates it missed are sent to it first
+     *
+     * @param listener the listener
+     * @param lastEventId ID of the last update it got, negative if it didn't get any
+     * @param status current status of the game, sent instead if the missed updates aren't kept anymore
+     * @return true if the missed updates were sent, false if the status was sent instead
+     */
+    public boolean resume(Listener listener, long lastEventId, Supplier<GameUpdatesPacket> status) {
+        listeners.add(listener);
+        long oldest = history.isEmpty() ? lastId + 1 : history.getFirst().id;
+        if (lastEventId >= 0 && lastEventId <= lastId && lastEventId >= oldest - 1) {
+            for (Event e : history) {
+                if (e.id > lastEventId) {
+                    listener.accept(e.id, e.packet);
+                }
+            }
+            return true;
+        }
+        GameUpdatesPacket current = status.get();
+        if (current != null) {
+            listener.accept(lastId, current);
+        }
+        return false;
+    }
+
+    /**
+     * Removes a listener
+     * @param listener the listener
+     */
+    public void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the ID of the last update
+     * @return event ID of the last update, 0 if there wasn't any
+     */
+    public long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Gets the number of listeners
+     * @return number of subscribed listeners
+     */
+    public int getListeners() {
+        return listeners.size();
+    }
+
+    /**
+     * Update with its event ID
+     */
+    private static class Event {
+        private final long id;
+        private final GameUpdatesPacket packet;
+
+        private Event(long id, GameUpdatesPacket packet) {
+            this.id = id;
+            this.packet = packet;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package server.multiplayer;
+
+import commons.Player;
+import commons.questions.Question;
+import lombok.Data;
+import server.api.GameScheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps the open waiting rooms (lobbies) of the multiplayer games
+ *
+ * New players are sent to the best fitting open lobby: the fullest one which still has room,
+ * so lobbies fill up and start sooner. A new lobby is only opened when all lobbies are full,
+ * and there is always one open lobby, so its deck can be generated before the first player arrives.
+ *
+ * A lobby starts on its own once it has autoStartPlayers players, or autoStartMillis after its first player joined.
+ * The countdown runs on the game scheduler under the ID of the game the lobby becomes,
+ * so it is replaced by the phases of the game once it starts.
+ *
+ * Usernames are unique among the players of all open lobbies, they are checked with a map from name to lobby.
+ *
+ * The lobbies aren't thread-safe, they are only read and changed under the lock of the manager.
+ * Their players are handed out as copies, and a deck is only attached when its lobby is taken.
+ */
+public class LobbyManager {
+
+    static final long RETRY_MILLIS = 1000; // time until a lobby whose deck wasn't ready tries to start again
+
+    private final int maxQuestions;
+    private final int capacity;
+    private final int autoStartPlayers;
+    private final long autoStartMillis;
+    private final GameScheduler scheduler;
+    private final Consumer<WaitingRoom> onOpen;
+    private final IntPredicate onAutoStart;
+
+    // guarded by this
+    private final Map<Integer, WaitingRoom> lobbies = new LinkedHashMap<>(); // open lobbies by game ID, oldest first
+    private final Map<String, WaitingRoom> lobbyByName = new HashMap<>();
+    private int nextId;
+    private long autoStarts;
+
+    /**
+     * Creates a new lobby manager, the first lobby is opened right away
+     *
+     * @param first first lobby, new lobbies get its number of questions
+     * @param capacity maximum number of players in a lobby
+     * @param autoStartPlayers number of players at which a lobby starts on its own
+     * @param autoStartMillis time after the first player joined at which a lobby starts on its own
+     * @param scheduler scheduler running the countdowns of the lobbies
+     * @param onOpen called when a lobby is opened, e.g. to start generating its deck
+     * @param onAutoStart starts the game of a lobby, returns false if it can't start yet
+     */
+    public LobbyManager(WaitingRoom first, int capacity, int autoStartPlayers, long autoStartMillis,
+                        GameScheduler scheduler, Consumer<WaitingRoom> onOpen, IntPredicate onAutoStart) {
+        this.maxQuestions = first.getMaxNumberOfQuestions();
+        this.capacity = Math.max(capacity, 1);
+        this.autoStartPlayers = Math.max(autoStartPlayers, 1);
+        this.autoStartMillis = autoStartMillis;
+        this.scheduler = scheduler;
+        this.onOpen = onOpen;
+        this.onAutoStart = onAutoStart;
+        synchronized (this) {
+            nextId = first.getMultiplayerGameID();
+            first.setCapacity(this.capacity);
+            open(first);
+        }
+    }
+
+    /**
+     * Adds a player to the best fitting open lobby, opens a new lobby if all of them are full
+     *
+     * @param player player to add
+     * @return ID of the lobby, null if the player has no name or the name is taken
+     */
+    public Integer join(Player player) {
+        if (player == null || player.getName() == null || player.getName().isEmpty()) {
+            return null;
+        }
+        WaitingRoom lobby;
+        int players;
+        synchronized (this) {
+            if (lobbyByName.containsKey(player.getName())) {
+                return null;
+            }
+            lobby = bestFit();
+            if (lobby == null) {
+                lobby = open(newLobby());
+            }
+            lobby.addPlayerToWaitingRoom(player);
+            lobbyByName.put(player.getName(), lobby);
+            players = lobby.getNumberOfPlayers();
+        }
+        int id = lobby.getMultiplayerGameID();
+        if (players >= autoStartPlayers) {
+            countdown(id, 0);
+        } else if (players == 1) {
+            countdown(id, autoStartMillis);
+        }
+        return id;
+    }
+
+    /**
+     * Removes a player from its lobby
+     * The countdown of a lobby is stopped when its last player leaves
+     *
+     * @param player player to remove
+     * @return the lobby the player was removed from, null if the player wasn't in a lobby
+     */
+    public synchronized WaitingRoom leave(Player player) {
+        WaitingRoom lobby = player == null ? null : lobbyByName.get(player.getName());
+        if (lobby == null || !lobby.removePlayerFromWaitingRoom(player)) {
+            return null;
+        }
+        lobbyByName.remove(player.getName());
+        if (lobby.getNumberOfPlayers() == 0) {
+            scheduler.finish(lobby.getMultiplayerGameID());
+        }
+        return lobby;
+    }
+
+    /**
+     * Checks if a username is free
+     * @param name username to check
+     * @return true if no player in an open lobby has the name
+     */
+    public synchronized boolean isNameFree(String name) {
+        return !lobbyByName.containsKey(name);
+    }
+
+    /**
+     * Gets an open lobby
+     * @param id ID of the lobby
+     * @return the lobby, null if there is no such open lobby
+     */
+    public synchronized WaitingRoom get(int id) {
+        return lobbies.get(id);
+    }
+
+    /**
+     * Gets the players of an open lobby
+     * @param id ID of the lobby
+     * @return copy of its players, null if there is no such open lobby
+     */
+    public synchronized List<Player> players(int id) {
+        WaitingRoom lobby = lobbies.get(id);
+        return lobby == null ? null : new ArrayList<>(lobby.getPlayers());
+    }
+
+    /**
+     * Changes the durations of the phases of an open lobby's game
+     * @param id ID of the lobby
+     * @param update gets the current durations, returns the new ones
+     * @return the new durations, null if there is no such open lobby
+     */
+    public synchronized PhaseDurations updatePhaseDurations(int id, UnaryOperator<PhaseDurations> update) {
+        WaitingRoom lobby = lobbies.get(id);
+        if (lobby == null) {
+            return null;
+        }
+        lobby.setPhaseDurations(update.apply(lobby.getPhaseDurations()));
+        return lobby.getPhaseDurations();
+    }
+
+    /**
+     * Gets the lobby a new player would join
+     * @return the best fitting open lobby
+     */
+    public synchronized WaitingRoom current() {
+        WaitingRoom lobby = bestFit();
+        return lobby != null ? lobby : lobbies.values().iterator().next();
+    }
+
+    /**
+     * Gets all open lobbies
+     * @return open lobbies, oldest first
+     */
+    public synchronized List<WaitingRoom> getLobbies() {
+        return new ArrayList<>(lobbies.values());
+    }
+
+    /**
+     * Takes a lobby out of the open lobbies to start its game, its players' names are free again
+     * The deck built for the lobby is attached here, so no other thread changes the lobby while it is open.
+     * A new lobby is opened if it was the last open one
+     *
+     * @param id ID of the lobby
+     * @param deck questions of the game
+     * @return the lobby with the deck, null if it isn't open (e.g. it was started already)
+     */
+    public synchronized WaitingRoom take(int id, List<Question> deck) {
+        WaitingRoom lobby = lobbies.remove(id);
+        if (lobby == null) {
+            return null;
+        }
+        for (Question q : deck) {
+            lobby.addQuestion(q);
+        }
+        for (Player p : lobby.getPlayers()) {
+            lobbyByName.remove(p.getName());
+        }
+        if (lobbies.isEmpty()) {
+            open(newLobby());
+        }
+        return lobby;
+    }
+
+    /**
+     * Gets the statistics of the lobbies
+     * @return number of open lobbies, players waiting in them and lobbies which started on their own
+     */
+    public synchronized Stats getStats() {
+        Stats s = new Stats();
+        s.setLobbies(lobbies.size());
+        s.setPlayers(lobbyByName.size());
+        s.setAutoStarts(autoStarts);
+        return s;
+    }
+
+    /**
+     * Fullest lobby which still has room, the oldest one if several are equally full
+     */
+    private WaitingRoom bestFit() {
+        WaitingRoom best = null;
+        for (WaitingRoom lobby : lobbies.values()) {
+            if (!lobby.isFull() && (best == null || lobby.getNumberOfPlayers() > best.getNumberOfPlayers())) {
+                best = lobby;
+            }
+        }
+        return best;
+    }
+
+    private WaitingRoom newLobby() {
+        WaitingRoom lobby = new WaitingRoom(new ArrayList<>(), new ArrayList<>(), maxQuestions);
+        lobby.setMultiplayerGameID(nextId);
+        lobby.setCapacity(capacity);
+        return lobby;
+    }
+
+    private WaitingRoom open(WaitingRoom lobby) {
+        nextId = Math.max(nextId, lobby.getMultiplayerGameID() + 1);
+        if (lobby.getPhaseDurations() == null) {
+            lobby.setPhaseDurations(PhaseDurations.defaults());
+        }
+        lobbies.put(lobby.getMultiplayerGameID(), lobby);
+        onOpen.accept(lobby);
+        return lobby;
+    }
+
+    /**
+     * Starts the lobby on its own after the delay, tries again later if its game can't start yet
+     */
+    private void countdown(int id, long delayMillis) {
+        scheduler.start(id, delayMillis, () -> autoStart(id));
+    }
+
+    private void autoStart(int id) {
+        List<Player> players = players(id);
+        if (players == null || players.isEmpty()) {
+            return; // started by a player, or everyone left
+        }
+        if (onAutoStart.test(id)) {
+            synchronized (this) {
+                autoStarts++;
+            }
+        } else if (get(id) != null) {
+            scheduler.next(id, RETRY_MILLIS, () -> autoStart(id));
+        }
+    }
+
+    /**
+     * Statistics of the lobbies, sent by the stats endpoint
+     */
+    @Data
+    public static class Stats {
+        private int lobbies;      // open lobbies
+        private int players;      // players waiting in the open lobbies
+        private long autoStarts;  // lobbies which started on their own
+    }
+}
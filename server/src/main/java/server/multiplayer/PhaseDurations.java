@@ -0,0 +1,40 @@
+package server.multiplayer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import server.Config;
+
+/**
+ * How long every phase of a multiplayer game lasts
+ * Every waiting room has its own durations, the configured ones unless its start request set others.
+ * Its game keeps them once it starts
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhaseDurations {
+    private long loadingMillis;      // loading screen before the first question
+    private long questionMillis;     // time to answer a question
+    private long leaderboardMillis;  // leaderboard shown after every question
+
+    /**
+     * Durations from the configuration
+     * @return new PhaseDurations with the configured durations
+     */
+    public static PhaseDurations defaults() {
+        return new PhaseDurations(Config.loadingPhaseMillis, Config.questionPhaseMillis, Config.leaderboardPhaseMillis);
+    }
+
+    /**
+     * Copy of these durations with some of them replaced
+     * @param loading new loading screen duration, null to keep this one
+     * @param question new question duration, null to keep this one
+     * @param leaderboard new leaderboard duration, null to keep this one
+     * @return new PhaseDurations
+     */
+    public PhaseDurations with(Long loading, Long question, Long leaderboard) {
+        return new PhaseDurations(loading == null ? loadingMillis : loading,
+            question == null ? questionMillis : question, leaderboard == null ? leaderboardMillis : leaderboard);
+    }
+}
@@ -3,10 +3,16 @@ package server.multiplayer;
 import commons.MultiPlayerGame;
 import commons.Player;
 import commons.questions.Question;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A Waiting room class that will store the players who are waiting to enter a game. The mechanics of this
@@ -18,8 +24,18 @@ import java.util.List;
 public class WaitingRoom {
     private int multiplayerGameID;      // a waiting room id which is incremented every time a new game is started (flush count)
     private List<Player> players;       // list of players
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient Set<String> playerNames; // names of the players, for checking usernames without a scan
+    private int capacity = Integer.MAX_VALUE; // maximum number of players
     private List<Question> questions;   // list of questions
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient Set<String> questionKeys; // keys of the questions, for finding duplicates without equals
     private int maxNumberOfQuestions;   // maximal number of questions
+    private PhaseDurations phaseDurations; // durations of the phases of the game this waiting room becomes
     /**
      * no args constructor
      */
@@ -64,11 +80,73 @@ public class WaitingRoom {
      * @return true if question was added, false otherwise
      */
     public boolean addQuestion(Question question){
-        if(questions.contains(question) || question == null)
+        if(question == null || !questionKeys().add(question.key()))
             return false;
         return questions.add(question);
     }
 
+    /**
+     * Sets the list of questions
+     * @param questions new list of questions
+     */
+    public void setQuestions(List<Question> questions) {
+        this.questions = questions;
+        this.questionKeys = null;
+    }
+
+    /**
+     * Gets the keys of the questions in the list
+     * Rebuilt if the list was changed without addQuestion
+     * @return set of question keys
+     */
+    private Set<String> questionKeys() {
+        if (questionKeys == null || questionKeys.size() != questions.size()) {
+            questionKeys = Question.keys(questions);
+        }
+        return questionKeys;
+    }
+
+    /**
+     * Sets the list of players
+     * @param players new list of players
+     */
+    public void setPlayers(List<Player> players) {
+        this.players = players;
+        this.playerNames = null;
+    }
+
+    /**
+     * Gets the names of the players in the list
+     * Rebuilt if the list was changed without adding or removing a player through the waiting room
+     * @return set of player names
+     */
+    private Set<String> playerNames() {
+        if (playerNames == null || playerNames.size() != players.size()) {
+            playerNames = new HashSet<>();
+            for (Player p : players) {
+                playerNames.add(p.getName());
+            }
+        }
+        return playerNames;
+    }
+
+    /**
+     * Checks if a player with the name is in the waiting room
+     * @param name username to check
+     * @return true if the name is taken
+     */
+    public boolean hasPlayer(String name) {
+        return playerNames().contains(name);
+    }
+
+    /**
+     * Checks if the waiting room has room for another player
+     * @return true if the number of players reached the capacity
+     */
+    public boolean isFull() {
+        return players.size() >= capacity;
+    }
+
     /**
      * Adding a player to a waiting room
      * @return true if a players name is unique else returns false
@@ -78,7 +156,8 @@ public class WaitingRoom {
         if(player == null
             || player.getName() == null
             || player.getName().isEmpty()
-            || this.players.contains(player)) return false;
+            || isFull()
+            || !playerNames().add(player.getName())) return false;
         return this.players.add(player);
     }
 
@@ -91,7 +170,13 @@ public class WaitingRoom {
      *          the player was not in the player list
      */
     public boolean removePlayerFromWaitingRoom(Player player) {
-        return this.players.remove(player);
+        if (player == null || !this.players.remove(player)) {
+            return false;
+        }
+        if (playerNames != null) {
+            playerNames.remove(player.getName());
+        }
+        return true;
     }
 
     /**
@@ -110,7 +195,9 @@ public class WaitingRoom {
     public MultiPlayerGame flushWaitingRoom(){
         MultiPlayerGame game = new MultiPlayerGame(multiplayerGameID, players, questions);
         questions = new ArrayList<>();
+        questionKeys = null;
         players = new ArrayList<>();
+        playerNames = null;
         multiplayerGameID++;
         return game;
     }
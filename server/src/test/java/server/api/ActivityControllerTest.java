@@ -5,7 +5,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.ResponseEntity;
 import server.api.dependencies.TestActivityRepository;
+import server.api.dependencies.TestRandom;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -30,7 +32,9 @@ class ActivityControllerTest {
     @BeforeEach
     public void setup(){
         repo = new TestActivityRepository();
-        act = new ActivityController(repo);
+        random = new TestRandom();
+        act = new ActivityController(repo, new ActivityIndex(repo), random, new ImageCache(0),
+            ImageRenditions.direct(new File("renditions"), new int[0], 0.8f));
 
         activities = List.of(
                 new Activity("1", "image_a","a", 1L, "a"),
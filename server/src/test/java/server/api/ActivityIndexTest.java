@@ -0,0 +1,243 @@
+package server.api;
+
+import commons.Activity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.api.dependencies.TestActivityRepository;
+import server.api.dependencies.TestRandom;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the in-memory activity index
+ */
+class ActivityIndexTest {
+
+    private TestActivityRepository repo;
+    private TestRandom random;
+    private ActivityIndex index;
+
+    private List<Activity> activities;
+
+    /**
+     * Sets up a new index with testing dependencies
+     * Runs before every test
+     */
+    @BeforeEach
+    public void setup(){
+        repo = new TestActivityRepository();
+        random = new TestRandom();
+        index = new ActivityIndex(repo);
+
+        activities = List.of(
+            new Activity("1", "image_a","a", 1L, "a"),
+            new Activity("2", "image_b","b", 2L, "b"),
+            new Activity("3", "image_c","c", 3L, "c"),
+            new Activity("4", "image_d","d", 3L, "d"),
+            new Activity("5", "image_e","e", 5L, "e")
+        );
+        repo.activities.addAll(activities);
+    }
+
+    /**
+     * Index is loaded from the repository when it is first used
+     */
+    @Test
+    void loadTest() {
+        assertEquals(5, index.size());
+        assertEquals(4, index.distinctConsumptions());
+    }
+
+    /**
+     * Stats follow the changes of the index without reloading it
+     */
+    @Test
+    void statsTest() {
+        assertEquals(new ActivityStats(5, 4, 1), index.getStats());
+        repo.queries = 0;
+
+        index.put(new Activity("6", "image_f", "f", 5L, "f"));
+        assertEquals(new ActivityStats(6, 4, 2), index.getStats());
+        index.remove("3");
+        assertEquals(new ActivityStats(5, 4, 1), index.getStats());
+        assertEquals(0, repo.queries);
+    }
+
+    /**
+     * Version changes when the activities change
+     */
+    @Test
+    void versionTest() {
+        long version = index.getVersion();
+        assertEquals(version, index.getVersion());
+        index.put(new Activity("6", "image_f", "f", 10L, "f"));
+        assertNotEquals(version, index.getVersion());
+    }
+
+    /**
+     * Version only depends on the activities, so it is the same after a restart
+     */
+    @Test
+    void versionRestartTest() {
+        long version = index.getVersion();
+        TestActivityRepository other = new TestActivityRepository();
+        other.activities.addAll(activities);
+        assertEquals(version, new ActivityIndex(other).getVersion());
+
+        index.put(new Activity("6", "image_f", "f", 10L, "f"));
+        index.remove("6");
+        assertEquals(version, index.getVersion());
+    }
+
+    /**
+     * Random activity is a copy of one of the activities
+     */
+    @Test
+    void randomActivityTest() {
+        Activity a = index.randomActivity(random).get();
+        assertTrue(activities.contains(a));
+        a.setTitle("changed");
+        assertFalse(activities.contains(a));
+    }
+
+    /**
+     * Empty index doesn't return an activity
+     */
+    @Test
+    void randomActivityEmptyTest() {
+        repo.activities.clear();
+        assertTrue(index.randomActivity(random).isEmpty());
+    }
+
+    /**
+     * Picked activities are in the interval, have distinct consumptions and skip the excluded consumption
+     */
+    @Test
+    void activitiesWithSpecifiedConsumptionTest() {
+        for (int i = 0; i < 10; i++) {
+            List<Activity> result = index.activitiesWithSpecifiedConsumption(2, 1, 6, 3, random);
+            assertEquals(2, result.size());
+            Set<Long> consumptions = new HashSet<>();
+            for (Activity a : result) {
+                consumptions.add(a.getConsumption_in_wh());
+            }
+            assertEquals(Set.of(2L, 5L), consumptions);
+        }
+    }
+
+    /**
+     * Not enough distinct consumptions in the interval returns an empty list
+     */
+    @Test
+    void activitiesWithSpecifiedConsumptionNotEnoughTest() {
+        assertEquals(List.of(), index.activitiesWithSpecifiedConsumption(3, 1, 6, 3, random));
+        assertEquals(List.of(), index.activitiesWithSpecifiedConsumption(1, 5, 5, 0, random));
+    }
+
+    /**
+     * Put adds new activities and replaces activities with the same ID
+     */
+    @Test
+    void putTest() {
+        index.size(); // loads the index
+        index.put(new Activity("6", "image_f", "f", 10L, "f"));
+        index.put(new Activity("1", "image_a", "a", 20L, "a"));
+
+        assertEquals(6, index.size());
+        List<Activity> result = index.activitiesWithSpecifiedConsumption(2, 5, 30, 0, random);
+        assertEquals(2, result.size());
+        assertTrue(result.contains(new Activity("6", "image_f", "f", 10L, "f")));
+        assertTrue(result.contains(new Activity("1", "image_a", "a", 20L, "a")));
+    }
+
+    /**
+     * Removed activities can't be picked anymore
+     */
+    @Test
+    void removeTest() {
+        index.size(); // loads the index
+        index.remove("2");
+        index.remove("8");
+
+        assertEquals(4, index.size());
+        assertEquals(List.of(), index.activitiesWithSpecifiedConsumption(1, 1, 3, 0, random));
+    }
+
+    /**
+     * Activities are found by ID, also after they are updated
+     */
+    @Test
+    void findByIdTest() {
+        assertEquals(Optional.of(activities.get(2)), index.findById("3"));
+        assertEquals(Optional.empty(), index.findById("9"));
+
+        index.put(new Activity("3", "image_x", "c", 3L, "c"));
+        assertEquals("image_x", index.findById("3").get().getImage_path());
+        index.remove("3");
+        assertEquals(Optional.empty(), index.findById("3"));
+    }
+
+    /**
+     * Writes to a large index keep it the same as loading the activities again
+     */
+    @Test
+    void largeIndexTest() {
+        Random r = new Random(42);
+        Map<String, Activity> expected = new LinkedHashMap<>();
+        repo.activities.clear();
+        for (int i = 0; i < 20000; i++) {
+            Activity a = new Activity("a" + i, "image", "t" + i, (long) r.nextInt(5000), "s");
+            expected.put(a.getId(), a);
+            repo.activities.add(a);
+        }
+        assertEquals(20000, index.size());
+
+        for (int op = 0; op < 2000; op++) {
+            String id = "a" + r.nextInt(25000); // existing or new
+            switch (op % 3) {
+                case 0:
+                    Activity a = new Activity(id, "image", "u" + op, (long) r.nextInt(5000), "s");
+                    index.put(a);
+                    expected.put(id, a);
+                    break;
+                case 1:
+                    index.remove(id);
+                    expected.remove(id);
+                    break;
+                default:
+                    List<Activity> batch = new ArrayList<>();
+                    for (int k = 0; k < 10; k++) {
+                        Activity b = new Activity("a" + r.nextInt(25000), "image", "v" + op, (long) r.nextInt(5000), "s");
+                        batch.add(b);
+                        expected.put(b.getId(), b);
+                    }
+                    index.putAll(batch);
+            }
+        }
+
+        TestActivityRepository reloaded = new TestActivityRepository();
+        reloaded.activities.addAll(expected.values());
+        assertEquals(new ActivityIndex(reloaded).getStats(), index.getStats());
+        for (Activity a : expected.values()) {
+            assertEquals(Optional.of(a), index.findById(a.getId()));
+        }
+        for (int i = 0; i < 100; i++) {
+            Activity[] pair = index.randomEqualPair(random).get();
+            assertEquals(pair[0].getConsumption_in_wh(), pair[1].getConsumption_in_wh());
+            assertNotEquals(pair[0].getId(), pair[1].getId());
+        }
+        for (Activity a : index.activitiesWithSpecifiedConsumption(50, 1000, 2000, 1500, random)) {
+            assertTrue(a.getConsumption_in_wh() > 1000 && a.getConsumption_in_wh() < 2000);
+            assertNotEquals(1500L, a.getConsumption_in_wh());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package server.api;
+
+import commons.Activity;
+import server.api.dependencies.TestActivityRepository;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * Compares picking random activities with ORDER BY random() in the database
+ * to sampling them from the ActivityIndex
+ *
+ * Not a test, run the main method (H2 is on the test runtime classpath).
+ * For 1k, 10k and 100k activities it prints the average time of one random activity
+ * and of 3 activities with distinct consumptions in a band, for both strategies.
+ */
+public class ActivitySamplingBenchmark {
+
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+    private static final int QUERY_RUNS = 20;
+    private static final int INDEX_RUNS = 100_000;
+
+    // the queries ActivityRepository used before the index
+    private static final String RANDOM_QUERY = "SELECT * FROM Activity ORDER BY random() LIMIT ?";
+    private static final String BAND_QUERY = "SELECT ID, CONSUMPTION_IN_WH, IMAGE_PATH, SOURCE, TITLE FROM "
+        + "(SELECT *, ROW_NUMBER() OVER (PARTITION BY CONSUMPTION_IN_WH) AS temp, FROM (SELECT * FROM Activity ORDER BY random() )) "
+        + "WHERE temp = 1 AND CONSUMPTION_IN_WH < ? AND CONSUMPTION_IN_WH > ? AND CONSUMPTION_IN_WH != ? LIMIT ?";
+
+    /**
+     * Runs the benchmark
+     * @param args not used
+     * @throws SQLException if H2 isn't available
+     */
+    public static void main(String[] args) throws SQLException {
+        System.out.printf("%8s | %14s %14s | %14s %14s%n", "rows", "random (sql)", "random (index)", "band (sql)", "band (index)");
+        for (int n : SIZES) {
+            run(n);
+        }
+    }
+
+    private static void run(int n) throws SQLException {
+        Random random = new Random(n);
+        TestActivityRepository repo = new TestActivityRepository();
+        try (Connection db = DriverManager.getConnection("jdbc:h2:mem:bench" + n)) {
+            try (Statement s = db.createStatement()) {
+                s.execute("CREATE TABLE Activity (ID VARCHAR(255) PRIMARY KEY, CONSUMPTION_IN_WH BIGINT, "
+                    + "IMAGE_PATH VARCHAR(255), SOURCE VARCHAR(255), TITLE VARCHAR(255))");
+            }
+            try (PreparedStatement insert = db.prepareStatement("INSERT INTO Activity VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < n; i++) {
+                    Activity a = new Activity(String.valueOf(i), "image_" + i, "title " + i,
+                        (long) random.nextInt(n / 2) + 1, "source");
+                    repo.activities.add(a);
+                    insert.setString(1, a.getId());
+                    insert.setLong(2, a.getConsumption_in_wh());
+                    insert.setString(3, a.getImage_path());
+                    insert.setString(4, a.getSource());
+                    insert.setString(5, a.getTitle());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+
+            ActivityIndex index = new ActivityIndex(repo);
+            index.size(); // loads the index before timing it
+            long pivot = n / 4;
+
+            double randomSql = timeQuery(db, RANDOM_QUERY, 1, 0, 0, 0);
+            double bandSql = timeQuery(db, BAND_QUERY, pivot * 2, pivot / 2, pivot, 3);
+            double randomIndex = timeIndex(() -> index.randomActivity(random));
+            double bandIndex = timeIndex(() -> index.activitiesWithSpecifiedConsumption(3, pivot / 2, pivot * 2, pivot, random));
+
+            System.out.printf("%8d | %11.3f ms %11.5f ms | %11.3f ms %11.5f ms%n", n, randomSql, randomIndex, bandSql, bandIndex);
+        }
+    }
+
+    /**
+     * @return average time of the query in milliseconds, only the parameters the query has are used
+     */
+    private static double timeQuery(Connection db, String sql, long first, long second, long third, long fourth)
+        throws SQLException {
+        try (PreparedStatement query = db.prepareStatement(sql)) {
+            long[] params = {first, second, third, fourth};
+            for (int p = 0; p < query.getParameterMetaData().getParameterCount(); p++) {
+                query.setLong(p + 1, params[p]);
+            }
+            long start = 0;
+            for (int i = -QUERY_RUNS / 4; i < QUERY_RUNS; i++) { // the first runs are warmup
+                if (i == 0) {
+                    start = System.nanoTime();
+                }
+                try (ResultSet rs = query.executeQuery()) {
+                    while (rs.next()) {
+                        rs.getString(1);
+                    }
+                }
+            }
+            return (System.nanoTime() - start) / 1e6 / QUERY_RUNS;
+        }
+    }
+
+    /**
+     * @return average time of the pick in milliseconds
+     */
+    private static double timeIndex(Runnable pick) {
+        for (int i = 0; i < INDEX_RUNS; i++) { // warmup
+            pick.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < INDEX_RUNS; i++) {
+            pick.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / INDEX_RUNS;
+    }
+}
@@ -4,9 +4,12 @@ import commons.GameUpdatesPacket;
 import commons.MultiPlayerGame;
 import org.junit.jupiter.api.Test;
 import server.Config;
+import server.PerThreadRandom;
+import server.api.dependencies.TestActivityRepository;
 import server.multiplayer.WaitingRoom;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -26,7 +29,49 @@ public class ConfigTest {
     void getRandomTest() {
         Random random = config.getRandom();
 
-        assertTrue(random instanceof Random);
+        assertTrue(random instanceof PerThreadRandom);
+        for (int i = 0; i < 100; i++) {
+            int n = random.nextInt(10);
+            assertTrue(n >= 0 && n < 10);
+        }
+    }
+
+    @Test
+    void getQuestionPoolTest() {
+        QuestionPool pool = config.getQuestionPool();
+        assertTrue(pool.getStats().isEmpty());
+        pool.shutdown();
+    }
+
+    @Test
+    void getQuestionGeneratorRegistryTest() {
+        QuestionGeneratorRegistry registry = config.getQuestionGeneratorRegistry(
+            new ActivityIndex(new TestActivityRepository()));
+        assertEquals(List.of("comparative", "estimation", "mc", "equality"), registry.getTypes());
+    }
+
+    @Test
+    void getImageCacheTest() {
+        assertEquals(Config.imageCacheMaxBytes, config.getImageCache().getStats().getMaxBytes());
+    }
+
+    @Test
+    void getImageRenditionsTest() {
+        ImageRenditions renditions = config.getImageRenditions();
+        assertEquals(0, renditions.getStats().getImages());
+        renditions.shutdown();
+    }
+
+    @Test
+    void getGameSchedulerTest() {
+        GameScheduler scheduler = config.getGameScheduler();
+        assertEquals(Config.gameSchedulerThreads, scheduler.getStats().getThreads());
+        scheduler.shutdown();
+    }
+
+    @Test
+    void getImagePackTest() {
+        assertEquals(0, config.getImagePack().getStats().getImages());
     }
 
     @Test
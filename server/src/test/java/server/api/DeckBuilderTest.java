@@ -0,0 +1,74 @@
+package server.api;
+
+import commons.Activity;
+import commons.questions.Question;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.api.dependencies.TestActivityRepository;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for building decks in parallel
+ */
+class DeckBuilderTest {
+
+    private QuestionGeneratorRegistry generators;
+
+    /**
+     * Sets up the default generators with 20 activities
+     */
+    @BeforeEach
+    public void setup() {
+        TestActivityRepository repo = new TestActivityRepository();
+        for (int i = 1; i <= 20; i++) {
+            repo.activities.add(new Activity(String.valueOf(i), "image", "title", (long) (i % 10 + 1) * 100, "source"));
+        }
+        generators = QuestionGeneratorRegistry.defaults(new ActivityIndex(repo));
+    }
+
+    /**
+     * Deck has the requested number of distinct questions
+     */
+    @Test
+    void buildTest() throws ExecutionException, InterruptedException {
+        List<Question> deck = DeckBuilder.direct().build(10, 1, generators).get();
+        assertEquals(10, deck.size());
+        assertEquals(10, new HashSet<>(deck).size());
+    }
+
+    /**
+     * Parallel builder gives the same deck as the direct one for the same seed
+     */
+    @Test
+    void buildParallelTest() throws ExecutionException, InterruptedException {
+        DeckBuilder parallel = new DeckBuilder(4, 2);
+        try {
+            assertEquals(DeckBuilder.direct().build(10, 42, generators).get(), parallel.build(10, 42, generators).get());
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    /**
+     * Questions of the decks are counted in the metrics of the generators
+     */
+    @Test
+    void metricsTest() {
+        DeckBuilder.direct().build(5, 3, generators).join();
+        assertTrue(generators.getStats().values().stream().mapToLong(QuestionGeneratorRegistry.Stats::getGenerated)
+            .sum() >= 5);
+    }
+
+    /**
+     * Empty deck is ready immediately
+     */
+    @Test
+    void buildEmptyTest() {
+        assertEquals(List.of(), DeckBuilder.direct().build(0, 1, generators).join());
+    }
+}
@@ -0,0 +1,103 @@
+package server.api;
+
+import commons.GameResult;
+import commons.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the archive of the game results
+ */
+class GameArchiveTest {
+
+    private GameArchive archive;
+
+    /**
+     * Stops the writing thread
+     */
+    @AfterEach
+    public void teardown() {
+        if (archive != null) {
+            archive.shutdown();
+        }
+    }
+
+    /**
+     * Players are ranked by their score, players without a score are last
+     */
+    @Test
+    void resultsTest() {
+        Player none = new Player();
+        none.setName("c");
+        List<GameResult> results = GameArchive.results(4, List.of(new Player("a", 10), none, new Player("b", 30)), 7);
+
+        assertEquals(List.of(new GameResult(4, "b", 30, 1, 7), new GameResult(4, "a", 10, 2, 7),
+            new GameResult(4, "c", 0, 3, 7)), results);
+    }
+
+    /**
+     * Games which end while the database is busy are written together, once the queue is full games are dropped
+     */
+    @Test
+    void batchTest() throws InterruptedException {
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<List<GameResult>> batches = new ArrayList<>();
+        archive = new GameArchive(batch -> {
+            busy.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (batches) {
+                batches.add(batch);
+            }
+        }, 2, 10);
+
+        assertTrue(archive.archive(1, List.of(new Player("a", 1))));
+        assertTrue(busy.await(5, TimeUnit.SECONDS)); // the first game is being written
+        assertTrue(archive.archive(2, List.of(new Player("b", 2))));
+        assertTrue(archive.archive(3, List.of(new Player("c", 3), new Player("d", 4))));
+        assertFalse(archive.archive(4, List.of(new Player("e", 5))));
+        release.countDown();
+
+        for (int i = 0; i < 100 && archive.getStats().getArchived() < 4; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(4, archive.getStats().getArchived());
+        assertEquals(2, archive.getStats().getBatches());
+        assertEquals(1, archive.getStats().getDropped());
+        synchronized (batches) {
+            assertEquals(3, batches.get(1).size()); // games 2 and 3
+        }
+    }
+
+    /**
+     * A failing write is counted and doesn't stop the archive
+     */
+    @Test
+    void failureTest() throws InterruptedException {
+        archive = new GameArchive(batch -> {
+            if (batch.get(0).getGameId() == 1) {
+                throw new IllegalStateException("database is down");
+            }
+        }, 10, 1);
+        archive.archive(1, List.of(new Player("a", 1)));
+        archive.archive(2, List.of(new Player("b", 1)));
+
+        for (int i = 0; i < 100 && archive.getStats().getArchived() < 1; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, archive.getStats().getFailures());
+        assertEquals(1, archive.getStats().getArchived());
+        assertFalse(GameArchive.none().archive(1, List.of()));
+    }
+}
@@ -0,0 +1,120 @@
+package server.api;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the scheduler of the game phases
+ */
+class GameSchedulerTest {
+
+    private GameScheduler scheduler;
+    private List<String> phases;
+
+    @BeforeEach
+    void setup() {
+        scheduler = new GameScheduler(1);
+        phases = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Phases schedule the next phase until the game is finished
+     */
+    @Test
+    void phasesTest() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.start(1, 5, () -> {
+            phases.add("question");
+            scheduler.next(1, 5, () -> {
+                phases.add("end");
+                scheduler.finish(1);
+                done.countDown();
+            });
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("question", "end"), phases);
+        assertFalse(scheduler.isRunning(1));
+        assertEquals(2, scheduler.getStats().getTransitions());
+        assertTrue(scheduler.getStats().getMaxDriftMillis() >= scheduler.getStats().getMeanDriftMillis());
+    }
+
+    /**
+     * Cancelled game doesn't run its pending phase and can't schedule another one
+     */
+    @Test
+    void cancelTest() throws InterruptedException {
+        scheduler.start(1, 50, () -> phases.add("question"));
+
+        assertTrue(scheduler.cancel(1));
+        assertFalse(scheduler.cancel(1));
+        assertFalse(scheduler.next(1, 0, () -> phases.add("leaderboard")));
+        Thread.sleep(150);
+        assertEquals(List.of(), phases);
+        assertEquals(1, scheduler.getStats().getCancelled());
+        assertEquals(0, scheduler.getStats().getGames());
+    }
+
+    /**
+     * Starting a game again replaces its pending phase
+     */
+    @Test
+    void restartTest() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.start(1, 50, () -> phases.add("old"));
+        scheduler.start(1, 0, () -> {
+            phases.add("new");
+            done.countDown();
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(List.of("new"), phases);
+    }
+
+    /**
+     * Games share the threads of the scheduler
+     */
+    @Test
+    void manyGamesTest() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            int id = i;
+            scheduler.start(id, 1, () -> {
+                scheduler.finish(id);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.getStats().getThreads());
+        assertEquals(100, scheduler.getStats().getTransitions());
+    }
+
+    /**
+     * Phase which throws ends its game
+     */
+    @Test
+    void failureTest() throws InterruptedException {
+        scheduler.start(1, 0, () -> {
+            throw new IllegalStateException("broken");
+        });
+        Thread.sleep(100);
+
+        assertFalse(scheduler.isRunning(1));
+        assertEquals(1, scheduler.getStats().getFailures());
+    }
+}
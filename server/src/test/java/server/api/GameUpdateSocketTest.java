@@ -0,0 +1,24 @@
+package server.api;
+
+import commons.GameUpdatesPacket;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the WebSocket of the game updates
+ */
+class GameUpdateSocketTest {
+
+    /**
+     * Updates are sent as JSON
+     */
+    @Test
+    void toJsonTest() {
+        GameUpdateSocket socket = new GameUpdateSocket(null);
+
+        assertEquals("{\"hashListPlayers\":1,\"currentScreen\":\"QUESTION\",\"questionNumber\":2,\"version\":0}",
+            socket.toJson(new GameUpdatesPacket(1, "QUESTION", 2)));
+        assertEquals(0, socket.getStats().getConnections());
+    }
+}
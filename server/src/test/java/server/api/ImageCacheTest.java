@@ -0,0 +1,141 @@
+package server.api;
+
+import commons.Activity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.Config;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the cache of encoded images
+ */
+class ImageCacheTest {
+
+    private String imagePath;
+    private Path folder;
+
+    /**
+     * Points the image folder to a temporary folder
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        imagePath = Config.defaultImagePath;
+        folder = Files.createTempDirectory("images");
+        Config.defaultImagePath = folder.toString() + File.separator;
+    }
+
+    @AfterEach
+    void cleanUp() {
+        Config.defaultImagePath = imagePath;
+        File[] files = folder.toFile().listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        folder.toFile().delete();
+    }
+
+    private void writeImage(String name, int size) throws IOException {
+        ImageIO.write(new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB), "png", folder.resolve(name).toFile());
+    }
+
+    /**
+     * Second request of the same image is a hit and returns the same bytes
+     */
+    @Test
+    void hitTest() throws IOException {
+        writeImage("a.png", 2);
+        ImageCache cache = new ImageCache(1 << 20);
+
+        byte[] first = cache.get("a.png");
+        assertNotNull(first);
+        assertSame(first, cache.get("a.png"));
+
+        ImageCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(0.5, stats.getHitRatio());
+        assertEquals(1, stats.getEntries());
+        assertEquals(first.length, stats.getBytes());
+    }
+
+    /**
+     * Image is encoded again when its file was modified
+     */
+    @Test
+    void modifiedTest() throws IOException {
+        writeImage("a.png", 2);
+        ImageCache cache = new ImageCache(1 << 20);
+        byte[] first = cache.get("a.png");
+
+        writeImage("a.png", 3);
+        assertTrue(folder.resolve("a.png").toFile().setLastModified(folder.resolve("a.png").toFile().lastModified() + 1000));
+        byte[] second = cache.get("a.png");
+
+        assertNotSame(first, second);
+        assertEquals(2, cache.getStats().getMisses());
+        assertEquals(1, cache.getStats().getEntries());
+        assertEquals(second.length, cache.getStats().getBytes());
+    }
+
+    /**
+     * Least recently used image is evicted when the cache is full
+     */
+    @Test
+    void evictionTest() throws IOException {
+        writeImage("a.png", 2);
+        writeImage("b.png", 2);
+        writeImage("c.png", 2);
+        int size = Activity.encodeImage(folder.resolve("a.png").toFile()).length;
+        ImageCache cache = new ImageCache(size * 2L);
+
+        cache.get("a.png");
+        cache.get("b.png");
+        cache.get("a.png"); // b is now the least recently used
+        cache.get("c.png");
+
+        assertEquals(1, cache.getStats().getEvictions());
+        assertEquals(2, cache.getStats().getEntries());
+        cache.get("a.png");
+        assertEquals(2, cache.getStats().getHits());
+        cache.get("b.png");
+        assertEquals(4, cache.getStats().getMisses());
+    }
+
+    /**
+     * Missing images and images larger than the cache aren't cached
+     */
+    @Test
+    void notCachedTest() throws IOException {
+        writeImage("a.png", 2);
+        ImageCache cache = new ImageCache(0);
+
+        assertNull(cache.get("missing.png"));
+        assertNotNull(cache.get("a.png"));
+        assertEquals(0, cache.getStats().getEntries());
+        assertEquals(0, cache.getStats().getBytes());
+    }
+
+    /**
+     * Image of the activity is set from the cache
+     */
+    @Test
+    void initializeImageTest() throws IOException {
+        writeImage("a.png", 2);
+        ImageCache cache = new ImageCache(1 << 20);
+        Activity activity = new Activity("1", "a.png", "a", 1L, "a");
+
+        cache.initializeImage(activity);
+        assertSame(cache.get("a.png"), activity.getImage());
+    }
+}
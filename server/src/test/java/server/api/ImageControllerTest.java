@@ -0,0 +1,213 @@
+package server.api;
+
+import commons.Activity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import server.Config;
+import server.api.dependencies.TestActivityRepository;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the image endpoint
+ */
+class ImageControllerTest {
+
+    private String imagePath;
+    private Path folder;
+    private File image;
+    private File store;
+    private ImageRenditions renditions;
+    private ImagePack pack;
+    private ImageController images;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    /**
+     * Points the image folder to a temporary folder with one image
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        imagePath = Config.defaultImagePath;
+        folder = Files.createTempDirectory("images");
+        Config.defaultImagePath = folder.toString() + File.separator;
+        image = folder.resolve("a.png").toFile();
+        Files.write(image.toPath(), new byte[] {1, 2, 3});
+        store = folder.resolve("renditions").toFile();
+
+        TestActivityRepository repo = new TestActivityRepository();
+        repo.activities.add(new Activity("1", "a.png", "a", 1L, "a"));
+        repo.activities.add(new Activity("2", "missing.png", "b", 2L, "b"));
+        repo.activities.add(new Activity("3", "b.png", "c", 3L, "c"));
+        renditions = ImageRenditions.direct(store, new int[] {4, 8}, 0.8f);
+        pack = new ImagePack(folder.resolve("pack").resolve("images.pack").toFile());
+        images = new ImageController(new ActivityIndex(repo), repo, renditions, pack);
+        request = new MockHttpServletRequest("GET", "/api/images/1");
+        response = new MockHttpServletResponse();
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        Config.defaultImagePath = imagePath;
+        try (Stream<Path> files = Files.walk(folder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private ResponseEntity<Resource> get(String id) {
+        return images.getImage(id, null, new ServletWebRequest(request, response));
+    }
+
+    /**
+     * Image is sent with its validators and a long max age
+     */
+    @Test
+    void getImageTest() throws IOException {
+        ResponseEntity<Resource> res = get("1");
+
+        assertEquals(HttpStatus.OK, res.getStatusCode());
+        assertEquals(image, res.getBody().getFile());
+        assertEquals(MediaType.IMAGE_PNG, res.getHeaders().getContentType());
+        assertEquals(3, res.getHeaders().getContentLength());
+        assertEquals(ImageController.etag(image.lastModified(), 3), res.getHeaders().getETag());
+        assertEquals(image.lastModified() / 1000 * 1000, res.getHeaders().getLastModified());
+        assertTrue(res.getHeaders().getCacheControl().contains("max-age="));
+    }
+
+    /**
+     * Unknown activities and missing files are not found
+     */
+    @Test
+    void getImageNotFoundTest() {
+        assertEquals(HttpStatus.NOT_FOUND, get("4").getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, get("2").getStatusCode());
+    }
+
+    /**
+     * Client which has the current image gets a 304 without a body
+     */
+    @Test
+    void getImageNotModifiedTest() {
+        request.addHeader("If-None-Match", ImageController.etag(image.lastModified(), 3));
+
+        assertNull(get("1"));
+        assertEquals(304, response.getStatus());
+    }
+
+    /**
+     * Client with an old copy gets the image again
+     */
+    @Test
+    void getImageModifiedTest() {
+        request.addHeader("If-None-Match", ImageController.etag(image.lastModified() - 1000, 3));
+
+        assertEquals(HttpStatus.OK, get("1").getStatusCode());
+    }
+
+    /**
+     * Body is left to Tomcat when it supports sendfile
+     */
+    @Test
+    void getImageSendfileTest() throws IOException {
+        request.setAttribute(ImageController.SENDFILE_SUPPORT, true);
+        ResponseEntity<Resource> res = get("1");
+
+        assertEquals(HttpStatus.OK, res.getStatusCode());
+        assertNull(res.getBody());
+        assertEquals(image.getCanonicalPath(), request.getAttribute(ImageController.SENDFILE_FILENAME));
+        assertEquals(0L, request.getAttribute(ImageController.SENDFILE_START));
+        assertEquals(3L, request.getAttribute(ImageController.SENDFILE_END));
+    }
+
+    /**
+     * Rendition of the requested size is sent once it is ready, the original before that
+     */
+    @Test
+    void getImageRenditionTest() throws IOException {
+        ImageIO.write(new BufferedImage(16, 8, BufferedImage.TYPE_INT_RGB), "png", folder.resolve("b.png").toFile());
+
+        // not ingested yet, ingested by the request because the renditions are direct
+        ResponseEntity<Resource> original = images.getImage("3", 5, new ServletWebRequest(request, response));
+        assertEquals(MediaType.IMAGE_PNG, original.getHeaders().getContentType());
+
+        ResponseEntity<Resource> res = images.getImage("3", 5, new ServletWebRequest(request, response));
+        assertEquals(MediaType.IMAGE_JPEG, res.getHeaders().getContentType());
+        BufferedImage img = ImageIO.read(res.getBody().getFile());
+        assertEquals(8, img.getWidth());
+        assertEquals(4, img.getHeight());
+        assertNotEquals(original.getHeaders().getETag(), res.getHeaders().getETag());
+    }
+
+    /**
+     * Rescan queues the images of all activities
+     */
+    @Test
+    void rescanTest() throws IOException {
+        ImageIO.write(new BufferedImage(16, 8, BufferedImage.TYPE_INT_RGB), "png", folder.resolve("b.png").toFile());
+
+        assertEquals(3, images.rescan().getBody());
+        assertEquals(1, images.getRenditionStats().getBody().getTranscoded());
+        assertEquals(2, images.getRenditionStats().getBody().getFailures());
+        assertEquals(2, images.rescan().getBody()); // only the failed images, b.png is up to date
+    }
+
+    /**
+     * Packed images are sent from the pack, without sendfile
+     */
+    @Test
+    void getImagePackedTest() throws IOException {
+        assertEquals(1, images.rebuildPack().getBody()); // only a.png exists
+        request.setAttribute(ImageController.SENDFILE_SUPPORT, true);
+        ResponseEntity<Resource> res = get("1");
+
+        assertEquals(HttpStatus.OK, res.getStatusCode());
+        assertArrayEquals(new byte[] {1, 2, 3}, res.getBody().getInputStream().readAllBytes());
+        assertNull(request.getAttribute(ImageController.SENDFILE_FILENAME));
+        assertEquals(ImageController.etag(image.lastModified(), 3), res.getHeaders().getETag());
+        assertEquals(1, images.getPackStats().getBody().getHits());
+    }
+
+    /**
+     * Image which changed after it was packed is sent from its file
+     */
+    @Test
+    void getImagePackedModifiedTest() throws IOException {
+        images.rebuildPack();
+        Files.write(image.toPath(), new byte[] {4, 5, 6, 7});
+
+        assertArrayEquals(new byte[] {4, 5, 6, 7}, get("1").getBody().getInputStream().readAllBytes());
+        assertEquals(1, images.getPackStats().getBody().getMisses());
+    }
+
+    /**
+     * Renditions which are ready are packed with the originals
+     */
+    @Test
+    void rebuildPackRenditionsTest() throws IOException {
+        ImageIO.write(new BufferedImage(16, 8, BufferedImage.TYPE_INT_RGB), "png", folder.resolve("b.png").toFile());
+        images.rescan();
+
+        assertEquals(4, images.rebuildPack().getBody()); // a.png, b.png and its two renditions
+        ResponseEntity<Resource> res = images.getImage("3", 5, new ServletWebRequest(request, response));
+        assertEquals(MediaType.IMAGE_JPEG, res.getHeaders().getContentType());
+        assertEquals(8, ImageIO.read(res.getBody().getInputStream()).getWidth());
+        assertEquals(1, images.getPackStats().getBody().getHits());
+    }
+}
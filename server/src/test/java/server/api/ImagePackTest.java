@@ -0,0 +1,130 @@
+package server.api;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the images packed into one file
+ */
+class ImagePackTest {
+
+    private Path folder;
+    private File packFile;
+    private File a;
+    private File b;
+
+    @BeforeEach
+    void setup() throws IOException {
+        folder = Files.createTempDirectory("pack");
+        packFile = folder.resolve("images.pack").toFile();
+        a = folder.resolve("a.png").toFile();
+        b = folder.resolve("b.png").toFile();
+        Files.write(a.toPath(), new byte[] {1, 2, 3});
+        Files.write(b.toPath(), new byte[] {4, 5});
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private Map<String, File> files() {
+        Map<String, File> files = new LinkedHashMap<>();
+        files.put("x/a.png", a);
+        files.put("b.png", b);
+        return files;
+    }
+
+    private static byte[] bytes(ImagePack.Entry entry) {
+        ByteBuffer buffer = entry.buffer();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Packed images are read back from the mapped file, also by a new pack opening the same file
+     */
+    @Test
+    void rebuildTest() throws IOException {
+        ImagePack pack = new ImagePack(packFile);
+        assertEquals(2, pack.rebuild(files()));
+
+        assertArrayEquals(new byte[] {1, 2, 3}, bytes(pack.find("x/a.png", a.lastModified(), 3).get()));
+        assertArrayEquals(new byte[] {4, 5}, bytes(new ImagePack(packFile).find("b.png", b.lastModified(), 2).get()));
+        assertArrayEquals(new byte[] {4, 5}, pack.find("b.png", b.lastModified(), 2).get()
+            .toResource().getInputStream().readAllBytes());
+        assertEquals(2, pack.getStats().getImages());
+        assertEquals(packFile.length(), pack.getStats().getBytes());
+    }
+
+    /**
+     * Images which aren't packed, or changed since, aren't found
+     */
+    @Test
+    void findMissTest() throws IOException {
+        ImagePack pack = new ImagePack(packFile);
+        assertTrue(pack.find("x/a.png", a.lastModified(), 3).isEmpty()); // no pack yet
+
+        pack.rebuild(files());
+        assertTrue(pack.find("c.png", 0, 0).isEmpty());
+        assertTrue(pack.find("x/a.png", a.lastModified(), 4).isEmpty());
+        assertTrue(pack.find("x/a.png", a.lastModified() + 1000, 3).isEmpty());
+        assertEquals(4, pack.getStats().getMisses());
+        assertEquals(0, pack.getStats().getHits());
+    }
+
+    /**
+     * Rebuilding replaces the images of the old pack
+     */
+    @Test
+    void rebuildAgainTest() throws IOException {
+        ImagePack pack = new ImagePack(packFile);
+        pack.rebuild(files());
+        Map<String, File> files = files();
+        files.remove("b.png");
+        assertEquals(1, pack.rebuild(files));
+
+        assertTrue(pack.find("b.png", b.lastModified(), 2).isEmpty());
+        assertTrue(pack.find("x/a.png", a.lastModified(), 3).isPresent());
+        assertEquals(0, folder.toFile().list((d, n) -> n.endsWith(".tmp")).length); // moved over the old pack
+    }
+
+    /**
+     * Files which can't be read are skipped
+     */
+    @Test
+    void missingFileTest() throws IOException {
+        Map<String, File> files = files();
+        files.put("c.png", folder.resolve("c.png").toFile());
+
+        assertEquals(2, new ImagePack(packFile).rebuild(files));
+    }
+
+    /**
+     * File which isn't a pack is ignored
+     */
+    @Test
+    void corruptPackTest() throws IOException {
+        Files.write(packFile.toPath(), new byte[100]);
+        ImagePack pack = new ImagePack(packFile);
+
+        assertEquals(0, pack.getStats().getImages());
+        assertTrue(pack.find("x/a.png", a.lastModified(), 3).isEmpty());
+    }
+}
@@ -0,0 +1,142 @@
+package server.api;
+
+import commons.Activity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.Config;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the smaller copies of the images
+ */
+class ImageRenditionsTest {
+
+    private String imagePath;
+    private Path folder;
+    private File store;
+    private ImageRenditions renditions;
+
+    /**
+     * Points the image folder to a temporary folder
+     */
+    @BeforeEach
+    void setup() throws IOException {
+        imagePath = Config.defaultImagePath;
+        folder = Files.createTempDirectory("images");
+        Config.defaultImagePath = folder.toString() + File.separator;
+        store = folder.resolve("renditions").toFile();
+        renditions = ImageRenditions.direct(store, new int[] {64, 16, 32}, 0.8f);
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        Config.defaultImagePath = imagePath;
+        try (Stream<Path> files = Files.walk(folder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private void writeImage(String name, int width, int height, int type) throws IOException {
+        ImageIO.write(new BufferedImage(width, height, type), "png", folder.resolve(name).toFile());
+    }
+
+    private BufferedImage read(String name, int size) throws IOException {
+        return ImageIO.read(renditions.find(name, size).get());
+    }
+
+    /**
+     * Smallest rendition at least as big as the requested size is found, the largest if none is big enough
+     */
+    @Test
+    void findTest() throws IOException {
+        writeImage("a.png", 100, 50, BufferedImage.TYPE_INT_RGB);
+        assertEquals(1, renditions.ingest(List.of(new Activity("1", "a.png", "a", 1L, "a"))));
+
+        assertEquals(16, read("a.png", 10).getWidth());
+        assertEquals(8, read("a.png", 10).getHeight());
+        assertEquals(32, read("a.png", 17).getWidth());
+        assertEquals(64, read("a.png", 1000).getWidth());
+        assertTrue(renditions.find("a.png", 10).get().getName().endsWith(".jpg"));
+    }
+
+    /**
+     * Small images aren't scaled up, no renditions bigger than the image are made
+     */
+    @Test
+    void smallImageTest() throws IOException {
+        writeImage("a.png", 20, 10, BufferedImage.TYPE_INT_RGB);
+        renditions.ingest(List.of(new Activity("1", "a.png", "a", 1L, "a")));
+
+        assertEquals(16, read("a.png", 1).getWidth());
+        assertEquals(20, read("a.png", 64).getWidth());
+        assertEquals(2, store.list().length);
+    }
+
+    /**
+     * Images with transparency are kept as png
+     */
+    @Test
+    void alphaTest() throws IOException {
+        writeImage("a.png", 20, 20, BufferedImage.TYPE_INT_ARGB);
+        renditions.ingest(List.of(new Activity("1", "a.png", "a", 1L, "a")));
+
+        assertTrue(renditions.find("a.png", 16).get().getName().endsWith(".png"));
+    }
+
+    /**
+     * Same picture used by two activities is transcoded once
+     */
+    @Test
+    void sameContentTest() throws IOException {
+        writeImage("a.png", 40, 40, BufferedImage.TYPE_INT_RGB);
+        Files.copy(folder.resolve("a.png"), folder.resolve("b.png"));
+        renditions.ingest(List.of(new Activity("1", "a.png", "a", 1L, "a"), new Activity("2", "b.png", "b", 1L, "b")));
+
+        assertEquals(renditions.find("a.png", 16), renditions.find("b.png", 16));
+        assertEquals(1, renditions.getStats().getTranscoded());
+        assertEquals(1, renditions.getStats().getReused());
+        assertEquals(2, renditions.getStats().getImages());
+    }
+
+    /**
+     * Changed image isn't served from the old renditions, it is ingested again
+     */
+    @Test
+    void modifiedTest() throws IOException {
+        writeImage("a.png", 40, 40, BufferedImage.TYPE_INT_RGB);
+        renditions.ingest(List.of(new Activity("1", "a.png", "a", 1L, "a")));
+        File old = renditions.find("a.png", 16).get();
+
+        writeImage("a.png", 40, 20, BufferedImage.TYPE_INT_RGB);
+        File changed = folder.resolve("a.png").toFile();
+        assertTrue(changed.setLastModified(changed.lastModified() + 1000));
+
+        assertTrue(renditions.find("a.png", 16).isEmpty()); // ingested by this call
+        assertNotEquals(old, renditions.find("a.png", 16).get());
+        assertEquals(8, read("a.png", 16).getHeight());
+    }
+
+    /**
+     * Files which aren't images are counted as failures
+     */
+    @Test
+    void failureTest() throws IOException {
+        Files.write(folder.resolve("a.png"), new byte[] {1, 2, 3});
+        renditions.ingest(List.of(new Activity("1", "a.png", "a", 1L, "a"), new Activity("2", null, "b", 1L, "b")));
+
+        assertEquals(1, renditions.getStats().getFailures());
+        assertTrue(renditions.find("a.png", 16).isEmpty());
+    }
+}
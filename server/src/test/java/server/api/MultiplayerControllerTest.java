@@ -1,8 +1,13 @@
 package server.api;
 
 import commons.Activity;
+import commons.Answer;
 import commons.GameUpdatesPacket;
 import commons.Player;
+import commons.PlayerChange;
+import commons.questions.EstimationQuestion;
+import commons.questions.Question;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
@@ -11,6 +16,7 @@ import org.springframework.web.context.request.async.DeferredResult;
 import server.SomeController;
 import server.api.dependencies.TestActivityRepository;
 import server.api.dependencies.TestRandom;
+import server.multiplayer.GameEvents;
 import server.multiplayer.WaitingRoom;
 
 import java.util.ArrayList;
@@ -22,6 +28,7 @@ public class MultiplayerControllerTest {
     private MultiplayerController lpc;
     private ArrayList<Player> players;
     private TestActivityRepository tar;
+    private GameScheduler scheduler;
 
     /**
      * Sets up environment before each test
@@ -44,11 +51,23 @@ public class MultiplayerControllerTest {
                 new Activity("6", "image_f","f", 6L, "f"),
                 new Activity("7", "image_g","g", 7L, "g")
         ));
-        lpc = new MultiplayerController(new WaitingRoom(new ArrayList<>(), new ArrayList<>(), 0), new TestRandom(), tar);
+        ActivityIndex index = new ActivityIndex(tar);
+        scheduler = new GameScheduler(1);
+        lpc = new MultiplayerController(new WaitingRoom(new ArrayList<>(), new ArrayList<>(), 0), new TestRandom(), index,
+            QuestionGeneratorRegistry.defaults(index), DeckBuilder.direct(), scheduler, GameArchive.none());
         lpc.postPlayerToWaitingRoom(players.get(0));
         lpc.startGame();
     }
 
+    /**
+     * Stops the threads of the controller and the scheduler
+     */
+    @AfterEach
+    public void cleanUp() {
+        lpc.shutdown();
+        scheduler.shutdown();
+    }
+
     /**
      * Test for getting list of all players
      */
@@ -58,15 +77,15 @@ public class MultiplayerControllerTest {
     }
 
     /**
-     * Test for updating score of player
-     * Needs Mockito for proper testing
+     * Answers are only taken from players of a running game, while a question is shown
      */
     @Test
-    void updateScoreTest() {
-        Player newScore = new Player(1L,"a", 5);
-        assertEquals(newScore, lpc.updateScore(0, newScore).getBody());
-        assertEquals(ResponseEntity.badRequest().build(), lpc.updateScore(0, new Player(5L,"bob", 99)));
+    void submitAnswerTest() {
+        assertEquals(false, lpc.submitAnswer(0, new Answer("a", 0, 0, 1)).getBody()); // still loading
+        assertEquals(ResponseEntity.badRequest().build(), lpc.submitAnswer(0, new Answer("bob", 0, 0, 1)));
+        assertEquals(ResponseEntity.badRequest().build(), lpc.submitAnswer(7, new Answer("a", 0, 0, 1)));
     }
+
     /**
      * Test for getting the update packet
      * Needs Mockito for proper testing
@@ -186,4 +205,176 @@ public class MultiplayerControllerTest {
         assertNull(lpc.getGame(1).getBody());
     }
 
+    /**
+     * Cancelled game doesn't go on to its first question, its players are sent to the end screen
+     */
+    @Test
+    void cancelGameTest() {
+        assertTrue(lpc.cancelGame(0).getBody());
+        assertEquals("ENDSCREEN", lpc.getGame(0).getBody().getCurrentScreen());
+        assertFalse(lpc.cancelGame(0).getBody());
+        assertEquals(0, lpc.getSchedulerStats().getBody().getGames());
+        assertEquals(1, lpc.getSchedulerStats().getBody().getCancelled());
+    }
+
+    /**
+     * Lobby is started by its ID, only once, and a new lobby is opened for the next players
+     */
+    @Test
+    void startLobbyTest() {
+        lpc.postPlayerToWaitingRoom(players.get(1));
+        assertEquals(List.of(players.get(1)), lpc.getWaitingRoomPlayers(1).getBody());
+        assertEquals(1, lpc.getLobbyStats().getBody().getPlayers());
+
+        assertTrue(lpc.startGame(1, null, null, null).getBody());
+        assertFalse(lpc.startGame(1, null, null, null).getBody());
+        assertEquals(List.of(), lpc.getWaitingRoomPlayers(1).getBody());
+        assertEquals(List.of(players.get(1)), lpc.getPlayers(1).getBody());
+        assertTrue(lpc.getWaitingRoomPlayers().getBody().isEmpty());
+        assertEquals(1, lpc.getLobbyStats().getBody().getLobbies());
+    }
+
+    /**
+     * Subscribed listeners get the updates of their waiting room until they unsubscribe
+     */
+    @Test
+    void subscribeTest() {
+        List<GameUpdatesPacket> updates = new ArrayList<>();
+        GameEvents.Listener key = lpc.subscribe(1, updates::add);
+        lpc.postPlayerToWaitingRoom(players.get(1));
+        lpc.unsubscribe(1, key);
+        lpc.postPlayerToWaitingRoom(players.get(2));
+
+        assertEquals(1, updates.size());
+        assertEquals("WAITINGROOM", updates.get(0).getCurrentScreen());
+        GameUpdatesPacket status = new GameUpdatesPacket(
+            lpc.getWaitingRoomPlayers(1).getBody().hashCode(), "WAITINGROOM", -1);
+        status.setVersion(2); // after both joins
+        assertEquals(lpc.getStatus(1), status);
+        assertEquals("LOADING SCREEN", lpc.getStatus(0).getCurrentScreen());
+        assertNull(lpc.getStatus(7));
+    }
+
+    /**
+     * Event stream of a game is counted until it ends
+     */
+    @Test
+    void getEventsTest() {
+        assertNotNull(lpc.getEvents(0, "2").getBody());
+        assertNotNull(lpc.getEvents(0, "not an ID").getBody());
+        assertEquals(HttpStatus.NOT_FOUND, lpc.getEvents(7, null).getStatusCode());
+
+        assertEquals(2, lpc.getStreamStats().getBody().getStreams());
+        assertEquals(1, lpc.getStreamStats().getBody().getResumed());
+    }
+
+    /**
+     * Games go through their phases with the durations their start request set, negative durations are refused
+     */
+    @Test
+    void phaseDurationsTest() throws InterruptedException {
+        lpc.postPlayerToWaitingRoom(players.get(1));
+        assertEquals(HttpStatus.BAD_REQUEST, lpc.startGame(1, -1L, null, null).getStatusCode());
+        assertTrue(lpc.startGame(1, 10L, 10L, 10L).getBody());
+        Thread.sleep(500);
+
+        assertEquals("ENDSCREEN", lpc.getGame(1).getBody().getCurrentScreen());
+        assertEquals(1, lpc.getSchedulerStats().getBody().getGames()); // the first game still has its loading screen
+        assertTrue(lpc.getSchedulerStats().getBody().getTransitions() >= 1);
+    }
+
+    /**
+     * Updates carry the players who joined and left, and the scores sent since the last update
+     */
+    @Test
+    void changesTest() {
+        List<GameUpdatesPacket> lobby = new ArrayList<>();
+        lpc.subscribe(1, lobby::add);
+        lpc.postPlayerToWaitingRoom(players.get(1));
+        lpc.removePlayerFromWaitingRoom(players.get(1));
+
+        assertEquals(List.of(PlayerChange.joined(players.get(1))), lobby.get(0).getChanges());
+        assertEquals(List.of(PlayerChange.left(players.get(1))), lobby.get(1).getChanges());
+        assertTrue(lobby.get(1).follows(lobby.get(0).getVersion()));
+
+        List<GameUpdatesPacket> game = new ArrayList<>();
+        lpc.subscribe(0, game::add);
+        lpc.cancelGame(0);
+
+        assertEquals("ENDSCREEN", game.get(0).getCurrentScreen());
+        assertEquals(List.of(), game.get(0).getChanges());
+        assertEquals(game.get(0).getVersion(), lpc.getStatus(0).getVersion());
+    }
+
+    /**
+     * The server scores the answers when the question closes, the new scores come with the next update
+     */
+    @Test
+    void scoreAnswersTest() throws InterruptedException {
+        GameScheduler ownScheduler = new GameScheduler(1); // its game has the same ID as the one of lpc
+        ActivityIndex index = new ActivityIndex(tar);
+        MultiplayerController controller = new MultiplayerController(new WaitingRoom(new ArrayList<>(),
+            new ArrayList<>(), 1), new TestRandom(), index, QuestionGeneratorRegistry.defaults(index),
+            DeckBuilder.direct(), ownScheduler, GameArchive.none());
+        controller.postPlayerToWaitingRoom(new Player(1L, "a", 0));
+        controller.postPlayerToWaitingRoom(new Player(2L, "b", 0));
+        assertTrue(controller.startGame(0, 10L, 60000L, 10L).getBody());
+        Thread.sleep(500);
+
+        Question question = controller.getGame(0).getBody().getQuestions().get(0);
+        Answer right = null;
+        for (int option = 0; option < 4 && right == null; option++) {
+            Answer answer = question instanceof EstimationQuestion
+                ? new Answer("a", 0, ((EstimationQuestion) question).getActivity().getConsumption_in_wh(), 1)
+                : new Answer("a", 0, option, 1);
+            right = answer.rate(question) > 0 ? answer : null;
+        }
+        List<GameUpdatesPacket> updates = new ArrayList<>();
+        controller.subscribe(0, updates::add);
+        assertEquals(true, controller.submitAnswer(0, right).getBody());
+        assertEquals(false, controller.submitAnswer(0, right).getBody());
+        controller.cancelGame(0);
+
+        assertEquals(List.of(new PlayerChange(PlayerChange.Type.SCORE, "a", 1055)), updates.get(0).getChanges());
+        assertEquals(1055, controller.getPlayers(0).getBody().get(0).getScore());
+        assertEquals(0, controller.getPlayers(0).getBody().get(1).getScore());
+        controller.shutdown();
+        ownScheduler.shutdown();
+    }
+
+    /**
+     * Statistics of the WebSocket are sent once it is set
+     */
+    @Test
+    void socketStatsTest() {
+        assertEquals(HttpStatus.NOT_FOUND, lpc.getSocketStats().getStatusCode());
+        lpc.setUpdateSocket(new GameUpdateSocket(lpc));
+        assertEquals(0, lpc.getSocketStats().getBody().getConnections());
+    }
+
+    /**
+     * Requests for a game which doesn't exist don't create an actor for it
+     */
+    @Test
+    void unknownGameTest() {
+        int actors = lpc.getActorStats().getBody().getGames();
+        assertNull(lpc.subscribe(7, p -> { }));
+        assertNull(lpc.resume(7, -1, (id, p) -> { }));
+        assertEquals(ResponseEntity.notFound().build(), lpc.getUpdate(7).getResult());
+        assertEquals(actors, lpc.getActorStats().getBody().getGames());
+    }
+
+    /**
+     * Finished games are kept for their end screens and counted with their size
+     */
+    @Test
+    void finishedTest() {
+        assertEquals(0, lpc.getFinishedStats().getBody().getGames());
+        lpc.cancelGame(0);
+
+        assertEquals(1, lpc.getFinishedStats().getBody().getGames());
+        assertTrue(lpc.getFinishedStats().getBody().getBytes() > 0);
+        assertNotNull(lpc.getGame(0).getBody());
+        assertEquals(0, lpc.getArchiveStats().getBody().getArchived()); // this controller doesn't archive
+    }
 }
@@ -0,0 +1,112 @@
+package server.api;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the messages sent to one connection
+ */
+class OutboxTest {
+
+    private List<String> written;
+    private List<Consumer<Boolean>> pending;
+    private AtomicLong sent;
+    private AtomicLong dropped;
+    private Outbox<String> outbox;
+
+    @BeforeEach
+    void setup() {
+        written = new ArrayList<>();
+        pending = new ArrayList<>();
+        sent = new AtomicLong();
+        dropped = new AtomicLong();
+        outbox = new Outbox<>((text, done) -> {
+            written.add(text);
+            pending.add(done);
+        }, 2, text -> "full " + text, sent, dropped);
+    }
+
+    private void complete(boolean ok) {
+        pending.remove(0).accept(ok);
+    }
+
+    /**
+     * Texts are sent one at a time, in order
+     */
+    @Test
+    void orderTest() {
+        outbox.send("a");
+        outbox.send("b");
+        assertEquals(List.of("a"), written);
+        assertEquals(1, outbox.queued());
+
+        complete(true);
+        assertEquals(List.of("a", "b"), written);
+        complete(true);
+        outbox.send("c");
+        assertEquals(List.of("a", "b", "c"), written);
+        assertEquals(2, sent.get());
+    }
+
+    /**
+     * Queued texts are replaced by one full text, made from the newest one, when a connection is too slow
+     */
+    @Test
+    void dropTest() {
+        outbox.send("a");
+        outbox.send("b");
+        outbox.send("c");
+        outbox.send("d");
+        assertEquals(1, outbox.queued());
+        outbox.send("e");
+        complete(true);
+        complete(true);
+        complete(true);
+
+        assertEquals(List.of("a", "full d", "e"), written);
+        assertEquals(2, dropped.get());
+        assertEquals(0, outbox.queued());
+    }
+
+    /**
+     * Heartbeats are only sent when nothing else is, and aren't counted
+     */
+    @Test
+    void idleTest() {
+        assertTrue(outbox.sendIfIdle("heartbeat"));
+        outbox.send("a");
+        assertFalse(outbox.sendIfIdle("heartbeat"));
+        complete(true);
+        complete(true);
+
+        assertEquals(List.of("heartbeat", "a"), written);
+        assertEquals(1, sent.get());
+        assertEquals(0, dropped.get());
+    }
+
+    /**
+     * Failed send doesn't stop the next ones
+     */
+    @Test
+    void failedTest() {
+        Outbox<String> broken = new Outbox<>((text, done) -> {
+            throw new IllegalStateException("closed");
+        }, 2, text -> text, sent, dropped);
+        broken.send("a");
+        broken.send("b");
+        outbox.send("c");
+        complete(false);
+        outbox.send("d");
+
+        assertEquals(List.of("c", "d"), written);
+        assertEquals(0, sent.get());
+        assertEquals(0, broken.queued());
+    }
+}
@@ -5,6 +5,7 @@ import commons.questions.ComparativeQuestion;
 import commons.questions.EqualityQuestion;
 import commons.questions.EstimationQuestion;
 import commons.questions.MCQuestion;
+import commons.questions.Question;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,7 +15,9 @@ import server.api.dependencies.TestActivityRepository;
 import server.api.dependencies.TestRandom;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,7 +37,7 @@ class QuestionControllerTest {
     public void setup(){
         random = new TestRandom();
         repo = new TestActivityRepository();
-        que = new QuestionController(random, repo);
+        que = new QuestionController(random, new ActivityIndex(repo));
 
         activities = List.of(
             new Activity("1", "image_a","a", 1L, "a"),
@@ -62,8 +65,8 @@ class QuestionControllerTest {
         random.setCount(0);
         repo.activities.addAll(activities);
 
-        List<Activity> e1_list = List.of(activities.get(1), activities.get(2), activities.get(3));
-        ComparativeQuestion expected1 = new ComparativeQuestion(e1_list, true);
+        List<Activity> e1_list = List.of(activities.get(2), activities.get(1), activities.get(3));
+        ComparativeQuestion expected1 = new ComparativeQuestion(e1_list, false);
         assertEquals(expected1, que.getRandomComparative().getBody());
     }
 
@@ -84,8 +87,8 @@ class QuestionControllerTest {
     void getRandomMCTest() {
         repo.activities.addAll(activities);
 
-        List<Long> e1_list = List.of(activities.get(2).getConsumption_in_wh(), activities.get(3).getConsumption_in_wh());
-        MCQuestion expected1 = new MCQuestion(activities.get(1), e1_list);
+        List<Long> e1_list = List.of(activities.get(1).getConsumption_in_wh(), activities.get(3).getConsumption_in_wh());
+        MCQuestion expected1 = new MCQuestion(activities.get(2), e1_list);
         assertEquals(expected1, que.getRandomMCQuestion().getBody());
     }
 
@@ -112,7 +115,7 @@ class QuestionControllerTest {
         repo.activities.add(similar);
 
         List<Activity> expectedList = List.of(activities.get(1), activities.get(2));
-        EqualityQuestion expected = new EqualityQuestion(activities.get(0), similar, expectedList, 0);
+        EqualityQuestion expected = new EqualityQuestion(activities.get(0), similar, expectedList, 1);
 
         assertEquals(expected, que.getRandomEquality().getBody());
     }
@@ -133,7 +136,7 @@ class QuestionControllerTest {
         random.setCount(0); // sets the random to start from 0
         repo.activities.addAll(activities);
 
-        ComparativeQuestion expected = new ComparativeQuestion(List.of(activities.get(1), activities.get(2), activities.get(3)), false);
+        ComparativeQuestion expected = new ComparativeQuestion(List.of(activities.get(3), activities.get(2), activities.get(0)), true);
 
         assertEquals(expected, que.getRandomQuestion().getBody());
     }
@@ -143,7 +146,7 @@ class QuestionControllerTest {
         repo.activities.addAll(activities);
         random.setCount(1); // sets the random to start from 1
 
-        EstimationQuestion expected = new EstimationQuestion(activities.get(0));
+        EstimationQuestion expected = new EstimationQuestion(activities.get(2));
 
         assertEquals(expected, que.getRandomQuestion().getBody());
     }
@@ -153,8 +156,8 @@ class QuestionControllerTest {
         random.setCount(2); // sets the random to start from 2
         repo.activities.addAll(activities);
 
-        List<Long> e1_list = List.of(activities.get(2).getConsumption_in_wh(), activities.get(3).getConsumption_in_wh());
-        MCQuestion expected = new MCQuestion(activities.get(1), e1_list);
+        List<Long> e1_list = List.of(activities.get(0).getConsumption_in_wh(), activities.get(2).getConsumption_in_wh());
+        MCQuestion expected = new MCQuestion(activities.get(5), e1_list);
 
         assertEquals(expected, que.getRandomQuestion().getBody());
     }
@@ -168,8 +171,110 @@ class QuestionControllerTest {
         repo.activities.add(similar);
 
         List<Activity> expectedList = List.of(activities.get(1), activities.get(2));
-        EqualityQuestion expected = new EqualityQuestion(activities.get(0), similar, expectedList, 1);
+        EqualityQuestion expected = new EqualityQuestion(activities.get(0), similar, expectedList, 2);
 
         assertEquals(expected, que.getRandomQuestion().getBody());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getQuestionBatchTest() {
+        repo.activities.addAll(activities);
+
+        List<Question> deck = que.getQuestionBatch(5, List.of("estimation"), null).getBody();
+        assertEquals(5, deck.size());
+        Set<Activity> used = new HashSet<>();
+        for (Question q : deck) {
+            assertTrue(used.add(((EstimationQuestion) q).getActivity())); // no activity is repeated
+        }
+    }
+
+    @Test
+    void getQuestionBatchTestAllTypes() {
+        repo.activities.addAll(activities);
+        repo.activities.add(new Activity("8", "image_h","h", 1L, "h"));
+
+        List<Question> deck = que.getQuestionBatch(4, null, null).getBody();
+        assertEquals(4, deck.size());
+        assertEquals(4, new HashSet<>(deck).size());
+    }
+
+    /**
+     * Same seed gives the same deck while the index doesn't change
+     */
+    @Test
+    void getQuestionBatchTestSeeded() {
+        repo.activities.addAll(activities);
+        repo.activities.add(new Activity("8", "image_h","h", 1L, "h"));
+
+        ResponseEntity<List<Question>> res = que.getQuestionBatch(4, null, 42L);
+        List<Question> deck = res.getBody();
+        assertEquals(4, deck.size());
+        assertEquals(List.of(Long.toString(new ActivityIndex(repo).getVersion())), // same after a restart
+            res.getHeaders().get(QuestionController.VERSION_HEADER));
+        random.setCount(100); // the shared random doesn't affect seeded decks
+        assertEquals(deck, que.getQuestionBatch(4, null, 42L).getBody());
+    }
+
+    @Test
+    void getQuestionBatchTestInvalid() {
+        repo.activities.addAll(activities);
+        assertEquals(ResponseEntity.badRequest().build(), que.getQuestionBatch(0, null, null));
+        assertEquals(ResponseEntity.badRequest().build(), que.getQuestionBatch(101, null, null));
+        assertEquals(ResponseEntity.badRequest().build(), que.getQuestionBatch(5, List.of("estimation", "something"), null));
+    }
+
+    @Test
+    void getQuestionBatchTestNotEnough() {
+        repo.activities.addAll(activities);
+        assertEquals(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build(),
+            que.getQuestionBatch(8, List.of("estimation"), null));
+    }
+
+    /**
+     * Generating a question doesn't query the repository once the index is loaded
+     * The activities and the counts for the precondition checks both come from the index
+     */
+    @Test
+    void queryCountTest() {
+        repo.activities.addAll(activities);
+        repo.activities.add(new Activity("8", "image_h","h", 1L, "h"));
+        que.getRandomEstimation(); // loads the index
+
+        repo.queries = 0;
+        assertEquals(HttpStatus.OK, que.getRandomComparative().getStatusCode());
+        assertEquals(HttpStatus.OK, que.getRandomMCQuestion().getStatusCode());
+        assertEquals(HttpStatus.OK, que.getRandomEstimation().getStatusCode());
+        assertEquals(HttpStatus.OK, que.getRandomEquality().getStatusCode());
+        assertEquals(0, repo.queries);
+    }
+
+    /**
+     * Pivot with consumption 0 can't be widened, all consumptions are used instead
+     */
+    @Test
+    void getRandomComparativeTestZeroPivot() {
+        random.setCount(0);
+        repo.activities.addAll(List.of(
+            new Activity("1", "image_a","a", 0L, "a"),
+            new Activity("2", "image_b","b", 10L, "b"),
+            new Activity("3", "image_c","c", 20L, "c"),
+            new Activity("4", "image_d","d", 30L, "d")
+        ));
+        assertEquals(HttpStatus.OK, que.getRandomComparative().getStatusCode());
+    }
+
+    /**
+     * Not enough other consumptions for the wrong answers
+     */
+    @Test
+    void getRandomEqualityTestNotEnoughConsumptions() {
+        repo.activities.addAll(List.of(
+            new Activity("1", "image_a","a", 1L, "a"),
+            new Activity("2", "image_b","b", 1L, "b"),
+            new Activity("3", "image_c","c", 1L, "c"),
+            new Activity("4", "image_d","d", 2L, "d"),
+            new Activity("5", "image_e","e", 2L, "e")
+        ));
+        assertEquals(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build(), que.getRandomEquality());
+    }
+}
@@ -0,0 +1,155 @@
+package server.api;
+
+import commons.Activity;
+import commons.questions.Question;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.api.dependencies.TestActivityRepository;
+import server.api.dependencies.TestRandom;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for picking question types from the generator registry
+ */
+class QuestionGeneratorRegistryTest {
+
+    private TestRandom random;
+    private ActivityIndex index;
+    private QuestionGeneratorRegistry registry;
+
+    /**
+     * Sets up a registry with the default generators and 5 activities with distinct consumptions
+     */
+    @BeforeEach
+    public void setup() {
+        TestActivityRepository repo = new TestActivityRepository();
+        for (int i = 1; i <= 5; i++) {
+            repo.activities.add(new Activity(String.valueOf(i), "image", "title", (long) i * 100, "source"));
+        }
+        random = new TestRandom();
+        index = new ActivityIndex(repo);
+        registry = QuestionGeneratorRegistry.defaults(index);
+    }
+
+    /**
+     * Equality isn't picked when there are no equal consumptions
+     */
+    @Test
+    void pickTypeSkipsUnavailableTest() {
+        assertFalse(registry.isAvailable("equality"));
+        assertEquals(Optional.of("comparative"), registry.pickType(random));
+        assertEquals(Optional.of("estimation"), registry.pickType(random));
+        assertEquals(Optional.of("mc"), registry.pickType(random));
+        assertEquals(Optional.of("comparative"), registry.pickType(random));
+    }
+
+    /**
+     * Availability is checked again once the index changes
+     */
+    @Test
+    void availabilityRefreshTest() {
+        assertFalse(registry.isAvailable("equality"));
+        index.put(new Activity("6", "image", "title", 100L, "source"));
+        assertTrue(registry.isAvailable("equality"));
+
+        random.setCount(3);
+        assertEquals(Optional.of("equality"), registry.pickType(random));
+    }
+
+    /**
+     * No type is picked when there are no activities
+     */
+    @Test
+    void pickTypeEmptyTest() {
+        QuestionGeneratorRegistry empty = QuestionGeneratorRegistry.defaults(
+            new ActivityIndex(new TestActivityRepository()));
+        assertEquals(Optional.empty(), empty.pickType(random));
+        assertFalse(empty.isAvailable("estimation"));
+    }
+
+    /**
+     * Types are picked in proportion to their weight, a type with weight 0 is never picked
+     */
+    @Test
+    void weightTest() {
+        QuestionGeneratorRegistry weighted = new QuestionGeneratorRegistry(index);
+        weighted.register(new StubGenerator("a", 0));
+        weighted.register(new StubGenerator("b", 3));
+        weighted.register(new StubGenerator("c", 1));
+
+        assertEquals(List.of("a", "b", "c"), weighted.getTypes());
+        assertEquals(Optional.of("b"), weighted.pickType(random));
+        assertEquals(Optional.of("b"), weighted.pickType(random));
+        assertEquals(Optional.of("b"), weighted.pickType(random));
+        assertEquals(Optional.of("c"), weighted.pickType(random));
+    }
+
+    /**
+     * Registering a type again replaces its generator
+     */
+    @Test
+    void registerReplaceTest() {
+        registry.register(new StubGenerator("mc", 5));
+        assertEquals(List.of("comparative", "estimation", "mc", "equality"), registry.getTypes());
+        assertEquals(5, registry.getStats().get("mc").getWeight());
+    }
+
+    /**
+     * Successful and failed generations are counted separately
+     */
+    @Test
+    void statsTest() {
+        registry.register(new StubGenerator("stub", 1));
+
+        assertTrue(registry.generate("estimation", random).isPresent());
+        assertTrue(registry.generate("stub", random).isEmpty());
+        assertTrue(registry.generate("equality", random).isEmpty());
+        assertTrue(registry.generate("unknown", random).isEmpty());
+
+        QuestionGeneratorRegistry.Stats estimation = registry.getStats().get("estimation");
+        assertTrue(estimation.isAvailable());
+        assertEquals(1, estimation.getGenerated());
+        assertEquals(0, estimation.getFailures());
+        assertEquals(1, registry.getStats().get("stub").getFailures());
+        assertFalse(registry.getStats().get("equality").isAvailable());
+        assertEquals(0, registry.getStats().get("equality").getFailures());
+    }
+
+    /**
+     * Generator which is always available but never generates a question
+     */
+    private static class StubGenerator implements QuestionGenerator {
+        private final String type;
+        private final int weight;
+
+        private StubGenerator(String type, int weight) {
+            this.type = type;
+            this.weight = weight;
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public int getWeight() {
+            return weight;
+        }
+
+        @Override
+        public boolean canGenerate(ActivityStats stats) {
+            return true;
+        }
+
+        @Override
+        public Optional<Question> generate(Random random) {
+            return Optional.empty();
+        }
+    }
+}
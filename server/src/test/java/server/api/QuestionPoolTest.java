@@ -0,0 +1,120 @@
+package server.api;
+
+import commons.Activity;
+import commons.questions.EstimationQuestion;
+import commons.questions.Question;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the question pool
+ */
+class QuestionPoolTest {
+
+    private QuestionPool pool;
+    private final AtomicInteger generated = new AtomicInteger();
+
+    @AfterEach
+    void cleanUp() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private ResponseEntity<Question> generate() {
+        int n = generated.incrementAndGet();
+        return ResponseEntity.ok(new EstimationQuestion(new Activity(String.valueOf(n), "image", "a", 1L, "a")));
+    }
+
+    private void waitForDepth(int depth) throws InterruptedException {
+        for (int i = 0; i < 200 && pool.getStats().get("estimation").getDepth() < depth; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Unpooled pool always generates the question on the calling thread
+     */
+    @Test
+    void unpooledTest() {
+        pool = QuestionPool.unpooled();
+        pool.register("estimation", this::generate);
+
+        assertNotNull(pool.take("estimation", this::generate).getBody());
+        assertEquals(1, generated.get());
+        assertEquals(1, pool.getStats().get("estimation").getFallbacks());
+        assertEquals(0, pool.getStats().get("estimation").getDepth());
+    }
+
+    /**
+     * Registered generator fills the pool up to the capacity in the background
+     */
+    @Test
+    void fillTest() throws InterruptedException {
+        pool = new QuestionPool(5, 2, 1);
+        pool.register("estimation", this::generate);
+        waitForDepth(5);
+
+        QuestionPool.Stats stats = pool.getStats().get("estimation");
+        assertEquals(5, stats.getDepth());
+        assertEquals(5, stats.getGenerated());
+        assertEquals(0, stats.getFallbacks());
+    }
+
+    /**
+     * Questions are taken from the pool without calling the fallback
+     */
+    @Test
+    void takeTest() throws InterruptedException {
+        pool = new QuestionPool(5, 2, 1);
+        pool.register("estimation", this::generate);
+        waitForDepth(5);
+
+        Question q = pool.take("estimation", () -> ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build()).getBody();
+        assertEquals(new Activity("1", "image", "a", 1L, "a"), ((EstimationQuestion) q).getActivity());
+        assertEquals(0, pool.getStats().get("estimation").getFallbacks());
+    }
+
+    /**
+     * Failing generator doesn't fill the pool, requests use the fallback
+     */
+    @Test
+    void failingGeneratorTest() throws InterruptedException {
+        pool = new QuestionPool(5, 2, 1);
+        pool.register("estimation", () -> ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build());
+        Thread.sleep(50);
+
+        assertEquals(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build(),
+            pool.take("estimation", () -> ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build()));
+        assertEquals(0, pool.getStats().get("estimation").getDepth());
+        assertTrue(pool.getStats().get("estimation").getFailures() > 0);
+        assertEquals(1, pool.getStats().get("estimation").getFallbacks());
+    }
+
+    /**
+     * Questions generated before the activities changed are dropped instead of served
+     */
+    @Test
+    void staleTest() throws InterruptedException {
+        AtomicLong version = new AtomicLong();
+        pool = new QuestionPool(5, 2, 1);
+        pool.register("estimation", this::generate, version::get);
+        waitForDepth(5);
+
+        version.incrementAndGet(); // e.g. an activity was deleted
+        assertEquals(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build(),
+            pool.take("estimation", () -> ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build()));
+        assertEquals(5, pool.getStats().get("estimation").getStale());
+
+        waitForDepth(5);
+        Question q = pool.take("estimation", () -> ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build()).getBody();
+        assertTrue(Integer.parseInt(((EstimationQuestion) q).getActivity().getId()) > 5);
+    }
+}
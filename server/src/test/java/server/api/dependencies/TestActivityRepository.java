@@ -12,7 +12,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 /**
  * ActivityRepository implementation for testing
@@ -21,10 +20,11 @@ import java.util.stream.Collectors;
 public class TestActivityRepository implements ActivityRepository {
 
     public List<Activity> activities = new ArrayList<>();
-    TestRandom random = new TestRandom();
+    public int queries = 0; // number of queries sent to the repository
 
     @Override
     public List<Activity> findAll() {
+        queries++;
         return activities;
     }
 
@@ -45,6 +45,7 @@ public class TestActivityRepository implements ActivityRepository {
 
     @Override
     public long count() {
+        queries++;
         return activities.size();
     }
 
@@ -86,6 +87,7 @@ public class TestActivityRepository implements ActivityRepository {
 
     @Override
     public Optional<Activity> findById(String id) {
+        queries++;
         for(Activity a : activities){
             if(a.getId().equals(id)){
                 return Optional.of(a);
@@ -173,72 +175,4 @@ public class TestActivityRepository implements ActivityRepository {
     public <S extends Activity, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
         return null;
     }
-
-    @Override
-    public Optional<List<Activity>> getRandomActivities(int limit) {
-        List<Activity> result = new ArrayList<>();
-        for(int i = 0; i < limit; i++){
-            result.add(findById(String.valueOf( random.nextLong() % activities.size() + 1 )).get());
-        }
-        return Optional.of(result);
-    }
-
-    @Override
-    public int numberDistinctConsumptions() {
-        List<Long> distinctConsumptions = activities
-                                        .stream()
-                                        .map(Activity::getConsumption_in_wh)
-                                        .distinct()
-                                        .collect(Collectors.toList());
-        return distinctConsumptions.size();
-    }
-
-    @Override
-    public Optional<List<String>> activitiesWithSpecifiedConsumption(int size, int floor, int ceil, long pivotConsumption) {
-        // filter only the activities, whose consumption is within the specified range
-        List<Activity> activitiesSuitableConsumptions = activities
-                .stream()
-                .filter(activity -> activity.getConsumption_in_wh() > floor && activity.getConsumption_in_wh() < ceil && activity.getConsumption_in_wh() != pivotConsumption)
-                .collect(Collectors.toList());
-
-        if(activitiesSuitableConsumptions.isEmpty()) return Optional.empty();
-        List<String> result = new ArrayList<>();
-        for(Activity a : activitiesSuitableConsumptions){
-            result.add(a.getId());
-        }
-        return Optional.of(result);
-    }
-
-    @Override
-    public Optional<List<Activity>> nonUniqueActivities(int limit){
-        List<Activity> result = new ArrayList<>();
-        for(Activity a : activities){
-            for(Activity b : activities){
-                if(!a.equals(b)){
-                    result.add(a);
-                }
-                if(result.size() >= limit){
-                    break;
-                }
-            }
-            if(result.size() >= limit){
-                break;
-            }
-        }
-        return Optional.of(result);
-    }
-
-    @Override
-    public Optional<List<Activity>> sameConsumptionActivities(long consumption, String id, int limit){
-        List<Activity> result = new ArrayList<>();
-        for(Activity a : activities){
-            if(a.getConsumption_in_wh() == consumption && !a.getId().equals(id)){
-                result.add(a);
-            }
-            if(result.size() >= limit){
-                break;
-            }
-        }
-        return Optional.of(result);
-    }
 }
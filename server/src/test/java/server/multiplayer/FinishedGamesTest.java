@@ -0,0 +1,79 @@
+package server.multiplayer;
+
+import commons.MultiPlayerGame;
+import commons.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FinishedGamesTest {
+
+    private long now;
+    private List<Integer> dropped;
+    private FinishedGames finished;
+
+    /**
+     * Keeps finished games for 1000 ms and up to 100 bytes, without a sweep thread
+     */
+    @BeforeEach
+    public void setup() {
+        now = 0;
+        dropped = new ArrayList<>();
+        finished = new FinishedGames(1000, 100, 0, dropped::add, () -> now);
+    }
+
+    /**
+     * Games are dropped once their time to live has passed, oldest first
+     */
+    @Test
+    void ttlTest() {
+        finished.add(1, 10);
+        now = 500;
+        finished.add(2, 10);
+        now = 1000;
+        finished.sweep();
+        assertEquals(List.of(1), dropped);
+
+        now = 1600;
+        finished.sweep();
+        assertEquals(List.of(1, 2), dropped);
+        assertEquals(0, finished.getStats().getGames());
+        assertEquals(0, finished.getStats().getBytes());
+        assertEquals(2, finished.getStats().getExpired());
+    }
+
+    /**
+     * The oldest games are dropped to stay within the budget, the newest game is always kept
+     */
+    @Test
+    void budgetTest() {
+        finished.add(1, 40);
+        finished.add(2, 40);
+        finished.add(3, 40);
+        assertEquals(List.of(1), dropped);
+        assertEquals(80, finished.getStats().getBytes());
+
+        finished.add(4, 500);
+        assertEquals(List.of(1, 2, 3), dropped);
+        assertEquals(1, finished.getStats().getGames());
+        assertEquals(500, finished.getStats().getBytes());
+        assertEquals(3, finished.getStats().getEvicted());
+    }
+
+    /**
+     * Size of a game grows with its players and questions
+     */
+    @Test
+    void estimateBytesTest() {
+        MultiPlayerGame game = new MultiPlayerGame(1, new ArrayList<>(), new ArrayList<>());
+        long empty = FinishedGames.estimateBytes(game);
+        game.getPlayers().add(new Player("a"));
+
+        assertTrue(empty > 0);
+        assertTrue(FinishedGames.estimateBytes(game) > empty);
+    }
+}
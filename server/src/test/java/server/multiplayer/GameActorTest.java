@@ -0,0 +1,259 @@
+package server.multiplayer;
+
+import commons.Activity;
+import commons.Answer;
+import commons.GameUpdatesPacket;
+import commons.MultiPlayerGame;
+import commons.Player;
+import commons.PlayerChange;
+import commons.questions.EstimationQuestion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameActorTest {
+
+    private ExecutorService executor;
+    private GameActor actor;
+
+    /**
+     * Creates an actor on two threads, its waiting room has no players
+     */
+    @BeforeEach
+    public void setup() {
+        executor = Executors.newFixedThreadPool(2);
+        actor = new GameActor(3, executor, () -> new GameUpdatesPacket(0, "WAITINGROOM", -1));
+    }
+
+    /**
+     * Stops the threads of the actor
+     */
+    @AfterEach
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Messages run one at a time in the order they were sent, even from many threads
+     */
+    @Test
+    void orderTest() throws InterruptedException {
+        List<Integer> seen = new ArrayList<>(); // only used by the messages, so no lock
+        Thread[] senders = new Thread[4];
+        for (int t = 0; t < senders.length; t++) {
+            int sender = t;
+            senders[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    int n = sender * 1000 + i;
+                    actor.tell(a -> seen.add(n));
+                }
+            });
+            senders[t].start();
+        }
+        for (Thread s : senders) {
+            s.join();
+        }
+        assertEquals(4000, actor.ask(a -> seen.size()).join());
+        List<Integer> copy = actor.ask(a -> new ArrayList<>(seen)).join();
+        for (int sender = 0; sender < senders.length; sender++) {
+            int last = -1;
+            for (int n : copy) {
+                if (n / 1000 == sender) {
+                    assertTrue(n > last);
+                    last = n;
+                }
+            }
+        }
+        assertEquals(4002, actor.ask(GameActor::getProcessed).join()); // counted before the next message runs
+    }
+
+    /**
+     * A failing message doesn't stop the actor, ask gets the exception
+     */
+    @Test
+    void failureTest() {
+        actor.tell(a -> {
+            throw new IllegalStateException("broken");
+        });
+        CompletableFuture<Object> failed = actor.ask(a -> {
+            throw new IllegalStateException("broken");
+        });
+        assertThrows(CompletionException.class, failed::join);
+        assertEquals(3, actor.ask(GameActor::getId).join());
+        assertEquals(2, actor.getFailures());
+    }
+
+    /**
+     * Status is the waiting room until the game starts, snapshots don't change with the game
+     * and copy players which didn't send a score yet
+     */
+    @Test
+    void gameTest() {
+        assertEquals("WAITINGROOM", actor.ask(GameActor::status).join().getCurrentScreen());
+        assertNull(actor.ask(GameActor::snapshot).join());
+
+        MultiPlayerGame game = new MultiPlayerGame(3, new ArrayList<>(List.of(new Player(1L, "a", 1))),
+            new ArrayList<>());
+        game.setCurrentScreen("LOADING SCREEN");
+        actor.tell(a -> a.setGame(game));
+        MultiPlayerGame snapshot = actor.ask(GameActor::snapshot).join();
+        actor.tell(a -> a.getGame().getPlayers().get(0).setScore(50));
+
+        assertEquals("LOADING SCREEN", actor.ask(GameActor::status).join().getCurrentScreen());
+        assertEquals(1, snapshot.getPlayers().get(0).getScore());
+        assertEquals(50, actor.ask(GameActor::copyPlayers).join().get(0).getScore());
+
+        Player joined = new Player(); // no score sent yet
+        joined.setName("b");
+        actor.tell(a -> a.getGame().getPlayers().add(joined));
+        assertNull(actor.ask(GameActor::copyPlayers).join().get(1).getScore());
+    }
+
+    /**
+     * Answers count only while their question is shown and only once per player,
+     * closing the question scores them all and sends the new scores with the next update
+     */
+    @Test
+    void answerTest() {
+        MultiPlayerGame game = new MultiPlayerGame(3, new ArrayList<>(List.of(new Player("a"), new Player("b"))),
+            new ArrayList<>(List.of(new EstimationQuestion(new Activity("1", "image_a", "a", 10L, "a")))));
+        actor.tell(a -> a.setGame(game));
+        assertFalse(actor.ask(a -> a.answer(new Answer("a", 0, 10L, 1))).join()); // still loading
+
+        actor.tell(a -> {
+            a.getGame().setCurrentScreen("QUESTION");
+            a.getGame().nextQuestion();
+        });
+        assertTrue(actor.ask(a -> a.answer(new Answer("a", 0, 10L, 1))).join());
+        assertFalse(actor.ask(a -> a.answer(new Answer("a", 0, 10L, 0))).join()); // answered already
+        assertFalse(actor.ask(a -> a.answer(new Answer("c", 0, 10L, 1))).join()); // not in the game
+        assertFalse(actor.ask(a -> a.answer(new Answer("b", 1, 10L, 1))).join()); // other question
+
+        List<GameUpdatesPacket> updates = new ArrayList<>();
+        actor.tell(a -> {
+            a.getEvents().subscribe((id, packet) -> updates.add(packet));
+            a.closeQuestion();
+            a.getGame().setCurrentScreen("LEADERBOARD");
+            a.publish(a.getGame().getGameStatus());
+        });
+        actor.tell(GameActor::closeQuestion); // closed already, scores nothing
+
+        assertEquals(List.of(new PlayerChange(PlayerChange.Type.SCORE, "a", 1055)),
+            actor.ask(a -> updates.get(0).getChanges()).join());
+        assertEquals(1055, actor.ask(GameActor::copyPlayers).join().get(0).getScore());
+    }
+
+    /**
+     * The time of an answer comes from the server, and the joker only counts for the first question it is used in
+     */
+    @Test
+    void answerCheckTest() {
+        long[] now = {0};
+        GameActor timed = new GameActor(5, executor, () -> null, () -> now[0]);
+        MultiPlayerGame game = new MultiPlayerGame(5, new ArrayList<>(List.of(new Player("a"), new Player("b"))),
+            new ArrayList<>(List.of(new EstimationQuestion(new Activity("1", "image_a", "a", 10L, "a")),
+                new EstimationQuestion(new Activity("2", "image_b", "b", 20L, "b")))));
+        game.setCurrentScreen("QUESTION");
+        timed.tell(a -> {
+            a.setGame(game);
+            a.getGame().nextQuestion();
+            a.openQuestion(10000);
+        });
+
+        Answer early = new Answer("a", 0, 10L, 0);  // claims to be faster than the server saw
+        early.setDoublePoints(true);
+        Answer late = new Answer("b", 0, 10L, 60); // claims to be slower than the question lasts
+        now[0] = 4500;
+        assertTrue(timed.ask(a -> a.answer(early)).join());
+        assertTrue(timed.ask(a -> a.answer(late)).join());
+        assertEquals(4, early.getElapsed());
+        assertEquals(10, late.getElapsed());
+        assertTrue(early.isDoublePoints());
+
+        timed.tell(a -> {
+            a.closeQuestion();
+            a.getGame().nextQuestion();
+            a.openQuestion(10000);
+        });
+        Answer again = new Answer("a", 1, 20L, 1);
+        again.setDoublePoints(true);
+        assertTrue(timed.ask(a -> a.answer(again)).join());
+        assertFalse(again.isDoublePoints()); // used for the first question already
+        assertEquals(1, again.getElapsed());
+    }
+
+    /**
+     * Listeners resume from the updates kept by the actor and stop getting them once unsubscribed
+     */
+    @Test
+    void listenerTest() {
+        List<Long> ids = new ArrayList<>();
+        GameEvents.Listener listener = (id, packet) -> ids.add(id);
+        actor.tell(a -> a.publish(new GameUpdatesPacket(0, "WAITINGROOM", -1)));
+        actor.tell(a -> a.publish(new GameUpdatesPacket(1, "WAITINGROOM", -1)));
+
+        assertTrue(actor.resume(listener, 1).join());
+        actor.unsubscribe(listener);
+        actor.tell(a -> a.publish(new GameUpdatesPacket(2, "WAITINGROOM", -1)));
+
+        assertEquals(3L, actor.ask(a -> a.getEvents().getLastId()).join());
+        assertEquals(List.of(2L), ids);
+    }
+
+    /**
+     * Every update gets the next version and the changes recorded since the previous one,
+     * the status has the current version and no changes
+     */
+    @Test
+    void versionTest() {
+        List<GameUpdatesPacket> updates = new ArrayList<>();
+        actor.resume((id, packet) -> updates.add(packet), -1);
+        actor.tell(a -> a.change(PlayerChange.joined(new Player("a"))));
+        actor.tell(a -> a.change(PlayerChange.joined(new Player("b"))));
+        actor.tell(a -> a.publish(new GameUpdatesPacket(0, "WAITINGROOM", -1)));
+        actor.tell(a -> a.publish(new GameUpdatesPacket(0, "WAITINGROOM", -1)));
+        GameUpdatesPacket status = actor.ask(GameActor::status).join();
+
+        assertEquals(0, updates.get(0).getVersion()); // status sent on resume
+        assertNull(updates.get(0).getChanges());
+        assertEquals(1, updates.get(1).getVersion());
+        assertEquals(2, updates.get(1).getChanges().size());
+        assertTrue(updates.get(2).follows(1));
+        assertEquals(List.of(), updates.get(2).getChanges());
+        assertEquals(2, status.getVersion());
+        assertNull(status.getChanges());
+    }
+
+    /**
+     * A game waiting for its message doesn't hold back the other games on the same threads
+     */
+    @Test
+    void parallelTest() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        GameActor other = new GameActor(4, executor, () -> null);
+        actor.tell(a -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CompletableFuture<Integer> first = actor.ask(GameActor::getId);
+
+        assertEquals(4, other.ask(GameActor::getId).join());
+        assertFalse(first.isDone());
+        release.countDown();
+        assertEquals(3, first.join());
+    }
+}
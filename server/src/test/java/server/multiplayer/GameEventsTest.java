@@ -0,0 +1,95 @@
+package server.multiplayer;
+
+import commons.GameUpdatesPacket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameEventsTest {
+
+    private GameEvents events;
+    private List<Long> ids;
+    private List<GameUpdatesPacket> packets;
+    private GameEvents.Listener listener;
+
+    /**
+     * Creates the updates of a game and a listener collecting them
+     */
+    @BeforeEach
+    public void setup() {
+        events = new GameEvents();
+        ids = new ArrayList<>();
+        packets = new ArrayList<>();
+        listener = (id, packet) -> {
+            ids.add(id);
+            packets.add(packet);
+        };
+    }
+
+    private static GameUpdatesPacket packet(int questionNumber) {
+        return new GameUpdatesPacket(0, "QUESTION", questionNumber);
+    }
+
+    /**
+     * Updates get increasing event IDs and are sent to the listeners until they unsubscribe
+     */
+    @Test
+    public void publishTest() {
+        events.subscribe(listener);
+        assertEquals(1, events.publish(packet(0)));
+        assertEquals(2, events.publish(packet(1)));
+        events.unsubscribe(listener);
+        events.publish(packet(2));
+
+        assertEquals(List.of(1L, 2L), ids);
+        assertEquals(3, events.getLastId());
+        assertEquals(0, events.getListeners());
+    }
+
+    /**
+     * Listener resuming gets the updates it missed
+     */
+    @Test
+    public void resumeTest() {
+        events.publish(packet(0));
+        events.publish(packet(1));
+        events.publish(packet(2));
+
+        assertTrue(events.resume(listener, 1, () -> packet(-1)));
+        events.publish(packet(3));
+        assertEquals(List.of(2L, 3L, 4L), ids);
+        assertEquals(List.of(packet(1), packet(2), packet(3)), packets);
+    }
+
+    /**
+     * Listener which got nothing yet, or missed more than is kept, gets the current status
+     */
+    @Test
+    public void statusTest() {
+        for (int i = 0; i < GameEvents.HISTORY + 5; i++) {
+            events.publish(packet(i));
+        }
+
+        assertFalse(events.resume(listener, -1, () -> packet(-1)));
+        assertFalse(events.resume((id, p) -> { }, 2, () -> packet(-1)));
+        assertFalse(events.resume((id, p) -> { }, 100, () -> null)); // not an ID of this game
+        assertEquals(List.of((long) GameEvents.HISTORY + 5), ids);
+        assertEquals(List.of(packet(-1)), packets);
+    }
+
+    /**
+     * Listener which is up to date gets nothing until the next update
+     */
+    @Test
+    public void upToDateTest() {
+        events.publish(packet(0));
+
+        assertTrue(events.resume(listener, 1, () -> packet(-1)));
+        assertTrue(new GameEvents().resume(listener, 0, () -> packet(-1)));
+        assertTrue(ids.isEmpty());
+    }
+}
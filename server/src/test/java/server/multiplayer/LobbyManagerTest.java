@@ -0,0 +1,213 @@
+package server.multiplayer;
+
+import commons.Activity;
+import commons.Player;
+import commons.questions.EstimationQuestion;
+import commons.questions.Question;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.api.GameScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LobbyManagerTest {
+
+    private GameScheduler scheduler;
+    private List<Integer> opened;
+    private List<Integer> started;
+    private boolean canStart;
+
+    /**
+     * Creates a scheduler and clears the recorded callbacks
+     */
+    @BeforeEach
+    public void setup() {
+        scheduler = new GameScheduler(1);
+        opened = new CopyOnWriteArrayList<>();
+        started = new CopyOnWriteArrayList<>();
+        canStart = true;
+    }
+
+    /**
+     * Stops the scheduler threads
+     */
+    @AfterEach
+    public void cleanUp() {
+        scheduler.shutdown();
+    }
+
+    private LobbyManager lobbies(int capacity, int autoStartPlayers, long autoStartMillis) {
+        LobbyManager[] manager = new LobbyManager[1];
+        manager[0] = new LobbyManager(new WaitingRoom(new ArrayList<>(), new ArrayList<>(), 5), capacity,
+            autoStartPlayers, autoStartMillis, scheduler, lobby -> opened.add(lobby.getMultiplayerGameID()), id -> {
+                if (!canStart || manager[0].take(id, List.of()) == null) {
+                    return false;
+                }
+                started.add(id);
+                return true;
+            });
+        return manager[0];
+    }
+
+    /**
+     * First lobby is opened right away, so its deck can be built
+     */
+    @Test
+    public void firstLobbyTest() {
+        LobbyManager lobbies = lobbies(2, 2, 60000);
+
+        assertEquals(List.of(0), opened);
+        assertEquals(5, lobbies.current().getMaxNumberOfQuestions());
+        assertEquals(1, lobbies.getStats().getLobbies());
+    }
+
+    /**
+     * Players fill a lobby before a new one is opened
+     */
+    @Test
+    public void joinTest() {
+        LobbyManager lobbies = lobbies(2, 3, 60000);
+
+        assertEquals(0, lobbies.join(new Player("a")));
+        assertEquals(0, lobbies.join(new Player("b")));
+        assertEquals(1, lobbies.join(new Player("c")));
+        assertEquals(List.of(0, 1), opened);
+        assertEquals(2, lobbies.get(0).getNumberOfPlayers());
+        assertEquals(3, lobbies.getStats().getPlayers());
+    }
+
+    /**
+     * Players go to the fullest lobby which has room
+     */
+    @Test
+    public void bestFitTest() {
+        LobbyManager lobbies = lobbies(3, 4, 60000);
+        Player a = new Player("a");
+        lobbies.join(a);
+        lobbies.join(new Player("b"));
+        lobbies.join(new Player("c"));
+        lobbies.join(new Player("d")); // lobby 1
+        lobbies.join(new Player("e")); // lobby 1
+        lobbies.leave(a);
+
+        assertEquals(0, lobbies.join(new Player("f"))); // both have 2 players, the oldest is lobby 0
+        assertEquals(1, lobbies.join(new Player("g"))); // lobby 0 is full now
+    }
+
+    /**
+     * Names are unique in all open lobbies, and free again once a player leaves
+     */
+    @Test
+    public void usernameTest() {
+        LobbyManager lobbies = lobbies(1, 2, 60000);
+        Player a = new Player("a");
+        lobbies.join(a);
+        lobbies.join(new Player("b"));
+
+        assertFalse(lobbies.isNameFree("a"));
+        assertFalse(lobbies.isNameFree("b"));
+        assertNull(lobbies.join(new Player("a")));
+        assertNull(lobbies.join(new Player("")));
+        assertNull(lobbies.join(null));
+        assertEquals(0, lobbies.leave(a).getMultiplayerGameID());
+        assertNull(lobbies.leave(a));
+        assertTrue(lobbies.isNameFree("a"));
+    }
+
+    /**
+     * Taking the last open lobby opens a new one, and the names of its players are free again
+     */
+    @Test
+    public void takeTest() {
+        LobbyManager lobbies = lobbies(2, 3, 60000);
+        lobbies.join(new Player("a"));
+
+        assertEquals(0, lobbies.take(0, List.of()).getMultiplayerGameID());
+        assertNull(lobbies.take(0, List.of()));
+        assertTrue(lobbies.isNameFree("a"));
+        assertEquals(List.of(0, 1), opened);
+        assertEquals(1, lobbies.current().getMultiplayerGameID());
+    }
+
+    /**
+     * Players are handed out as copies, and the deck is attached when the lobby is taken
+     */
+    @Test
+    public void playersAndDeckTest() {
+        LobbyManager lobbies = lobbies(2, 3, 60000);
+        lobbies.join(new Player("a"));
+        List<Player> players = lobbies.players(0);
+        lobbies.join(new Player("b"));
+
+        assertEquals(List.of(new Player("a")), players);
+        assertEquals(2, lobbies.players(0).size());
+        assertNull(lobbies.players(5));
+        Question question = new EstimationQuestion(new Activity("1", "image", "title", 100L, "source"));
+        assertEquals(List.of(question), lobbies.take(0, List.of(question)).getQuestions());
+        assertNull(lobbies.players(0));
+    }
+
+    /**
+     * Lobbies open with the configured durations, which can be changed until their game starts
+     */
+    @Test
+    public void phaseDurationsTest() {
+        LobbyManager lobbies = lobbies(2, 3, 60000);
+
+        assertEquals(PhaseDurations.defaults(), lobbies.get(0).getPhaseDurations());
+        assertEquals(PhaseDurations.defaults().with(null, 5L, null), lobbies.updatePhaseDurations(0, p -> p.with(null, 5L, null)));
+        assertEquals(5L, lobbies.get(0).getPhaseDurations().getQuestionMillis());
+        assertNull(lobbies.updatePhaseDurations(5, p -> p));
+    }
+
+    /**
+     * Lobby starts on its own once it has enough players
+     */
+    @Test
+    public void autoStartPlayersTest() throws InterruptedException {
+        LobbyManager lobbies = lobbies(2, 2, 60000);
+        lobbies.join(new Player("a"));
+        lobbies.join(new Player("b"));
+        Thread.sleep(200);
+
+        assertEquals(List.of(0), started);
+        assertEquals(1, lobbies.getStats().getAutoStarts());
+        assertNull(lobbies.get(0));
+    }
+
+    /**
+     * Lobby starts on its own some time after its first player joined, and tries again if it can't start yet
+     */
+    @Test
+    public void autoStartTimeTest() throws InterruptedException {
+        canStart = false;
+        LobbyManager lobbies = lobbies(2, 2, 20);
+        lobbies.join(new Player("a"));
+        Thread.sleep(200);
+        assertEquals(List.of(), started);
+
+        canStart = true;
+        Thread.sleep(LobbyManager.RETRY_MILLIS + 500);
+        assertEquals(List.of(0), started);
+    }
+
+    /**
+     * Empty lobby doesn't start on its own
+     */
+    @Test
+    public void emptyLobbyTest() throws InterruptedException {
+        LobbyManager lobbies = lobbies(2, 2, 20);
+        Player a = new Player("a");
+        lobbies.join(a);
+        lobbies.leave(a);
+        Thread.sleep(200);
+
+        assertEquals(List.of(), started);
+        assertFalse(scheduler.isRunning(0));
+    }
+}
@@ -194,6 +194,25 @@ public class WaitingRoomTest {
         assertEquals(0, waitingRoom.getNumberOfPlayers());
     }
 
+    /**
+     * Full waiting room doesn't take more players
+     */
+    @Test
+    public void CapacityTest(){
+        waitingRoom.setCapacity(1);
+        Player p1 = new Player("a");
+
+        assertTrue(waitingRoom.addPlayerToWaitingRoom(p1));
+        assertTrue(waitingRoom.isFull());
+        assertTrue(waitingRoom.hasPlayer("a"));
+        assertFalse(waitingRoom.addPlayerToWaitingRoom(new Player("b")));
+        assertFalse(waitingRoom.hasPlayer("b"));
+
+        waitingRoom.removePlayerFromWaitingRoom(p1);
+        assertFalse(waitingRoom.isFull());
+        assertFalse(waitingRoom.hasPlayer("a"));
+    }
+
     /**
      * Tests if a question is added successfully
      */